@@ -0,0 +1,28 @@
+package com.jchacon.banking.frauddetection.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Tuning of the batch endpoint (app.batch.*).
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.batch")
+public class BatchProcessingProperties {
+
+    // Parallel lanes; a customer always maps to the same lane, so its items keep their order
+    private int lanes = 8;
+
+    // Items per lane written in one DB transaction with multi-row inserts
+    private int chunkSize = 100;
+
+    // Max time a partial chunk waits for more items before it is written
+    private Duration chunkWait = Duration.ofMillis(20);
+
+    // Limit for evaluating and writing one chunk; on timeout the whole chunk is rolled back
+    private Duration chunkTimeout = Duration.ofSeconds(10);
+}
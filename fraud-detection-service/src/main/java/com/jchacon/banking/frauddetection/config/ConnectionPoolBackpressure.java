@@ -0,0 +1,67 @@
+package com.jchacon.banking.frauddetection.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.PoolMetrics;
+import io.r2dbc.spi.ConnectionFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.pool.InstrumentedPool;
+import reactor.pool.PoolBuilder;
+
+/**
+ * Ties the demand of streaming ingestion to the R2DBC pool.
+ * All streams together never hold more than max-size - reserved-connections items in flight, so interactive
+ * requests always find a connection. Items beyond that wait for a permit, which is handed to the next one in
+ * line as soon as a running item finishes or is cancelled.
+ * Less demand means Netty stops reading the request body, which pushes back on the client over TCP.
+ */
+@Slf4j
+@Component
+public class ConnectionPoolBackpressure {
+
+    private static final Object PERMIT = new Object();
+
+    private final int maxInFlight;
+    private final InstrumentedPool<Object> permits; // null when the ConnectionFactory is not pooled
+    private final Counter waits;
+
+    public ConnectionPoolBackpressure(ConnectionFactory connectionFactory,
+                                      MeterRegistry meterRegistry,
+                                      @Value("${app.stream.reserved-connections:4}") int reservedConnections) {
+        PoolMetrics poolMetrics = connectionFactory instanceof ConnectionPool pool ? pool.getMetrics().orElse(null) : null;
+        int poolSize = poolMetrics != null ? poolMetrics.getMaxAllocatedSize() : reservedConnections * 2;
+        this.maxInFlight = Math.max(1, poolSize - reservedConnections);
+        // Shared by every stream; acquires queue in arrival order and are served on release
+        this.permits = poolMetrics != null
+                ? PoolBuilder.from(Mono.just(PERMIT)).sizeBetween(0, maxInFlight).buildPool()
+                : null;
+        this.waits = Counter.builder("fraud.stream.pool.waits")
+                .description("Times a streamed item waited for the connection pool to have room")
+                .register(meterRegistry);
+        log.info("Streaming ingestion limited to {} items in flight (pool metrics {})",
+                maxInFlight, poolMetrics != null ? "available" : "unavailable");
+    }
+
+    public int maxInFlight() {
+        return maxInFlight;
+    }
+
+    /**
+     * Runs the work once a permit is free and returns the permit when it terminates or is cancelled.
+     */
+    public <T> Mono<T> withCapacity(Mono<T> work) {
+        if (permits == null) {
+            return work;
+        }
+        return Mono.defer(() -> {
+            if (permits.metrics().acquiredSize() >= maxInFlight) {
+                waits.increment();
+            }
+            return permits.withPoolable(permit -> work).singleOrEmpty();
+        });
+    }
+}
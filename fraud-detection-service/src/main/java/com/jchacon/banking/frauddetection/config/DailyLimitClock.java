@@ -0,0 +1,45 @@
+package com.jchacon.banking.frauddetection.config;
+
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Single source of "today" for daily limits.
+ * A customer whose last_reset is before currentDayStart() starts the day with nothing spent.
+ * Uses the JVM time zone, the same one the R2DBC driver uses for LocalDateTime columns.
+ */
+@Component
+public class DailyLimitClock {
+
+    private final Clock clock;
+
+    public DailyLimitClock() {
+        this(Clock.systemDefaultZone());
+    }
+
+    public DailyLimitClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    public LocalDateTime currentDayStart() {
+        return LocalDate.now(clock).atStartOfDay();
+    }
+
+    /**
+     * Day start of an instant already read from now(), so a caller needing both reads the clock once.
+     */
+    public LocalDateTime dayStartOf(LocalDateTime now) {
+        return now.toLocalDate().atStartOfDay();
+    }
+
+    public LocalDateTime now() {
+        return LocalDateTime.now(clock);
+    }
+
+    public boolean isStale(LocalDateTime lastReset) {
+        return lastReset == null || lastReset.isBefore(currentDayStart());
+    }
+}
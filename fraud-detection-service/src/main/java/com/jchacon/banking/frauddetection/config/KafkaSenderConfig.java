@@ -0,0 +1,34 @@
+package com.jchacon.banking.frauddetection.config;
+
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.boot.ssl.SslBundles;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.kafka.sender.KafkaSender;
+import reactor.kafka.sender.SenderOptions;
+
+/**
+ * Reactive Kafka producer for fraud-detection-events. Built from the same spring.kafka.producer.* settings
+ * (and profiles) as the rest of the application, so idempotence, batching and compression apply unchanged.
+ * Values are sent as raw bytes: outbox rows already hold the encoded event.
+ */
+@Configuration
+public class KafkaSenderConfig {
+
+    @Bean(destroyMethod = "close")
+    public KafkaSender<String, byte[]> fraudEventSender(KafkaProperties kafkaProperties,
+                                                       ObjectProvider<SslBundles> sslBundles,
+                                                       @Value("${app.kafka.sender.max-in-flight:256}") int maxInFlight) {
+        SenderOptions<String, byte[]> options = SenderOptions.<String, byte[]>create(
+                        kafkaProperties.buildProducerProperties(sslBundles.getIfAvailable()))
+                .withValueSerializer(new ByteArraySerializer())
+                // Upper bound of unacknowledged sends; upstream is paused (backpressure) once it is reached
+                .maxInFlight(maxInFlight)
+                // A failed record is reported in its SenderResult instead of terminating the whole stream
+                .stopOnError(false);
+        return KafkaSender.create(options);
+    }
+}
@@ -0,0 +1,80 @@
+package com.jchacon.banking.frauddetection.config;
+
+import com.jchacon.banking.frauddetection.repository.CustomerLimitRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Background rollover for customers that do not transact after midnight.
+ * Active customers are already reset lazily by the reservation itself; this only catches the idle ones,
+ * a small page at a time with a bounded number of workers, so there is never a full-table UPDATE.
+ * Not used in ledger mode, where the in-memory entries own the rollover.
+ */
+@Slf4j
+@Component
+@ConditionalOnExpression("${app.limits.rollover.sweeper.enabled:false} and !${app.limits.ledger.enabled:false}")
+public class LimitRolloverSweeper {
+
+    private final CustomerLimitRepository customerLimitRepository;
+    private final DailyLimitClock dailyLimitClock;
+    private final int pageSize;
+    private final int concurrency;
+    private final Duration pagePause;
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    public LimitRolloverSweeper(CustomerLimitRepository customerLimitRepository,
+                                DailyLimitClock dailyLimitClock,
+                                @Value("${app.limits.rollover.sweeper.page-size:500}") int pageSize,
+                                @Value("${app.limits.rollover.sweeper.concurrency:2}") int concurrency,
+                                @Value("${app.limits.rollover.sweeper.page-pause:50ms}") Duration pagePause) {
+        this.customerLimitRepository = customerLimitRepository;
+        this.dailyLimitClock = dailyLimitClock;
+        this.pageSize = pageSize;
+        this.concurrency = concurrency;
+        this.pagePause = pagePause;
+    }
+
+    @Scheduled(fixedDelayString = "${app.limits.rollover.sweeper.interval-ms:60000}")
+    public void sweepStaleLimits() {
+        sweep().subscribe();
+    }
+
+    /**
+     * @return Mono<Integer> total customers reset in this run
+     */
+    public Mono<Integer> sweep() {
+        return Mono.defer(() -> {
+            if (!running.compareAndSet(false, true)) {
+                return Mono.just(0);
+            }
+            LocalDateTime dayStart = dailyLimitClock.currentDayStart();
+            Mono<Integer> page = Mono.defer(() -> customerLimitRepository.resetStaleLimits(dayStart, dailyLimitClock.now(), pageSize));
+            // Each worker keeps taking pages until one comes back short
+            return Flux.range(0, concurrency)
+                    .flatMap(worker -> page.expand(rows -> rows < pageSize
+                            ? Mono.empty()
+                            : page.delaySubscription(pagePause)), concurrency)
+                    .reduce(0, Integer::sum)
+                    .doOnNext(total -> {
+                        if (total > 0) {
+                            log.info("Limit rollover: {} idle customers reset", total);
+                        }
+                    })
+                    .onErrorResume(e -> {
+                        log.error("Limit rollover sweep failed: {}", e.getMessage());
+                        return Mono.just(0);
+                    })
+                    .doOnTerminate(() -> running.set(false))
+                    .doOnCancel(() -> running.set(false));
+        });
+    }
+}
@@ -1,61 +1,104 @@
 package com.jchacon.banking.frauddetection.config;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.jchacon.banking.frauddetection.entity.OutboxEventEntity;
-import com.jchacon.banking.frauddetection.event.TransactionEvent;
-import com.jchacon.banking.frauddetection.model.enums.OutboxEventStatus;
-import com.jchacon.banking.frauddetection.producer.FraudEventProducer;
-import com.jchacon.banking.frauddetection.repository.OutboxRepository;
-import lombok.RequiredArgsConstructor;
+import com.jchacon.banking.frauddetection.outbox.OutboxNotificationListener;
+import com.jchacon.banking.frauddetection.outbox.OutboxRelay;
+import com.jchacon.banking.frauddetection.outbox.OutboxRelayProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.EnableScheduling;
-import org.springframework.scheduling.annotation.Scheduled;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
 
-import java.time.LocalDateTime;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
 
+/**
+ * Drives the outbox relay. A NOTIFY on the outbox channel wakes it immediately; otherwise it polls as a
+ * fallback, starting at poll-min and doubling up to poll-max while the outbox stays empty.
+ */
 @Slf4j
 @Configuration
 @EnableScheduling
-@RequiredArgsConstructor
 public class OutboxScheduler {
 
-    private final OutboxRepository outboxRepository;
-    private final FraudEventProducer fraudEventProducer;
-    private final ObjectMapper objectMapper;
-
-    /**
-     * Polls the outbox table for failed events every 5 seconds.
-     * In a production environment, this interval could be adjusted via properties.
-     */
-    @Scheduled(fixedDelayString = "${app.scheduler.outbox-retry-ms:5000}")
-    public void processFailedEvents() {
-        outboxRepository.findByStatusOrderByCreatedAtAsc(OutboxEventStatus.FAILED.name())
-                .concatMap(this::retryEvent) // concatMap maintains the order by processing one-by-one
-                .subscribe(); // WebFlux requires manual subscription for background tasks
+    private final OutboxRelay outboxRelay;
+    private final OutboxNotificationListener notificationListener;
+    private final OutboxRelayProperties properties;
+    // Completed by a notification; a new one is armed before every drain, so nothing arriving mid-drain is lost
+    private final AtomicReference<Sinks.Empty<Void>> wakeUp = new AtomicReference<>(Sinks.empty());
+    private final AtomicReference<Duration> pollInterval;
+    private final Disposable.Composite subscriptions = Disposables.composite();
+
+    private final Counter notifiedWakeUps;
+    private final Counter polledWakeUps;
+
+    public OutboxScheduler(OutboxRelay outboxRelay,
+                           OutboxNotificationListener notificationListener,
+                           OutboxRelayProperties properties,
+                           MeterRegistry meterRegistry) {
+        this.outboxRelay = outboxRelay;
+        this.notificationListener = notificationListener;
+        this.properties = properties;
+        this.pollInterval = new AtomicReference<>(properties.getPollMin());
+        this.notifiedWakeUps = Counter.builder("outbox.relay.wakeups")
+                .description("Relay cycles by what started them")
+                .tag("source", "notify")
+                .register(meterRegistry);
+        this.polledWakeUps = Counter.builder("outbox.relay.wakeups")
+                .description("Relay cycles by what started them")
+                .tag("source", "poll")
+                .register(meterRegistry);
+        Gauge.builder("outbox.relay.poll.interval", pollInterval, interval -> interval.get().toMillis())
+                .description("Current fallback poll interval of the outbox relay in ms")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        subscriptions.add(notificationListener.notifications().subscribe(notification -> wakeUp()));
+        subscriptions.add(relayLoop().subscribe());
+    }
+
+    @PreDestroy
+    public void stop() {
+        subscriptions.dispose();
     }
 
-    private Mono<Void> retryEvent(OutboxEventEntity entity) {
-        return Mono.fromCallable(() -> objectMapper.readValue(entity.getPayload(), TransactionEvent.class))
-                .flatMap(event -> {
-                    log.info("Outbox Scheduler: Retrying TXN {}", entity.getTransactionId());
-                    return fraudEventProducer.retryFromOutbox(event)
-                            // If successfully sent, delete from outbox to keep table clean
-                            .then(outboxRepository.delete(entity))
-                            .doOnSuccess(v -> log.info("Outbox Scheduler: TXN {} processed and removed", entity.getTransactionId()));
+    void wakeUp() {
+        wakeUp.get().tryEmitEmpty();
+    }
+
+    Flux<Long> relayLoop() {
+        return Mono.defer(() -> {
+                    Sinks.Empty<Void> wake = Sinks.empty();
+                    wakeUp.set(wake);
+                    return outboxRelay.drain()
+                            .flatMap(relayed -> sleep(relayed, wake).thenReturn(relayed));
                 })
-                .onErrorResume(e -> {
-                    log.error("Outbox Scheduler: Retry failed for ID {}: {}", entity.getId(), e.getMessage());
-                    entity.setRetryCount(entity.getRetryCount() + 1);
-                    entity.setUpdatedAt(LocalDateTime.now());
-
-                    // If it fails too many times, stop retrying automatically
-                    if (entity.getRetryCount() >= 10) {
-                        entity.setStatus(OutboxEventStatus.FATAL_ERROR.name());
-                        log.error("Outbox Scheduler: Max retries reached for TXN {}. Manual intervention required.", entity.getTransactionId());
-                    }
-                    return outboxRepository.save(entity).then();
-                });
+                .repeat();
+    }
+
+    private Mono<Void> sleep(long relayed, Sinks.Empty<Void> wake) {
+        // Busy outbox: check again soon. Empty outbox: back off, notifications cover new rows meanwhile
+        Duration interval = relayed > 0
+                ? properties.getPollMin()
+                : min(pollInterval.get().multipliedBy(2), properties.getPollMax());
+        pollInterval.set(interval);
+        return Mono.firstWithSignal(
+                wake.asMono().doOnSuccess(v -> notifiedWakeUps.increment()),
+                Mono.delay(interval).doOnNext(tick -> polledWakeUps.increment()).then());
+    }
+
+    private static Duration min(Duration a, Duration b) {
+        return a.compareTo(b) <= 0 ? a : b;
     }
-}
\ No newline at end of file
+}
@@ -11,7 +11,9 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import jakarta.validation.Valid;
@@ -45,6 +47,45 @@ public class TransactionController {
         return fraudService.processTransaction(transaction);
     }
 
+    /**
+     * Receives many transactions in one call (JSON array or NDJSON), decoded as a stream.
+     * @return one result per item, streamed as NDJSON in completion order (per customer in request order).
+     */
+    @Operation(
+            summary = "Process a batch of transactions",
+            description = "Evaluates settlement batches in a single call. Items of the same customer keep their order; " +
+                    "invalid items are reported per item with responseCode 99."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Stream of per-item results (APPROVED, REJECTED or ERROR)",
+                    content = @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE,
+                            schema = @Schema(implementation = ProcessTransactionResponseDTO.class)))
+    })
+    @PostMapping(value = "/process/batch",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE},
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @ResponseStatus(HttpStatus.OK)
+    public Flux<ProcessTransactionResponseDTO> processBatch(@RequestBody Flux<ProcessTransactionRequestDTO> transactions) {
+        return fraudService.processBatch(transactions);
+    }
+
+    /**
+     * Long-lived ingestion for high-rate feeds: one connection, NDJSON in, NDJSON decisions out.
+     * The body is decoded line by line and only read as fast as the database can take the items.
+     */
+    @Operation(
+            summary = "Stream transactions for evaluation",
+            description = "Accepts an unbounded NDJSON feed and streams one decision per line. " +
+                    "Backpressure follows DB pool availability; invalid lines are reported with responseCode 99."
+    )
+    @PostMapping(value = "/process/stream",
+            consumes = MediaType.APPLICATION_NDJSON_VALUE,
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @ResponseStatus(HttpStatus.OK)
+    public Flux<ProcessTransactionResponseDTO> processStream(@RequestBody Flux<ProcessTransactionRequestDTO> transactions) {
+        return fraudService.processStream(transactions);
+    }
+
     /**
      * Simple health check endpoint for the reactive service.
      * Liveness and Readiness check for orchestration (Kubernetes/Cloud).
@@ -24,10 +24,23 @@ public class OutboxEventEntity {
     private String transactionId;
 
     /**
-     * Store the serialized TransactionEvent as a JSON string.
-     * In Postgres, this maps to the JSONB column we created.
+     * The Kafka record value exactly as it goes on the wire (binary TransactionEvent), stored as BYTEA.
+     * The relay publishes it without decoding or re-encoding.
      */
-    private String payload;
+    private byte[] payload;
+
+    @Column("message_key")
+    private String messageKey;
+
+    /**
+     * Destination topic, chosen from the event status when the row is written (see FraudEventProducer.topicFor).
+     */
+    private String topic;
+
+    /**
+     * Kafka record headers, see {@link com.jchacon.banking.frauddetection.outbox.OutboxHeaders}.
+     */
+    private byte[] headers;
 
     private String status;
 
@@ -0,0 +1,211 @@
+package com.jchacon.banking.frauddetection.event;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+/**
+ * Compact binary wire format of {@link TransactionEvent}.
+ * Contract counterpart: com.jchacon.banking.notification.event.TransactionEventCodec in notification-service.
+ * The two copies must stay identical apart from the package; both test suites pin the bytes with
+ * contracts/transaction-event-v1.hex.
+ * Layout, all integers as unsigned LEB128 varints:
+ * <pre>
+ * version            1 byte (currently 1)
+ * transactionId      string
+ * customerId         string
+ * amount             length + 1 of the unscaled two's-complement bytes (0 = null), bytes, zigzag scale
+ * status             string
+ * responseCode       string
+ * timestamp          nanos + 1 (0 = null), zigzag epoch seconds of the local date-time read as UTC
+ * correlationId      string
+ * string             length + 1 of the UTF-8 bytes (0 = null), bytes
+ * </pre>
+ * Evolution is append-only: a new version only adds fields at the end. Readers skip fields they do not
+ * know and leave fields missing from older payloads null, so producers and consumers can roll independently.
+ */
+public final class TransactionEventCodec {
+
+    public static final byte VERSION = 1;
+
+    private TransactionEventCodec() {
+    }
+
+    public static byte[] encode(TransactionEvent event) {
+        Writer writer = new Writer();
+        writer.buffer[writer.position++] = VERSION;
+        writer.string(event.getTransactionId());
+        writer.string(event.getCustomerId());
+        writer.decimal(event.getAmount());
+        writer.string(event.getStatus());
+        writer.string(event.getResponseCode());
+        writer.dateTime(event.getTimestamp());
+        writer.string(event.getCorrelationId());
+        return writer.toByteArray();
+    }
+
+    /**
+     * @throws IllegalArgumentException when the bytes are not a valid payload of any version
+     */
+    public static TransactionEvent decode(byte[] data) {
+        if (data.length == 0 || data[0] < 1) {
+            throw new IllegalArgumentException("Not a binary TransactionEvent (version byte "
+                    + (data.length == 0 ? "missing" : data[0]) + ")");
+        }
+        Reader reader = new Reader(data);
+        try {
+            return TransactionEvent.builder()
+                    .transactionId(reader.string())
+                    .customerId(reader.string())
+                    .amount(reader.decimal())
+                    .status(reader.string())
+                    .responseCode(reader.string())
+                    .timestamp(reader.dateTime())
+                    .correlationId(reader.string())
+                    .build();
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Truncated binary TransactionEvent", e);
+        }
+    }
+
+    private static final class Writer {
+        private byte[] buffer = new byte[128];
+        private int position;
+
+        void string(String value) {
+            if (value == null) {
+                varint(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            varint(bytes.length + 1L);
+            bytes(bytes);
+        }
+
+        void decimal(BigDecimal value) {
+            if (value == null) {
+                varint(0);
+                return;
+            }
+            byte[] unscaled = value.unscaledValue().toByteArray();
+            varint(unscaled.length + 1L);
+            bytes(unscaled);
+            varint(zigzag(value.scale()));
+        }
+
+        void dateTime(LocalDateTime value) {
+            if (value == null) {
+                varint(0);
+                return;
+            }
+            varint(value.getNano() + 1L);
+            varint(zigzag(value.toEpochSecond(ZoneOffset.UTC)));
+        }
+
+        void bytes(byte[] bytes) {
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+
+        void varint(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        void ensure(int extra) {
+            if (position + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + extra));
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, position);
+        }
+
+        private static long zigzag(long value) {
+            return (value << 1) ^ (value >> 63);
+        }
+    }
+
+    private static final class Reader {
+        private final byte[] data;
+        private int position = 1;
+
+        Reader(byte[] data) {
+            this.data = data;
+        }
+
+        String string() {
+            int length = length();
+            if (length < 0) {
+                return null;
+            }
+            String value = new String(data, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        BigDecimal decimal() {
+            int length = length();
+            if (length < 0) {
+                return null;
+            }
+            BigInteger unscaled = new BigInteger(data, position, length);
+            position += length;
+            return new BigDecimal(unscaled, (int) unzigzag(varint()));
+        }
+
+        LocalDateTime dateTime() {
+            if (exhausted()) {
+                return null;
+            }
+            long nanos = varint();
+            if (nanos == 0) {
+                return null;
+            }
+            return LocalDateTime.ofEpochSecond(unzigzag(varint()), (int) (nanos - 1), ZoneOffset.UTC);
+        }
+
+        /**
+         * -1 for null, and for a field an older version did not write.
+         */
+        private int length() {
+            if (exhausted()) {
+                return -1;
+            }
+            long length = varint() - 1;
+            if (length > data.length - position) {
+                throw new IllegalArgumentException("Field length " + length + " exceeds the payload");
+            }
+            return (int) length;
+        }
+
+        private boolean exhausted() {
+            return position >= data.length;
+        }
+
+        private long varint() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = data[position++];
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint");
+        }
+
+        private static long unzigzag(long value) {
+            return (value >>> 1) ^ -(value & 1);
+        }
+    }
+}
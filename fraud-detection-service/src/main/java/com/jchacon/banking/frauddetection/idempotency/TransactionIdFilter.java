@@ -0,0 +1,203 @@
+package com.jchacon.banking.frauddetection.idempotency;
+
+import com.jchacon.banking.frauddetection.repository.TransactionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Negative cache for idempotency: a time-partitioned Bloom filter of the transaction ids seen within
+ * app.idempotency.ttl-hours. The TTL is split into `partitions` windows; ids go into the current window
+ * and the oldest window is dropped when a new one starts, so an id stays visible for at least the TTL.
+ *
+ * A definite miss means the id is new and the DB lookup for a recorded result can be skipped. Redis is still
+ * used: the claim guards concurrent duplicates and the final response is written for retries on other pods.
+ * Until the startup rebuild from recent transactions rows has finished (or when disabled) every id is a
+ * possible hit.
+ */
+@Slf4j
+@Component
+public class TransactionIdFilter {
+
+    private final TransactionRepository transactionRepository;
+    private final Clock clock;
+    private final boolean enabled;
+    private final Duration ttl;
+    private final int partitions;
+    private final long windowMillis;
+    private final BloomFilter[] slots;
+    private final long[] slotWindows;
+    private volatile long currentWindow;
+    private volatile boolean ready;
+
+    private final Counter definiteMisses;
+    private final Counter possibleHits;
+    private final Counter falsePositives;
+
+    @Autowired
+    public TransactionIdFilter(TransactionRepository transactionRepository,
+                               MeterRegistry meterRegistry,
+                               @Value("${app.idempotency.bloom.enabled:true}") boolean enabled,
+                               @Value("${app.idempotency.ttl-hours}") int ttlHours,
+                               @Value("${app.idempotency.bloom.expected-insertions:5000000}") long expectedInsertions,
+                               @Value("${app.idempotency.bloom.false-positive-rate:0.01}") double falsePositiveRate,
+                               @Value("${app.idempotency.bloom.partitions:4}") int partitions) {
+        this(transactionRepository, meterRegistry, Clock.systemDefaultZone(), enabled, Duration.ofHours(ttlHours),
+                expectedInsertions, falsePositiveRate, partitions);
+    }
+
+    TransactionIdFilter(TransactionRepository transactionRepository, MeterRegistry meterRegistry, Clock clock,
+                        boolean enabled, Duration ttl, long expectedInsertions, double falsePositiveRate, int partitions) {
+        this.transactionRepository = transactionRepository;
+        this.clock = clock;
+        this.enabled = enabled;
+        this.ttl = ttl;
+        this.partitions = Math.max(1, partitions);
+        this.windowMillis = Math.max(1, ttl.toMillis() / this.partitions);
+        // One extra slot: the current window plus `partitions` full windows behind it always cover the TTL
+        this.slots = new BloomFilter[this.partitions + 1];
+        this.slotWindows = new long[slots.length];
+        this.currentWindow = clock.millis() / windowMillis;
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = enabled ? new BloomFilter(expectedInsertions / this.partitions, falsePositiveRate) : null;
+            slotWindows[i] = currentWindow - Math.floorMod(currentWindow - i, slots.length);
+        }
+
+        this.definiteMisses = Counter.builder("idempotency.bloom.checks")
+                .description("Idempotency filter answers")
+                .tag("result", "definite_miss")
+                .register(meterRegistry);
+        this.possibleHits = Counter.builder("idempotency.bloom.checks")
+                .description("Idempotency filter answers")
+                .tag("result", "possible_hit")
+                .register(meterRegistry);
+        this.falsePositives = Counter.builder("idempotency.bloom.false.positives")
+                .description("Possible hits that Redis and the DB did not know")
+                .register(meterRegistry);
+        // Observed rate: false positives among all ids that turned out to be new
+        Gauge.builder("idempotency.bloom.false.positive.rate", this, TransactionIdFilter::observedFalsePositiveRate)
+                .description("Observed false-positive rate of the idempotency filter")
+                .register(meterRegistry);
+        Gauge.builder("idempotency.bloom.false.positive.rate.expected", this, TransactionIdFilter::expectedFalsePositiveRate)
+                .description("False-positive rate expected from the current fill of the live windows")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Loads the ids recorded within the TTL. Runs once the application is ready, in the background.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild().subscribe();
+    }
+
+    Mono<Long> rebuild() {
+        if (!enabled) {
+            return Mono.just(0L);
+        }
+        ZoneId zone = clock.getZone();
+        LocalDateTime since = LocalDateTime.now(clock).minus(ttl);
+        return transactionRepository.findRecentTransactionIds(since)
+                .doOnNext(row -> putAt(row.getTransactionId(), row.getCreatedAt().atZone(zone).toInstant().toEpochMilli()))
+                .count()
+                .doOnSuccess(count -> {
+                    ready = true;
+                    log.info("Idempotency filter rebuilt from {} recent transactions", count);
+                })
+                .doOnError(e -> log.error("Idempotency filter rebuild failed, every id is checked remotely: {}", e.getMessage()));
+    }
+
+    /**
+     * @return false only when the id was definitely not seen within the TTL
+     */
+    public boolean mightContain(String transactionId) {
+        if (!enabled || !ready) {
+            return true;
+        }
+        long window = rotate();
+        for (int i = 0; i < slots.length; i++) {
+            if (slotWindows[i] >= window - partitions && slots[i].mightContain(transactionId)) {
+                possibleHits.increment();
+                return true;
+            }
+        }
+        definiteMisses.increment();
+        return false;
+    }
+
+    public void put(String transactionId) {
+        if (enabled) {
+            putAt(transactionId, clock.millis());
+        }
+    }
+
+    /**
+     * Reports a possible hit that turned out to be a new id.
+     */
+    public void recordFalsePositive() {
+        if (enabled && ready) {
+            falsePositives.increment();
+        }
+    }
+
+    private void putAt(String transactionId, long epochMillis) {
+        long window = rotate();
+        long target = epochMillis / windowMillis;
+        if (target > window - partitions - 1 && target <= window) {
+            slots[Math.floorMod(target, slots.length)].put(transactionId);
+        }
+    }
+
+    /**
+     * Starts the window of the current time, clearing the slots of windows that left the TTL.
+     */
+    private long rotate() {
+        long now = clock.millis() / windowMillis;
+        if (now <= currentWindow) {
+            return currentWindow;
+        }
+        synchronized (this) {
+            if (now > currentWindow) {
+                for (long window = Math.max(currentWindow + 1, now - partitions); window <= now; window++) {
+                    int slot = Math.floorMod(window, slots.length);
+                    slots[slot].clear();
+                    slotWindows[slot] = window;
+                }
+                currentWindow = now;
+            }
+        }
+        return now;
+    }
+
+    private double observedFalsePositiveRate() {
+        double fp = falsePositives.count();
+        double negatives = fp + definiteMisses.count();
+        return negatives == 0 ? 0 : fp / negatives;
+    }
+
+    private double expectedFalsePositiveRate() {
+        if (!enabled) {
+            return 0;
+        }
+        double allMiss = 1;
+        long window = currentWindow;
+        for (int i = 0; i < slots.length; i++) {
+            if (slotWindows[i] >= window - partitions) {
+                allMiss *= 1 - slots[i].expectedFalsePositiveRate();
+            }
+        }
+        return 1 - allMiss;
+    }
+}
@@ -0,0 +1,90 @@
+package com.jchacon.banking.frauddetection.idempotency;
+
+import com.jchacon.banking.frauddetection.model.ProcessTransactionResponseDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * In-process single-flight for transaction ids. A switch retry that reaches the same pod while the
+ * first attempt is still running subscribes to that attempt's result instead of going through Redis,
+ * Postgres and the limit update again.
+ *
+ * Entries live only while the attempt runs and are removed when it completes or fails, so errors are
+ * never replayed to later retries. Past max-keys concurrent ids new ids run unshared; 0 disables it.
+ */
+@Slf4j
+@Component
+public class TransactionSingleFlight {
+
+    private final Map<String, Mono<ProcessTransactionResponseDTO>> inFlight = new ConcurrentHashMap<>();
+    private final int maxKeys;
+
+    private final Counter leaders;
+    private final Counter coalesced;
+    private final Counter bypassed;
+
+    public TransactionSingleFlight(MeterRegistry meterRegistry,
+                                   @Value("${app.idempotency.single-flight.max-keys:10000}") int maxKeys) {
+        this.maxKeys = maxKeys;
+        this.leaders = Counter.builder("idempotency.singleflight.calls")
+                .description("Transaction requests by single-flight outcome")
+                .tag("result", "leader")
+                .register(meterRegistry);
+        this.coalesced = Counter.builder("idempotency.singleflight.calls")
+                .description("Transaction requests by single-flight outcome")
+                .tag("result", "coalesced")
+                .register(meterRegistry);
+        this.bypassed = Counter.builder("idempotency.singleflight.calls")
+                .description("Transaction requests by single-flight outcome")
+                .tag("result", "bypassed")
+                .register(meterRegistry);
+        Gauge.builder("idempotency.singleflight.in.flight", inFlight, Map::size)
+                .description("Transaction ids currently being processed on this pod")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs the work for the id, or joins the attempt already running for it.
+     * The shared attempt is not cancelled when one caller goes away; it runs to completion for the others.
+     */
+    public Mono<ProcessTransactionResponseDTO> execute(String transactionId, Supplier<Mono<ProcessTransactionResponseDTO>> work) {
+        return Mono.defer(() -> {
+            Mono<ProcessTransactionResponseDTO> running = inFlight.get(transactionId);
+            if (running != null) {
+                coalesced.increment();
+                log.warn("Idempotency Triggered (Single-flight): Joining the running attempt for {}", transactionId);
+                return running;
+            }
+            if (inFlight.size() >= maxKeys) {
+                bypassed.increment();
+                return work.get();
+            }
+            AtomicReference<Mono<ProcessTransactionResponseDTO>> self = new AtomicReference<>();
+            Mono<ProcessTransactionResponseDTO> attempt = Mono.defer(work)
+                    .doFinally(signal -> inFlight.remove(transactionId, self.get()))
+                    .cache();
+            self.set(attempt);
+            running = inFlight.putIfAbsent(transactionId, attempt);
+            if (running != null) {
+                coalesced.increment();
+                return running;
+            }
+            leaders.increment();
+            return attempt;
+        });
+    }
+
+    int inFlightCount() {
+        return inFlight.size();
+    }
+}
@@ -0,0 +1,108 @@
+package com.jchacon.banking.frauddetection.ledger;
+
+import com.jchacon.banking.frauddetection.model.LimitReservation;
+import com.jchacon.banking.frauddetection.model.Money;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Limit state of one customer inside a ledger shard.
+ * Only ever touched by the owning shard's writer thread, so it needs no synchronization.
+ * Amounts are held as {@link Money} units, so a decision is a long add and compare.
+ */
+public final class LedgerEntry {
+
+    private final String customerId;
+    private final BigDecimal dailyMaxAmount;
+    private final long dailyMaxUnits;
+    private long currentDailySpent;
+    private LocalDateTime lastReset;
+    // Amount applied in memory but not yet flushed to customer_limits
+    private long pendingDelta;
+    // Rolled over in memory but not yet flushed, the next flush must overwrite instead of add
+    private boolean pendingReset;
+    // Bumped on every rollover so deltas of the previous day are never restored into the new one
+    private int resetGeneration;
+    private long lastTouchedNanos;
+
+    /**
+     * @param currentDailySpent seed from loadLedgerSeed; for a row not reset since dayStart it only holds
+     *                          the approvals since dayStart
+     */
+    public LedgerEntry(String customerId, BigDecimal dailyMaxAmount, BigDecimal currentDailySpent,
+                       LocalDateTime lastReset, LocalDateTime dayStart, LocalDateTime now, long nowNanos) {
+        this.customerId = customerId;
+        this.dailyMaxAmount = dailyMaxAmount;
+        this.dailyMaxUnits = Money.toUnits(dailyMaxAmount);
+        this.lastReset = lastReset;
+        this.lastTouchedNanos = nowNanos;
+        long seeded = currentDailySpent != null ? Money.toUnits(currentDailySpent) : 0L;
+        if (lastReset == null || lastReset.isBefore(dayStart)) {
+            // Stale checkpoint (e.g. crash before the first flush of the day): roll over now, keeping today's
+            // approvals, and let the next flush overwrite the stored amount with them
+            rollover(now);
+            pendingDelta = seeded;
+        }
+        this.currentDailySpent = seeded;
+    }
+
+    public LimitReservation reserve(long amount, LocalDateTime dayStart, LocalDateTime now, long nowNanos) {
+        lastTouchedNanos = nowNanos;
+        if (lastReset == null || lastReset.isBefore(dayStart)) {
+            rollover(now);
+        }
+        long projectedSpent = Math.addExact(currentDailySpent, amount);
+        boolean approved = projectedSpent <= dailyMaxUnits;
+        if (approved) {
+            currentDailySpent = projectedSpent;
+            pendingDelta += amount;
+        }
+        return LimitReservation.builder()
+                .customerId(customerId)
+                .dailyMaxAmount(dailyMaxAmount)
+                .projectedSpent(Money.toDecimal(projectedSpent))
+                .approved(approved)
+                .build();
+    }
+
+    void release(long amount, long nowNanos) {
+        lastTouchedNanos = nowNanos;
+        currentDailySpent -= amount;
+        pendingDelta -= amount;
+    }
+
+    private void rollover(LocalDateTime now) {
+        currentDailySpent = 0L;
+        pendingDelta = 0L; // Unflushed spend of the previous day no longer matters
+        pendingReset = true;
+        lastReset = now;
+        resetGeneration++;
+    }
+
+    /**
+     * Hands the pending delta over to a flush and starts a new one.
+     */
+    LedgerShard.LedgerDelta takePendingDelta() {
+        LedgerShard.LedgerDelta delta = new LedgerShard.LedgerDelta(customerId, pendingDelta, pendingReset, resetGeneration);
+        pendingDelta = 0L;
+        pendingReset = false;
+        return delta;
+    }
+
+    void restorePendingDelta(LedgerShard.LedgerDelta delta) {
+        if (delta.resetGeneration() != resetGeneration) {
+            return; // Rolled over since the drain, the failed delta belongs to the previous day
+        }
+        pendingDelta += delta.amount();
+        pendingReset = pendingReset || delta.reset();
+    }
+
+    boolean isDirty() {
+        return pendingReset || pendingDelta != 0L;
+    }
+
+    boolean isIdleSince(long cutoffNanos) {
+        return lastTouchedNanos - cutoffNanos < 0;
+    }
+}
@@ -0,0 +1,110 @@
+package com.jchacon.banking.frauddetection.ledger;
+
+import com.jchacon.banking.frauddetection.entity.CustomerLimitEntity;
+import com.jchacon.banking.frauddetection.model.LimitReservation;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One stripe of the ledger. All reads and writes of its entries run on a single dedicated thread,
+ * which gives single-writer semantics without locks.
+ */
+final class LedgerShard {
+
+    private final Scheduler writer;
+    private final Map<String, LedgerEntry> entries = new HashMap<>();
+
+    LedgerShard(int index) {
+        this.writer = Schedulers.newSingle("limit-ledger-" + index, true);
+    }
+
+    /**
+     * Reserves against an already loaded customer. Emits nothing when the customer is not in memory yet.
+     */
+    Mono<LimitReservation> reserve(String customerId, long amount, LocalDateTime dayStart, LocalDateTime now) {
+        return Mono.fromCallable(() -> {
+            LedgerEntry entry = entries.get(customerId);
+            return entry != null ? entry.reserve(amount, dayStart, now, System.nanoTime()) : null;
+        }).subscribeOn(writer);
+    }
+
+    /**
+     * Installs a freshly loaded customer and reserves against it.
+     * If a concurrent load won the race, its entry is kept and the seed is discarded.
+     */
+    Mono<LimitReservation> seedAndReserve(CustomerLimitEntity seed, long amount, LocalDateTime dayStart, LocalDateTime now) {
+        return Mono.fromCallable(() -> {
+            long nowNanos = System.nanoTime();
+            LedgerEntry entry = entries.computeIfAbsent(seed.getCustomerId(), id ->
+                    new LedgerEntry(id, seed.getDailyMaxAmount(), seed.getCurrentDailySpent(), seed.getLastReset(),
+                            dayStart, now, nowNanos));
+            return entry.reserve(amount, dayStart, now, nowNanos);
+        }).subscribeOn(writer);
+    }
+
+    /**
+     * @return Mono<Boolean> false when the customer is no longer in memory
+     */
+    Mono<Boolean> release(String customerId, long amount) {
+        return Mono.fromCallable(() -> {
+            LedgerEntry entry = entries.get(customerId);
+            if (entry == null) {
+                return false;
+            }
+            entry.release(amount, System.nanoTime());
+            return true;
+        }).subscribeOn(writer);
+    }
+
+    /**
+     * Collects the pending delta of every dirty customer and evicts clean customers idle since the cutoff.
+     */
+    Mono<List<LedgerDelta>> drain(long idleCutoffNanos) {
+        return Mono.fromCallable(() -> {
+            List<LedgerDelta> deltas = new ArrayList<>();
+            Iterator<Map.Entry<String, LedgerEntry>> iterator = entries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<String, LedgerEntry> next = iterator.next();
+                LedgerEntry entry = next.getValue();
+                if (entry.isDirty()) {
+                    deltas.add(entry.takePendingDelta());
+                } else if (entry.isIdleSince(idleCutoffNanos)) {
+                    iterator.remove();
+                }
+            }
+            return deltas;
+        }).subscribeOn(writer);
+    }
+
+    /**
+     * Puts back deltas whose flush failed so the next flush retries them.
+     */
+    Mono<Void> restore(List<LedgerDelta> deltas) {
+        return Mono.fromRunnable(() -> deltas.forEach(delta -> {
+            LedgerEntry entry = entries.get(delta.customerId());
+            if (entry != null) {
+                entry.restorePendingDelta(delta);
+            }
+        })).subscribeOn(writer).then();
+    }
+
+    Mono<Integer> size() {
+        return Mono.fromCallable(entries::size).subscribeOn(writer);
+    }
+
+    void dispose() {
+        writer.dispose();
+    }
+
+    // Amount in Money units
+    record LedgerDelta(String customerId, long amount, boolean reset, int resetGeneration) {
+    }
+}
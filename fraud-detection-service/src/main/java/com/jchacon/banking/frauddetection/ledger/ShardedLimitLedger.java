@@ -0,0 +1,162 @@
+package com.jchacon.banking.frauddetection.ledger;
+
+import com.jchacon.banking.frauddetection.config.DailyLimitClock;
+import com.jchacon.banking.frauddetection.model.LimitReservation;
+import com.jchacon.banking.frauddetection.model.Money;
+import com.jchacon.banking.frauddetection.repository.CustomerLimitRepository;
+import com.jchacon.banking.frauddetection.service.LimitService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Ledger mode: customer limits live in memory, striped by customer hash across single-writer shards.
+ * Decisions never wait on Postgres once a customer is loaded; the approved amounts are flushed to
+ * customer_limits in coalesced batches (one UPDATE per flush for all dirty customers).
+ *
+ * Crash recovery: every approval still inserts its transactions row in the request's DB transaction,
+ * so customer_limits may only lag by the last flush window. A customer loaded after a restart is seeded
+ * from the larger of current_daily_spent and the sum of APPROVED transactions since the start of the day.
+ *
+ * Requires customers to be routed to one node at a time (sticky routing by customerId),
+ * otherwise each node only sees its own reservations.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "app.limits.ledger.enabled", havingValue = "true")
+public class ShardedLimitLedger implements LimitService {
+
+    private final CustomerLimitRepository customerLimitRepository;
+    private final DailyLimitClock dailyLimitClock;
+    private final LedgerShard[] shards;
+    private final int shardMask;
+    private final Duration idleTimeout;
+    private final AtomicBoolean flushing = new AtomicBoolean(false);
+
+    public ShardedLimitLedger(CustomerLimitRepository customerLimitRepository,
+                              DailyLimitClock dailyLimitClock,
+                              @Value("${app.limits.ledger.shards:16}") int shardCount,
+                              @Value("${app.limits.ledger.idle-timeout:10m}") Duration idleTimeout) {
+        this.customerLimitRepository = customerLimitRepository;
+        this.dailyLimitClock = dailyLimitClock;
+        this.idleTimeout = idleTimeout;
+        // Power of two so the shard can be picked with a mask
+        int size = shardCount <= 1 ? 1 : Integer.highestOneBit(shardCount - 1) << 1;
+        this.shards = new LedgerShard[size];
+        for (int i = 0; i < size; i++) {
+            shards[i] = new LedgerShard(i);
+        }
+        this.shardMask = size - 1;
+        log.info("Limit ledger enabled with {} shards", size);
+    }
+
+    @Override
+    public Mono<LimitReservation> reserve(String customerId, BigDecimal amount) {
+        LedgerShard shard = shardFor(customerId);
+        long units = Money.toUnits(amount);
+        // One clock read per reservation, the day start is derived from it
+        LocalDateTime now = dailyLimitClock.now();
+        LocalDateTime dayStart = dailyLimitClock.dayStartOf(now);
+        // A customer not reset since dayStart is rolled over in memory on this first touch
+        return shard.reserve(customerId, units, dayStart, now)
+                // Cold customer: load it once, then decide on the shard thread
+                .switchIfEmpty(Mono.defer(() -> customerLimitRepository.loadLedgerSeed(customerId, dayStart)
+                        .flatMap(seed -> shard.seedAndReserve(seed, units, dayStart, now))))
+                // Leave the shard thread free for the next decision
+                .publishOn(Schedulers.parallel());
+    }
+
+    @Override
+    public Mono<Void> release(String customerId, BigDecimal amount) {
+        return shardFor(customerId).release(customerId, Money.toUnits(amount))
+                .flatMap(released -> {
+                    if (released) {
+                        return Mono.<Void>empty();
+                    }
+                    log.warn("Ledger entry for customer {} was evicted, releasing directly in DB", customerId);
+                    return customerLimitRepository.applyLedgerDeltas(new String[]{customerId},
+                                    new BigDecimal[]{amount.negate()}, new Boolean[]{false}, dailyLimitClock.now())
+                            .then();
+                });
+    }
+
+    /**
+     * Write-behind: pushes the coalesced deltas of all shards to customer_limits.
+     */
+    @Scheduled(fixedDelayString = "${app.limits.ledger.flush-ms:200}")
+    public void scheduledFlush() {
+        flush().subscribe();
+    }
+
+    public Mono<Void> flush() {
+        return Mono.defer(() -> {
+            if (!flushing.compareAndSet(false, true)) {
+                return Mono.empty(); // A flush is already running, the next one picks up the rest
+            }
+            long idleCutoff = System.nanoTime() - idleTimeout.toNanos();
+            return Flux.fromArray(shards)
+                    .flatMap(shard -> shard.drain(idleCutoff).map(deltas -> Map.entry(shard, deltas)))
+                    .filter(drained -> !drained.getValue().isEmpty())
+                    .collectList()
+                    .filter(drained -> !drained.isEmpty())
+                    .flatMap(drained -> write(drained.stream().flatMap(entry -> entry.getValue().stream()).toList())
+                            .onErrorResume(e -> {
+                                log.error("Ledger flush failed, deltas kept for the next attempt: {}", e.getMessage());
+                                return Flux.fromIterable(drained)
+                                        .flatMap(entry -> entry.getKey().restore(entry.getValue()))
+                                        .then();
+                            }))
+                    // Released before completion is signalled so a caller can chain the next flush right away
+                    .doOnTerminate(() -> flushing.set(false))
+                    .doOnCancel(() -> flushing.set(false));
+        });
+    }
+
+    private Mono<Void> write(List<LedgerShard.LedgerDelta> deltas) {
+        String[] customerIds = new String[deltas.size()];
+        BigDecimal[] amounts = new BigDecimal[deltas.size()];
+        Boolean[] resets = new Boolean[deltas.size()];
+        for (int i = 0; i < deltas.size(); i++) {
+            customerIds[i] = deltas.get(i).customerId();
+            amounts[i] = Money.toDecimal(deltas.get(i).amount());
+            resets[i] = deltas.get(i).reset();
+        }
+        return customerLimitRepository.applyLedgerDeltas(customerIds, amounts, resets, dailyLimitClock.now())
+                .doOnSuccess(rows -> log.debug("Ledger flush: {} customers written", rows))
+                .then();
+    }
+
+    /**
+     * Number of customers currently held in memory.
+     */
+    public Mono<Integer> size() {
+        return Flux.fromArray(shards).flatMap(LedgerShard::size).reduce(0, Integer::sum);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Last flush so a graceful stop never depends on the recovery path
+        flush().block(Duration.ofSeconds(5));
+        for (LedgerShard shard : shards) {
+            shard.dispose();
+        }
+    }
+
+    private LedgerShard shardFor(String customerId) {
+        int hash = customerId.hashCode();
+        return shards[(hash ^ (hash >>> 16)) & shardMask];
+    }
+}
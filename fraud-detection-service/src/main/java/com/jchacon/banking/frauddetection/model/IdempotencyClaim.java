@@ -0,0 +1,29 @@
+package com.jchacon.banking.frauddetection.model;
+
+/**
+ * Outcome of an atomic idempotency claim on a transaction id.
+ * Exactly one request gets CLAIMED for an id; concurrent ones see IN_FLIGHT until the
+ * owner stores its response, and later ones get the stored response as COMPLETED.
+ *
+ * @param token identifies the owner's claim so only the owner can release it (null when Redis was unavailable)
+ */
+public record IdempotencyClaim(State state, String token, ProcessTransactionResponseDTO response) {
+
+    public enum State {
+        CLAIMED,
+        IN_FLIGHT,
+        COMPLETED
+    }
+
+    public static IdempotencyClaim claimed(String token) {
+        return new IdempotencyClaim(State.CLAIMED, token, null);
+    }
+
+    public static IdempotencyClaim inFlight() {
+        return new IdempotencyClaim(State.IN_FLIGHT, null, null);
+    }
+
+    public static IdempotencyClaim completed(ProcessTransactionResponseDTO response) {
+        return new IdempotencyClaim(State.COMPLETED, null, response);
+    }
+}
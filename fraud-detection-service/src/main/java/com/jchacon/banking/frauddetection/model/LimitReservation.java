@@ -0,0 +1,33 @@
+package com.jchacon.banking.frauddetection.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.relational.core.mapping.Column;
+
+import java.math.BigDecimal;
+
+/**
+ * Result of a conditional limit reservation against customer_limits.
+ * Holds the decision and the spent amount seen by the same statement that took it.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LimitReservation {
+
+    @Column("customer_id")
+    private String customerId;
+
+    @Column("daily_max_amount")
+    private BigDecimal dailyMaxAmount;
+
+    // New balance when approved, attempted balance when rejected
+    @Column("projected_spent")
+    private BigDecimal projectedSpent;
+
+    @Column("approved")
+    private boolean approved;
+}
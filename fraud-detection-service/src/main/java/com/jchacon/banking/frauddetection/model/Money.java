@@ -0,0 +1,28 @@
+package com.jchacon.banking.frauddetection.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Money as a scaled long: the amount times 10^4, the scale of the DECIMAL(18,4) columns.
+ * BigDecimal is converted once at the edges (request, DB row); decisions add and compare plain longs.
+ * Extra decimals are rounded half up, as Postgres does when it stores the amount.
+ */
+public final class Money {
+
+    public static final int SCALE = 4;
+
+    private Money() {
+    }
+
+    /**
+     * @throws ArithmeticException if the amount does not fit in a long (far above DECIMAL(18,4))
+     */
+    public static long toUnits(BigDecimal amount) {
+        return amount.setScale(SCALE, RoundingMode.HALF_UP).movePointRight(SCALE).longValueExact();
+    }
+
+    public static BigDecimal toDecimal(long units) {
+        return BigDecimal.valueOf(units, SCALE);
+    }
+}
@@ -0,0 +1,25 @@
+package com.jchacon.banking.frauddetection.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.relational.core.mapping.Column;
+
+import java.time.LocalDateTime;
+
+/**
+ * Business id and insert time of a recorded transaction, used to rebuild the idempotency filter.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecentTransactionId {
+
+    @Column("transaction_id")
+    private String transactionId;
+
+    @Column("created_at")
+    private LocalDateTime createdAt;
+}
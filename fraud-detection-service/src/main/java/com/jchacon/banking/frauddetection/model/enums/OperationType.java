@@ -2,10 +2,30 @@ package com.jchacon.banking.frauddetection.model.enums;
 
 import lombok.Getter;
 
+import java.util.Locale;
+import java.util.Map;
+
 @Getter
 public enum OperationType {
     DEBIT,
     CREDIT,
     TRANSFER,
     CASH_WITHDRAWAL;
-}
\ No newline at end of file
+
+    // Resolved once, valueOf(toUpperCase()) copied the string on every request
+    private static final Map<String, OperationType> BY_NAME = Map.of(
+            DEBIT.name(), DEBIT,
+            CREDIT.name(), CREDIT,
+            TRANSFER.name(), TRANSFER,
+            CASH_WITHDRAWAL.name(), CASH_WITHDRAWAL);
+
+    /**
+     * Case-insensitive lookup; only non-canonical input pays for the upper-case copy.
+     *
+     * @throws IllegalArgumentException if the value is not an operation type
+     */
+    public static OperationType resolve(String value) {
+        OperationType type = BY_NAME.get(value);
+        return type != null ? type : valueOf(value.toUpperCase(Locale.ROOT));
+    }
+}
@@ -8,6 +8,7 @@ public enum TransactionStatus {
     REJECTED_LIMIT("REJECTED", "51"),
     REJECTED_FRAUD("REJECTED", "34"),
     ERROR_SYSTEM("ERROR", "96"),
+    DUPLICATE_IN_PROGRESS("ERROR", "94"),
     CUSTOMER_NOT_FOUND("ERROR", "14");
 
     private final String description;
@@ -0,0 +1,59 @@
+package com.jchacon.banking.frauddetection.outbox;
+
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Binary form of Kafka record headers for the outbox_events.headers column:
+ * per header an int key length, the UTF-8 key, an int value length (-1 for null) and the value bytes.
+ */
+public final class OutboxHeaders {
+
+    private OutboxHeaders() {
+    }
+
+    public static byte[] encode(Headers headers) {
+        int size = 0;
+        for (Header header : headers) {
+            size += 8 + header.key().getBytes(StandardCharsets.UTF_8).length + (header.value() == null ? 0 : header.value().length);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        for (Header header : headers) {
+            byte[] key = header.key().getBytes(StandardCharsets.UTF_8);
+            buffer.putInt(key.length).put(key);
+            if (header.value() == null) {
+                buffer.putInt(-1);
+            } else {
+                buffer.putInt(header.value().length).put(header.value());
+            }
+        }
+        return buffer.array();
+    }
+
+    /**
+     * @param data column value, null or empty when the row has no headers
+     */
+    public static Headers decode(byte[] data) {
+        RecordHeaders headers = new RecordHeaders();
+        if (data == null) {
+            return headers;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        while (buffer.hasRemaining()) {
+            byte[] key = new byte[buffer.getInt()];
+            buffer.get(key);
+            int length = buffer.getInt();
+            byte[] value = null;
+            if (length >= 0) {
+                value = new byte[length];
+                buffer.get(value);
+            }
+            headers.add(new String(key, StandardCharsets.UTF_8), value);
+        }
+        return headers;
+    }
+}
@@ -0,0 +1,71 @@
+package com.jchacon.banking.frauddetection.outbox;
+
+import io.r2dbc.postgresql.api.Notification;
+import io.r2dbc.postgresql.api.PostgresqlConnection;
+import io.r2dbc.postgresql.api.PostgresqlResult;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Wrapped;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+
+/**
+ * Listens on the Postgres channel the outbox_events trigger notifies when rows for the relay are committed.
+ * Holds one connection of the pool for as long as it is subscribed (taken from the reserved headroom of
+ * app.stream.reserved-connections) and reconnects with backoff when it is lost.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OutboxNotificationListener {
+
+    static final String CHANNEL = "outbox_events";
+
+    private final ConnectionFactory connectionFactory;
+    private final OutboxRelayProperties properties;
+
+    /**
+     * One element per notification. Never completes while subscribed; never emits when disabled.
+     */
+    public Flux<Notification> notifications() {
+        if (!properties.isListenEnabled()) {
+            return Flux.never();
+        }
+        return Flux.usingWhen(connectionFactory.create(),
+                        this::listen,
+                        connection -> Flux.from(connection.createStatement("UNLISTEN " + CHANNEL).execute())
+                                .then(Mono.from(connection.close()))
+                                .onErrorResume(e -> Mono.from(connection.close())))
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1))
+                        .maxBackoff(Duration.ofSeconds(30))
+                        .doBeforeRetry(signal -> log.warn("Outbox Listener: LISTEN connection lost, reconnecting: {}",
+                                signal.failure().getMessage())));
+    }
+
+    private Flux<Notification> listen(Connection pooled) {
+        Connection connection = unwrap(pooled);
+        if (!(connection instanceof PostgresqlConnection postgres)) {
+            log.warn("Outbox Listener: {} cannot LISTEN, the relay relies on polling", connection.getClass().getSimpleName());
+            return Flux.never();
+        }
+        return postgres.createStatement("LISTEN " + CHANNEL).execute()
+                .flatMap(PostgresqlResult::getRowsUpdated)
+                .doOnComplete(() -> log.info("Outbox Listener: Listening on channel {}", CHANNEL))
+                .thenMany(postgres.getNotifications())
+                // The notification stream ends with its connection; turn that into a reconnect
+                .concatWith(Mono.error(() -> new IllegalStateException("Notification stream closed")));
+    }
+
+    private static Connection unwrap(Connection connection) {
+        while (connection instanceof Wrapped<?> wrapped && wrapped.unwrap() instanceof Connection inner && inner != connection) {
+            connection = inner;
+        }
+        return connection;
+    }
+}
@@ -0,0 +1,209 @@
+package com.jchacon.banking.frauddetection.outbox;
+
+import com.jchacon.banking.frauddetection.entity.OutboxEventEntity;
+import com.jchacon.banking.frauddetection.producer.FraudEventProducer;
+import com.jchacon.banking.frauddetection.repository.OutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.kafka.sender.SenderRecord;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Publishes outbox rows to Kafka. Rows written by the single-transaction path are handed over right
+ * after their commit (fast path); the polling relay is the safety net for whatever that did not confirm.
+ *
+ * Each relay batch is claimed with FOR UPDATE SKIP LOCKED, so any number of
+ * replicas can relay at the same time without sending the same row twice. A batch goes out as one
+ * pipelined stream on the Kafka sender, each record tagged with its outbox id; a batch is settled with
+ * one DELETE for the sent rows and one UPDATE for the failed ones. Rows hold the encoded record, which
+ * is forwarded as-is.
+ */
+@Slf4j
+@Component
+public class OutboxRelay {
+
+    private final OutboxRepository outboxRepository;
+    private final FraudEventProducer fraudEventProducer;
+    private final OutboxRelayProperties properties;
+    // Scheduler ticks do not stack up while a long drain is still running
+    private final AtomicBoolean draining = new AtomicBoolean();
+
+    private final Counter published;
+    private final Counter failed;
+    private final Counter fastPathPublished;
+    private final Counter fastPathFailed;
+    private final DistributionSummary batchSizes;
+    private final Timer fastPathLatency;
+
+    public OutboxRelay(OutboxRepository outboxRepository,
+                       FraudEventProducer fraudEventProducer,
+                       OutboxRelayProperties properties,
+                       MeterRegistry meterRegistry) {
+        this.outboxRepository = outboxRepository;
+        this.fraudEventProducer = fraudEventProducer;
+        this.properties = properties;
+        this.published = eventCounter(meterRegistry, "relay", "published");
+        this.failed = eventCounter(meterRegistry, "relay", "failed");
+        this.fastPathPublished = eventCounter(meterRegistry, "fast_path", "published");
+        this.fastPathFailed = eventCounter(meterRegistry, "fast_path", "failed");
+        this.fastPathLatency = Timer.builder("outbox.fast.path.latency")
+                .description("From commit to Kafka ack on the after-commit path")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("outbox.relay.batch.size")
+                .description("Rows claimed per relay batch")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Claims and publishes batches until one comes back short of batch-size.
+     * @return Mono<Long> rows handled, 0 when a drain was already running on this instance
+     */
+    public Mono<Long> drain() {
+        return Mono.defer(() -> {
+            if (!draining.compareAndSet(false, true)) {
+                return Mono.just(0L);
+            }
+            return Mono.defer(this::relayBatch)
+                    .repeat()
+                    .takeUntil(claimed -> claimed < properties.getBatchSize())
+                    .reduce(0L, Long::sum)
+                    .onErrorResume(e -> {
+                        log.error("Outbox Relay: Drain interrupted: {}", e.getMessage());
+                        return Mono.just(0L);
+                    })
+                    .doFinally(signal -> draining.set(false));
+        });
+    }
+
+    /**
+     * Publishes a freshly committed row without waiting for the next poll. Fire-and-forget: the caller's
+     * response does not wait for Kafka. On success the row is deleted; on failure it is marked FAILED
+     * and the relay retries it. If even that write is lost, the row is claimed after the pending grace.
+     */
+    public void dispatchCommitted(OutboxEventEntity row) {
+        if (row == null || row.getId() == null) {
+            return;
+        }
+        long start = System.nanoTime();
+        publish(row)
+                .flatMap(outcome -> {
+                    if (outcome.sent()) {
+                        fastPathLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                        return outboxRepository.deleteAllByIds(new Long[]{outcome.id()})
+                                .doOnSuccess(rows -> fastPathPublished.increment())
+                                .then();
+                    }
+                    return outboxRepository.markFailed(new Long[]{outcome.id()}, new String[]{outcome.error()},
+                                    properties.getMaxRetries(), LocalDateTime.now())
+                            .doOnSuccess(rows -> fastPathFailed.increment())
+                            .then();
+                })
+                .onErrorResume(e -> {
+                    log.error("Outbox Fast Path: Could not settle ID {}, left to the relay: {}", row.getId(), e.getMessage());
+                    return Mono.empty();
+                })
+                .subscribe();
+    }
+
+    Mono<Long> relayBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        return outboxRepository.claimBatch(properties.getBatchSize(), now.minus(properties.getPendingGrace()),
+                        now.minus(properties.getLease()), now)
+                .collectList()
+                .flatMap(rows -> publishAll(rows).collectList())
+                .flatMap(outcomes -> settle(outcomes).thenReturn((long) outcomes.size()));
+    }
+
+    /**
+     * At most one row per transaction_id per batch, so every record can be in flight at the same time.
+     * Outcomes come back in ack order and are matched to their row by the outbox id.
+     */
+    private Flux<SendOutcome> publishAll(List<OutboxEventEntity> rows) {
+        if (rows.isEmpty()) {
+            return Flux.empty();
+        }
+        Set<Long> unacknowledged = new HashSet<>(rows.stream().map(OutboxEventEntity::getId).toList());
+        return fraudEventProducer.sendAll(Flux.fromIterable(rows)
+                        .map(row -> SenderRecord.create(toRecord(row), row.getId())))
+                .map(result -> {
+                    unacknowledged.remove(result.correlationMetadata());
+                    if (result.exception() == null) {
+                        return new SendOutcome(result.correlationMetadata(), null);
+                    }
+                    log.error("Outbox Relay: Send failed for ID {}: {}", result.correlationMetadata(), result.exception().getMessage());
+                    return new SendOutcome(result.correlationMetadata(), String.valueOf(result.exception().getMessage()));
+                })
+                // The sender itself failed: whatever got no result is handed back as failed too
+                .onErrorResume(e -> {
+                    log.error("Outbox Relay: Batch send aborted, {} rows unacknowledged: {}", unacknowledged.size(), e.getMessage());
+                    return Flux.fromIterable(List.copyOf(unacknowledged))
+                            .map(id -> new SendOutcome(id, String.valueOf(e.getMessage())));
+                });
+    }
+
+    private Mono<SendOutcome> publish(OutboxEventEntity entity) {
+        return Mono.defer(() -> fraudEventProducer.retryFromOutbox(toRecord(entity)))
+                .thenReturn(new SendOutcome(entity.getId(), null))
+                .onErrorResume(e -> {
+                    log.error("Outbox Relay: Send failed for ID {} (TXN {}): {}", entity.getId(), entity.getTransactionId(), e.getMessage());
+                    return Mono.just(new SendOutcome(entity.getId(), String.valueOf(e.getMessage())));
+                });
+    }
+
+    private Mono<Void> settle(List<SendOutcome> outcomes) {
+        if (outcomes.isEmpty()) {
+            return Mono.empty();
+        }
+        batchSizes.record(outcomes.size());
+        Long[] sent = outcomes.stream().filter(SendOutcome::sent).map(SendOutcome::id).toArray(Long[]::new);
+        List<SendOutcome> failures = outcomes.stream().filter(outcome -> !outcome.sent()).toList();
+
+        Mono<Void> delete = sent.length == 0 ? Mono.empty() : outboxRepository.deleteAllByIds(sent)
+                .doOnSuccess(rows -> {
+                    published.increment(sent.length);
+                    log.info("Outbox Relay: {} events published and removed", sent.length);
+                })
+                .then();
+        Mono<Void> reschedule = failures.isEmpty() ? Mono.empty() : outboxRepository.markFailed(
+                        failures.stream().map(SendOutcome::id).toArray(Long[]::new),
+                        failures.stream().map(SendOutcome::error).toArray(String[]::new),
+                        properties.getMaxRetries(),
+                        LocalDateTime.now())
+                .doOnSuccess(rows -> failed.increment(failures.size()))
+                .then();
+        // If settling fails the lease expires and the rows are sent again (at-least-once)
+        return Mono.when(delete, reschedule);
+    }
+
+    private static ProducerRecord<String, byte[]> toRecord(OutboxEventEntity row) {
+        return FraudEventProducer.record(row.getTopic(), row.getMessageKey(), row.getPayload(), OutboxHeaders.decode(row.getHeaders()));
+    }
+
+    private static Counter eventCounter(MeterRegistry meterRegistry, String path, String result) {
+        return Counter.builder("outbox.relay.events")
+                .description("Outbox events handled by the relay")
+                .tag("path", path)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private record SendOutcome(Long id, String error) {
+        boolean sent() {
+            return error == null;
+        }
+    }
+}
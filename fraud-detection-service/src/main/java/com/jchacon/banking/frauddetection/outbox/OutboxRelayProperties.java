@@ -0,0 +1,35 @@
+package com.jchacon.banking.frauddetection.outbox;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Tuning of the outbox relay (app.outbox.relay.*).
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.outbox.relay")
+public class OutboxRelayProperties {
+
+    // Rows claimed per statement; a drain keeps claiming while batches come back full
+    private int batchSize = 200;
+
+    // A claimed row not settled within this time is claimable again; must outlast the producer retries
+    private Duration lease = Duration.ofSeconds(60);
+
+    // A PENDING row is left to the after-commit fast path for this long before the relay takes it over
+    private Duration pendingGrace = Duration.ofSeconds(30);
+
+    // Failed sends before a row is parked as FATAL_ERROR
+    private int maxRetries = 10;
+
+    // Wake the relay on NOTIFY from the outbox_events trigger; polling alone when disabled
+    private boolean listenEnabled = true;
+
+    // Fallback poll interval after a cycle that relayed rows; doubles on every empty cycle up to poll-max
+    private Duration pollMin = Duration.ofMillis(200);
+    private Duration pollMax = Duration.ofSeconds(10);
+}
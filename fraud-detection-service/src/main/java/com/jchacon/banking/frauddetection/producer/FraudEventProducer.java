@@ -4,16 +4,24 @@ package com.jchacon.banking.frauddetection.producer;
 //import com.fasterxml.jackson.databind.ObjectMapper;
 //import com.jchacon.banking.frauddetection.entity.OutboxEventEntity;
 import com.jchacon.banking.frauddetection.event.TransactionEvent;
+import com.jchacon.banking.frauddetection.event.TransactionEventCodec;
+import com.jchacon.banking.frauddetection.model.enums.TransactionStatus;
 //import com.jchacon.banking.frauddetection.model.enums.OutboxEventStatus;
 //import com.jchacon.banking.frauddetection.repository.OutboxRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
 import org.apache.kafka.common.errors.NetworkException;
 import org.apache.kafka.common.errors.TimeoutException;
-import org.springframework.kafka.core.KafkaTemplate;
-import org.springframework.kafka.support.SendResult;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.kafka.sender.KafkaSender;
+import reactor.kafka.sender.SenderRecord;
+import reactor.kafka.sender.SenderResult;
 import reactor.util.retry.Retry;
 
 import java.time.Duration;
@@ -24,17 +32,19 @@ import java.time.Duration;
 @RequiredArgsConstructor
 public class FraudEventProducer {
 
-    private final KafkaTemplate<String, TransactionEvent> kafkaTemplate;
+    private final KafkaSender<String, byte[]> kafkaSender;
     /*private final OutboxRepository outboxRepository;
     private final ObjectMapper objectMapper;*/
 
-    private static final String TOPIC = "fraud-detection-events";
+    public static final String TOPIC = "fraud-detection-events";
+    // Rejections and errors: consumed apart from approval receipts so they never queue behind them
+    public static final String ALERTS_TOPIC = "fraud-detection-alerts";
 
     /**
      * The Producer is now just a worker for the Scheduler.
      */
     public Mono<Void> sendToKafka(TransactionEvent event) {
-        return Mono.fromFuture(() -> kafkaTemplate.send(TOPIC, event.getTransactionId(), event))
+        return send(record(event))
                 .retryWhen(Retry.backoff(2, Duration.ofMillis(200)) // Light retries
                         .filter(this::isRecoverable))
                 .doOnSuccess(result -> log.info("Event sent to Kafka: {}", event.getTransactionId()))
@@ -58,25 +68,62 @@ public class FraudEventProducer {
      * Entry point for the Scheduler. It ONLY tries to send to Kafka.
      * It does NOT save to outbox on failure (the scheduler handles the update).
      */
-    public Mono<Void> retryFromOutbox(TransactionEvent event) {
-        return executeKafkaSend(event).then();
+    public Mono<Void> retryFromOutbox(ProducerRecord<String, byte[]> record) {
+        return executeKafkaSend(record).then();
+    }
+
+    /**
+     * Streams a batch through the shared sender instead of one future per event: sends are pipelined up
+     * to the sender's max-in-flight and the records are only requested as acks free up room.
+     * Emits one result per record in ack order, carrying the record's correlation metadata; a failed send
+     * is reported in its result (exception()) and does not stop the others.
+     */
+    public <T> Flux<SenderResult<T>> sendAll(Flux<SenderRecord<String, byte[], T>> records) {
+        return kafkaSender.send(records);
+    }
+
+    /**
+     * Record from already encoded parts, e.g. an outbox row.
+     * The key is the transactionId so events of a transaction stay ordered.
+     */
+    public static ProducerRecord<String, byte[]> record(String topic, String key, byte[] value, Headers headers) {
+        return new ProducerRecord<>(topic, null, key, value, headers);
+    }
+
+    public static ProducerRecord<String, byte[]> record(TransactionEvent event) {
+        return record(topicFor(event), event.getTransactionId(), TransactionEventCodec.encode(event), new RecordHeaders());
+    }
+
+    /**
+     * Approvals go to fraud-detection-events, everything else (rejections, errors) to fraud-detection-alerts.
+     */
+    public static String topicFor(TransactionEvent event) {
+        return TransactionStatus.APPROVED.getDescription().equals(event.getStatus()) ? TOPIC : ALERTS_TOPIC;
     }
 
     /**
      * Core Kafka logic with retries and jitter.
      */
-    private Mono<SendResult<String, TransactionEvent>> executeKafkaSend(TransactionEvent event) {
-        return Mono.fromFuture(() -> kafkaTemplate.send(TOPIC, event.getTransactionId(), event))
+    private Mono<RecordMetadata> executeKafkaSend(ProducerRecord<String, byte[]> record) {
+        return send(record)
                 .retryWhen(Retry.backoff(3, Duration.ofMillis(500))
                         .jitter(0.75)
                         .filter(this::isRecoverable)
                         .doBeforeRetry(retrySignal -> log.warn("Retrying Kafka send... Attempt: {}",
                                 retrySignal.totalRetries() + 1))
                 )
-                .doOnSuccess(result -> log.info("Event sent to Kafka: {} | Topic: {} | Partition: {}",
-                        event.getTransactionId(),
-                        result.getRecordMetadata().topic(),
-                        result.getRecordMetadata().partition()));
+                .doOnSuccess(metadata -> log.info("Event sent to Kafka: {} | Topic: {} | Partition: {}",
+                        record.key(),
+                        metadata.topic(),
+                        metadata.partition()));
+    }
+
+    private Mono<RecordMetadata> send(ProducerRecord<String, byte[]> record) {
+        return kafkaSender.send(Mono.just(SenderRecord.create(record, record.key())))
+                .next()
+                .flatMap(result -> result.exception() == null
+                        ? Mono.just(result.recordMetadata())
+                        : Mono.error(result.exception()));
     }
 
     /**
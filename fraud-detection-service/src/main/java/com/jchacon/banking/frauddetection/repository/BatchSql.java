@@ -0,0 +1,30 @@
+package com.jchacon.banking.frauddetection.repository;
+
+import org.springframework.r2dbc.core.DatabaseClient;
+
+/**
+ * Helpers to build multi-row INSERT statements with positional Postgres bind markers ($1, $2, ...).
+ */
+final class BatchSql {
+
+    private BatchSql() {
+    }
+
+    static String insert(String prefix, int rows, int columns, String suffix) {
+        StringBuilder sql = new StringBuilder(prefix.length() + rows * columns * 5 + suffix.length());
+        sql.append(prefix);
+        int marker = 1;
+        for (int row = 0; row < rows; row++) {
+            sql.append(row == 0 ? "(" : ", (");
+            for (int column = 0; column < columns; column++) {
+                sql.append(column == 0 ? "$" : ", $").append(marker++);
+            }
+            sql.append(')');
+        }
+        return sql.append(suffix).toString();
+    }
+
+    static DatabaseClient.GenericExecuteSpec bind(DatabaseClient.GenericExecuteSpec spec, int index, Object value, Class<?> type) {
+        return value != null ? spec.bind(index, value) : spec.bindNull(index, type);
+    }
+}
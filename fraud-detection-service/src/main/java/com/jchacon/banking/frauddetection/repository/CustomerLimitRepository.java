@@ -1,10 +1,117 @@
 package com.jchacon.banking.frauddetection.repository;
 
 import com.jchacon.banking.frauddetection.entity.CustomerLimitEntity;
+import com.jchacon.banking.frauddetection.model.LimitReservation;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
 
 @Repository
 public interface CustomerLimitRepository extends ReactiveCrudRepository<CustomerLimitEntity, String> {
     // Extending ReactiveCrudRepository provides methods that return Mono and Flux by default. Non-blocking.
+
+    /**
+     * Reserves the amount against the daily limit in a single statement.
+     * The UPDATE only matches while the new total stays under daily_max_amount, and Postgres
+     * re-checks that condition on the latest row version, so concurrent reservations never overwrite each other.
+     * A row whose last_reset is before dayStart is rolled over in the same statement (lazy daily reset),
+     * stamped with resetAt from the same clock as dayStart rather than the database's CURRENT_TIMESTAMP.
+     * Emits approved=false when the limit would be exceeded and nothing when the customer does not exist.
+     */
+    @Query("""
+            WITH target AS (
+                SELECT customer_id,
+                       daily_max_amount,
+                       CASE WHEN last_reset IS NULL OR last_reset < :dayStart THEN 0
+                            ELSE COALESCE(current_daily_spent, 0) END AS effective_spent
+                FROM customer_limits
+                WHERE customer_id = :customerId
+            ), reserved AS (
+                UPDATE customer_limits c
+                SET current_daily_spent = CASE WHEN c.last_reset IS NULL OR c.last_reset < :dayStart THEN 0
+                                               ELSE COALESCE(c.current_daily_spent, 0) END + :amount,
+                    last_reset = CASE WHEN c.last_reset IS NULL OR c.last_reset < :dayStart THEN :resetAt
+                                      ELSE c.last_reset END
+                FROM target t
+                WHERE c.customer_id = t.customer_id
+                  AND CASE WHEN c.last_reset IS NULL OR c.last_reset < :dayStart THEN 0
+                           ELSE COALESCE(c.current_daily_spent, 0) END + :amount <= c.daily_max_amount
+                RETURNING c.current_daily_spent
+            )
+            SELECT t.customer_id,
+                   t.daily_max_amount,
+                   COALESCE(r.current_daily_spent, t.effective_spent + :amount) AS projected_spent,
+                   r.current_daily_spent IS NOT NULL AS approved
+            FROM target t
+            LEFT JOIN reserved r ON TRUE
+            """)
+    Mono<LimitReservation> reserveLimit(String customerId, BigDecimal amount, LocalDateTime dayStart, LocalDateTime resetAt);
+
+    /**
+     * Loads a customer for the in-memory ledger.
+     * customer_limits is only a write-behind checkpoint in ledger mode, while every approval is recorded
+     * synchronously in transactions. Both are read for the current limit day only, i.e. since dayStart:
+     * the seed takes the larger of the checkpoint and the APPROVED transactions created since dayStart,
+     * so a crash before the last flush can never give spent amount back to the customer.
+     * A row not reset since dayStart (e.g. a crash before the first flush of the day) holds an earlier day's
+     * spend, so only the approvals since dayStart are used and the rollover on load keeps just those.
+     */
+    @Query("""
+            SELECT cl.customer_id,
+                   cl.daily_max_amount,
+                   CASE WHEN cl.last_reset IS NULL OR cl.last_reset < :dayStart
+                        THEN COALESCE(SUM(t.amount), 0)
+                        ELSE GREATEST(COALESCE(cl.current_daily_spent, 0), COALESCE(SUM(t.amount), 0))
+                   END AS current_daily_spent,
+                   cl.last_reset
+            FROM customer_limits cl
+            LEFT JOIN transactions t
+                   ON t.customer_id = cl.customer_id
+                  AND t.status = 'APPROVED'
+                  AND t.created_at >= :dayStart
+            WHERE cl.customer_id = :customerId
+            GROUP BY cl.customer_id, cl.daily_max_amount, cl.current_daily_spent, cl.last_reset
+            """)
+    Mono<CustomerLimitEntity> loadLedgerSeed(String customerId, LocalDateTime dayStart);
+
+    /**
+     * Applies the coalesced ledger deltas of many customers in one statement.
+     * All arrays are aligned by position. A customer flagged in resets was rolled over in memory,
+     * so its delta replaces the stored amount instead of adding to it.
+     */
+    @Modifying
+    @Query("""
+            UPDATE customer_limits c
+            SET current_daily_spent = CASE WHEN d.reset THEN d.delta
+                                           ELSE COALESCE(c.current_daily_spent, 0) + d.delta END,
+                last_reset = CASE WHEN d.reset THEN :resetAt ELSE c.last_reset END
+            FROM unnest(:customerIds, :deltas, :resets) AS d(customer_id, delta, reset)
+            WHERE c.customer_id = d.customer_id
+            """)
+    Mono<Integer> applyLedgerDeltas(String[] customerIds, BigDecimal[] deltas, Boolean[] resets, LocalDateTime resetAt);
+
+    /**
+     * Rolls over one page of customers whose last_reset is before dayStart.
+     * SKIP LOCKED leaves rows that are busy with a reservation alone; they roll over lazily on that reservation.
+     * @return Mono<Integer> number of customers reset in this page
+     */
+    @Modifying
+    @Query("""
+            UPDATE customer_limits
+            SET current_daily_spent = 0,
+                last_reset = :resetAt
+            WHERE customer_id IN (
+                SELECT customer_id
+                FROM customer_limits
+                WHERE last_reset IS NULL OR last_reset < :dayStart
+                LIMIT :pageSize
+                FOR UPDATE SKIP LOCKED
+            )
+            """)
+    Mono<Integer> resetStaleLimits(LocalDateTime dayStart, LocalDateTime resetAt, int pageSize);
 }
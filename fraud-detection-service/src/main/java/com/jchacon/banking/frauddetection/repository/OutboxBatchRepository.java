@@ -0,0 +1,18 @@
+package com.jchacon.banking.frauddetection.repository;
+
+import com.jchacon.banking.frauddetection.entity.OutboxEventEntity;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Bulk write operations that Spring Data derived queries cannot express.
+ */
+public interface OutboxBatchRepository {
+
+    /**
+     * Inserts all events with one multi-row INSERT.
+     * @return Mono<Long> number of inserted rows
+     */
+    Mono<Long> insertAll(List<OutboxEventEntity> events);
+}
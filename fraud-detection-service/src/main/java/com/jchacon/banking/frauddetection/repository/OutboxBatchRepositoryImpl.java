@@ -0,0 +1,41 @@
+package com.jchacon.banking.frauddetection.repository;
+
+import com.jchacon.banking.frauddetection.entity.OutboxEventEntity;
+import lombok.RequiredArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@RequiredArgsConstructor
+class OutboxBatchRepositoryImpl implements OutboxBatchRepository {
+
+    private static final String INSERT_PREFIX = """
+            INSERT INTO outbox_events (transaction_id, payload, message_key, topic, headers, status, retry_count, created_at, updated_at)
+            VALUES\s""";
+    private static final int COLUMNS = 9;
+
+    private final DatabaseClient databaseClient;
+
+    @Override
+    public Mono<Long> insertAll(List<OutboxEventEntity> events) {
+        if (events.isEmpty()) {
+            return Mono.just(0L);
+        }
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(BatchSql.insert(INSERT_PREFIX, events.size(), COLUMNS, ""));
+        int index = 0;
+        for (OutboxEventEntity event : events) {
+            spec = BatchSql.bind(spec, index++, event.getTransactionId(), String.class);
+            spec = BatchSql.bind(spec, index++, event.getPayload(), byte[].class);
+            spec = BatchSql.bind(spec, index++, event.getMessageKey(), String.class);
+            spec = BatchSql.bind(spec, index++, event.getTopic(), String.class);
+            spec = BatchSql.bind(spec, index++, event.getHeaders(), byte[].class);
+            spec = BatchSql.bind(spec, index++, event.getStatus(), String.class);
+            spec = BatchSql.bind(spec, index++, event.getRetryCount(), Integer.class);
+            spec = BatchSql.bind(spec, index++, event.getCreatedAt(), LocalDateTime.class);
+            spec = BatchSql.bind(spec, index++, event.getUpdatedAt(), LocalDateTime.class);
+        }
+        return spec.fetch().rowsUpdated();
+    }
+}
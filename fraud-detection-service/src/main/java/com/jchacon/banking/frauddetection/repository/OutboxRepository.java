@@ -1,16 +1,70 @@
 package com.jchacon.banking.frauddetection.repository;
 
 import com.jchacon.banking.frauddetection.entity.OutboxEventEntity;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
 
 @Repository
-public interface OutboxRepository extends ReactiveCrudRepository<OutboxEventEntity, Long> {
+public interface OutboxRepository extends ReactiveCrudRepository<OutboxEventEntity, Long>, OutboxBatchRepository {
+
+    /**
+     * Claims up to batchSize pending events for this relay by moving them to PROCESSING (a lease).
+     * SKIP LOCKED lets every replica claim concurrently without waiting on or sending each other's rows;
+     * a PROCESSING row whose lease expired (relay died mid-batch) becomes claimable again, and so does a
+     * PENDING row the after-commit fast path has not settled within the grace period.
+     * Only the oldest pending row of a transaction_id is claimable, so rows of one key are published in order.
+     */
+    @Query("""
+            UPDATE outbox_events o
+            SET status = 'PROCESSING',
+                updated_at = :now
+            WHERE o.id IN (
+                SELECT c.id
+                FROM outbox_events c
+                WHERE (c.status = 'FAILED'
+                       OR (c.status = 'PENDING' AND c.updated_at < :pendingBefore)
+                       OR (c.status = 'PROCESSING' AND c.updated_at < :leaseExpiredBefore))
+                  AND NOT EXISTS (
+                      SELECT 1
+                      FROM outbox_events p
+                      WHERE p.transaction_id = c.transaction_id
+                        AND p.id < c.id
+                        AND p.status IN ('PENDING', 'FAILED', 'PROCESSING'))
+                ORDER BY c.id
+                LIMIT :batchSize
+                FOR UPDATE SKIP LOCKED
+            )
+            RETURNING o.*
+            """)
+    Flux<OutboxEventEntity> claimBatch(int batchSize, LocalDateTime pendingBefore, LocalDateTime leaseExpiredBefore,
+                                       LocalDateTime now);
+
+    /**
+     * Removes the published events of a batch in one statement.
+     */
+    @Modifying
+    @Query("DELETE FROM outbox_events WHERE id = ANY(:ids)")
+    Mono<Integer> deleteAllByIds(Long[] ids);
 
     /**
-     * Search for events by state (e.g., 'FAILED') to be processed by the Scheduler.
-     * Spring Data R2DBC will handle the "ORDER BY created_at ASC" logic
+     * Hands failed events back to the relay in one statement. ids and errors are aligned by position;
+     * an event that reaches maxRetries is parked as FATAL_ERROR for manual intervention.
      */
-    Flux<OutboxEventEntity> findByStatusOrderByCreatedAtAsc(String status);
-}
\ No newline at end of file
+    @Modifying
+    @Query("""
+            UPDATE outbox_events o
+            SET retry_count = COALESCE(o.retry_count, 0) + 1,
+                status = CASE WHEN COALESCE(o.retry_count, 0) + 1 >= :maxRetries THEN 'FATAL_ERROR' ELSE 'FAILED' END,
+                error_message = f.error,
+                updated_at = :now
+            FROM unnest(:ids, :errors) AS f(id, error)
+            WHERE o.id = f.id
+            """)
+    Mono<Integer> markFailed(Long[] ids, String[] errors, int maxRetries, LocalDateTime now);
+}
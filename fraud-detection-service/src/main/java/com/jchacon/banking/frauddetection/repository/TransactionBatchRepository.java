@@ -0,0 +1,18 @@
+package com.jchacon.banking.frauddetection.repository;
+
+import com.jchacon.banking.frauddetection.entity.TransactionEntity;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+/**
+ * Bulk write operations that Spring Data derived queries cannot express.
+ */
+public interface TransactionBatchRepository {
+
+    /**
+     * Inserts all transactions with one multi-row INSERT.
+     * @return Flux<TransactionEntity> the same entities with the generated id and created_at set
+     */
+    Flux<TransactionEntity> insertAll(List<TransactionEntity> transactions);
+}
@@ -0,0 +1,65 @@
+package com.jchacon.banking.frauddetection.repository;
+
+import com.jchacon.banking.frauddetection.entity.TransactionEntity;
+import lombok.RequiredArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+@RequiredArgsConstructor
+class TransactionBatchRepositoryImpl implements TransactionBatchRepository {
+
+    private static final String INSERT_PREFIX = """
+            INSERT INTO transactions (transaction_id, correlation_id, account_id, customer_id, amount, currency,
+                                      operation_type, merchant_id, merchant_name, mcc, terminal_id, ip_address,
+                                      channel, status, response_code, description)
+            VALUES\s""";
+    private static final int COLUMNS = 16;
+
+    private final DatabaseClient databaseClient;
+
+    @Override
+    public Flux<TransactionEntity> insertAll(List<TransactionEntity> transactions) {
+        if (transactions.isEmpty()) {
+            return Flux.empty();
+        }
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(BatchSql.insert(INSERT_PREFIX, transactions.size(), COLUMNS,
+                " RETURNING transaction_id, id, created_at"));
+        int index = 0;
+        for (TransactionEntity t : transactions) {
+            spec = BatchSql.bind(spec, index++, t.getTransactionId(), String.class);
+            spec = BatchSql.bind(spec, index++, t.getCorrelationId(), String.class);
+            spec = BatchSql.bind(spec, index++, t.getAccountId(), String.class);
+            spec = BatchSql.bind(spec, index++, t.getCustomerId(), String.class);
+            spec = BatchSql.bind(spec, index++, t.getAmount(), BigDecimal.class);
+            spec = BatchSql.bind(spec, index++, t.getCurrency(), String.class);
+            spec = BatchSql.bind(spec, index++, t.getOperationType(), String.class);
+            spec = BatchSql.bind(spec, index++, t.getMerchantId(), String.class);
+            spec = BatchSql.bind(spec, index++, t.getMerchantName(), String.class);
+            spec = BatchSql.bind(spec, index++, t.getMcc(), String.class);
+            spec = BatchSql.bind(spec, index++, t.getTerminalId(), String.class);
+            spec = BatchSql.bind(spec, index++, t.getIpAddress(), String.class);
+            spec = BatchSql.bind(spec, index++, t.getChannel(), String.class);
+            spec = BatchSql.bind(spec, index++, t.getStatus(), String.class);
+            spec = BatchSql.bind(spec, index++, t.getResponseCode(), String.class);
+            spec = BatchSql.bind(spec, index++, t.getDescription(), String.class);
+        }
+
+        // RETURNING order is not guaranteed, match the generated values back by business id
+        Map<String, TransactionEntity> byTransactionId = new HashMap<>(transactions.size() * 2);
+        transactions.forEach(t -> byTransactionId.put(t.getTransactionId(), t));
+        return spec.map((row, metadata) -> {
+                    TransactionEntity entity = byTransactionId.get(row.get("transaction_id", String.class));
+                    entity.setId(row.get("id", UUID.class));
+                    entity.setCreatedAt(row.get("created_at", LocalDateTime.class));
+                    return entity;
+                })
+                .all();
+    }
+}
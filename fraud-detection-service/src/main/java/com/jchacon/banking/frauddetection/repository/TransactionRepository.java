@@ -1,15 +1,19 @@
 package com.jchacon.banking.frauddetection.repository;
 
 import com.jchacon.banking.frauddetection.entity.TransactionEntity;
+import com.jchacon.banking.frauddetection.model.RecentTransactionId;
+import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.UUID;
 
 @Repository
-public interface TransactionRepository extends ReactiveCrudRepository<TransactionEntity, UUID> {
+public interface TransactionRepository extends ReactiveCrudRepository<TransactionEntity, UUID>, TransactionBatchRepository {
 
     // Retrieves the customer's transaction history in a non-blocking manner.
     Flux<TransactionEntity> findAllByCustomerId(String customerId);
@@ -17,4 +21,11 @@ public interface TransactionRepository extends ReactiveCrudRepository<Transactio
     // Finds a transaction by its business ID
     Mono<TransactionEntity> findByTransactionId(String transactionId);
 
+    // Idempotency lookup for a whole batch chunk in one query
+    Flux<TransactionEntity> findAllByTransactionIdIn(Collection<String> transactionIds);
+
+    // Ids recorded within the idempotency TTL, streamed to rebuild the in-memory filter at startup
+    @Query("SELECT transaction_id, created_at FROM transactions WHERE created_at >= :since")
+    Flux<RecentTransactionId> findRecentTransactionIds(LocalDateTime since);
+
 }
@@ -0,0 +1,45 @@
+package com.jchacon.banking.frauddetection.rule;
+
+import com.jchacon.banking.frauddetection.model.ProcessTransactionRequestDTO;
+import com.jchacon.banking.frauddetection.model.enums.TransactionStatus;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Rejects single transactions above the cap configured for their channel (e.g. ATM, WEB).
+ */
+final class ChannelAmountCapRule implements FraudRule {
+
+    static final String NAME = "channel-amount-cap";
+
+    private final RuleResult rejected = RuleResult.reject(NAME, TransactionStatus.REJECTED_FRAUD, "Amount exceeds the maximum allowed for this channel");
+    private final Map<String, BigDecimal> caps;
+
+    ChannelAmountCapRule(Map<String, BigDecimal> channelMaxAmount) {
+        Map<String, BigDecimal> normalized = new HashMap<>();
+        channelMaxAmount.forEach((channel, cap) -> normalized.put(channel.toUpperCase(Locale.ROOT), cap));
+        this.caps = Map.copyOf(normalized);
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public RuleResult evaluate(ProcessTransactionRequestDTO request) {
+        String channel = request.getChannel();
+        if (channel == null || request.getAmount() == null) {
+            return RuleResult.PASS;
+        }
+        BigDecimal cap = caps.get(channel);
+        if (cap == null && !caps.isEmpty()) {
+            // Channels are validated case-insensitively, only non-canonical input pays for the copy
+            cap = caps.get(channel.toUpperCase(Locale.ROOT));
+        }
+        return cap != null && request.getAmount().compareTo(cap) > 0 ? rejected : RuleResult.PASS;
+    }
+}
@@ -0,0 +1,59 @@
+package com.jchacon.banking.frauddetection.rule;
+
+import com.jchacon.banking.frauddetection.model.ProcessTransactionRequestDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Immutable, ready-to-run rule pipeline. Meters are resolved once at compile time,
+ * so evaluation is a plain array walk.
+ */
+final class CompiledRuleSet {
+
+    private final FraudRule[] rules;
+    private final Timer[] latencies;
+    private final Counter[] rejections;
+
+    CompiledRuleSet(List<FraudRule> rules, MeterRegistry meterRegistry) {
+        this.rules = rules.toArray(FraudRule[]::new);
+        this.latencies = new Timer[this.rules.length];
+        this.rejections = new Counter[this.rules.length];
+        for (int i = 0; i < this.rules.length; i++) {
+            String name = this.rules[i].name();
+            latencies[i] = Timer.builder("fraud.rule.latency")
+                    .description("Evaluation time of a single fraud rule")
+                    .tag("rule", name)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+            rejections[i] = Counter.builder("fraud.rule.rejections")
+                    .description("Transactions rejected by a fraud rule")
+                    .tag("rule", name)
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Runs the rules in order and stops at the first reject.
+     */
+    RuleResult evaluate(ProcessTransactionRequestDTO request) {
+        for (int i = 0; i < rules.length; i++) {
+            long start = System.nanoTime();
+            RuleResult result = rules[i].evaluate(request);
+            latencies[i].record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if (result.isRejected()) {
+                rejections[i].increment();
+                return result;
+            }
+        }
+        return RuleResult.PASS;
+    }
+
+    List<String> ruleNames() {
+        return Arrays.stream(rules).map(FraudRule::name).toList();
+    }
+}
@@ -0,0 +1,23 @@
+package com.jchacon.banking.frauddetection.rule;
+
+import com.jchacon.banking.frauddetection.model.ProcessTransactionRequestDTO;
+
+/**
+ * SPI for in-memory fraud rules.
+ * Rules run in order before the daily limit is reserved, so a reject here never reaches customer_limits.
+ * Additional rules can be contributed as Spring beans (ordered with @Order) and are appended
+ * after the configuration-driven ones.
+ */
+public interface FraudRule {
+
+    /**
+     * Stable identifier, used in logs and as the metric tag.
+     */
+    String name();
+
+    /**
+     * Evaluates the request without I/O. Called for every transaction, so implementations
+     * should not allocate on the pass path and must return preallocated results.
+     */
+    RuleResult evaluate(ProcessTransactionRequestDTO request);
+}
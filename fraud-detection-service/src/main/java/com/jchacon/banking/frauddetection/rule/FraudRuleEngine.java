@@ -0,0 +1,63 @@
+package com.jchacon.banking.frauddetection.rule;
+
+import com.jchacon.banking.frauddetection.model.ProcessTransactionRequestDTO;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Rule-engine stage of the evaluation. Holds the compiled rule set and swaps it atomically on reload,
+ * so in-flight evaluations keep the set they started with.
+ *
+ * Order, cheapest first: IP blocklist, MCC blocklist, channel amount caps, then custom FraudRule beans.
+ * The daily limit is the last check and the only one with I/O; it runs in LimitService after this stage.
+ */
+@Slf4j
+@Component
+public class FraudRuleEngine {
+
+    private final MeterRegistry meterRegistry;
+    private final List<FraudRule> customRules;
+    private final AtomicReference<CompiledRuleSet> ruleSet = new AtomicReference<>();
+
+    public FraudRuleEngine(FraudRuleProperties properties, ObjectProvider<FraudRule> customRules, MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.customRules = customRules.orderedStream().toList();
+        reload(properties);
+    }
+
+    public RuleResult evaluate(ProcessTransactionRequestDTO request) {
+        return ruleSet.get().evaluate(request);
+    }
+
+    /**
+     * Compiles a new rule set from the given configuration and publishes it in one step.
+     * An invalid configuration throws and leaves the current set in place.
+     */
+    public void reload(FraudRuleProperties properties) {
+        List<FraudRule> rules = new ArrayList<>();
+        if (!properties.getBlockedIpRanges().isEmpty()) {
+            rules.add(new IpBlocklistRule(properties.getBlockedIpRanges()));
+        }
+        if (!properties.getBlockedMccs().isEmpty()) {
+            rules.add(new MccBlocklistRule(properties.getBlockedMccs()));
+        }
+        if (!properties.getChannelMaxAmount().isEmpty()) {
+            rules.add(new ChannelAmountCapRule(properties.getChannelMaxAmount()));
+        }
+        rules.addAll(customRules);
+
+        CompiledRuleSet compiled = new CompiledRuleSet(rules, meterRegistry);
+        ruleSet.set(compiled);
+        log.info("Fraud rule set loaded: {}", compiled.ruleNames());
+    }
+
+    public List<String> activeRules() {
+        return ruleSet.get().ruleNames();
+    }
+}
@@ -0,0 +1,31 @@
+package com.jchacon.banking.frauddetection.rule;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Source configuration of the rule set (app.rules.*). Compiled into immutable rules by FraudRuleEngine.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.rules")
+public class FraudRuleProperties {
+
+    // IPv4 addresses or CIDR ranges, e.g. 10.0.0.0/8
+    private List<String> blockedIpRanges = new ArrayList<>();
+
+    // ISO 18245 merchant category codes, e.g. 7995 (gambling)
+    private Set<String> blockedMccs = new HashSet<>();
+
+    // Max amount of a single transaction per channel, e.g. ATM=2000
+    private Map<String, BigDecimal> channelMaxAmount = new HashMap<>();
+}
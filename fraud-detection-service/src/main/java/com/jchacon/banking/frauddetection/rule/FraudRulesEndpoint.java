@@ -0,0 +1,37 @@
+package com.jchacon.banking.frauddetection.rule;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Actuator endpoint to inspect and reload the rule set from the current Environment.
+ * Not exposed over HTTP unless listed in management.endpoints.web.exposure.include.
+ */
+@Component
+@RequiredArgsConstructor
+@Endpoint(id = "fraudrules")
+public class FraudRulesEndpoint {
+
+    private final FraudRuleEngine fraudRuleEngine;
+    private final Environment environment;
+
+    @ReadOperation
+    public List<String> rules() {
+        return fraudRuleEngine.activeRules();
+    }
+
+    @WriteOperation
+    public List<String> reload() {
+        FraudRuleProperties properties = Binder.get(environment)
+                .bindOrCreate("app.rules", FraudRuleProperties.class);
+        fraudRuleEngine.reload(properties);
+        return fraudRuleEngine.activeRules();
+    }
+}
@@ -0,0 +1,87 @@
+package com.jchacon.banking.frauddetection.rule;
+
+import com.jchacon.banking.frauddetection.model.ProcessTransactionRequestDTO;
+import com.jchacon.banking.frauddetection.model.enums.TransactionStatus;
+
+import java.util.List;
+
+/**
+ * Rejects transactions coming from blocked IPv4 ranges.
+ * Ranges are compiled to network/mask pairs and the request address is parsed without allocating.
+ */
+final class IpBlocklistRule implements FraudRule {
+
+    static final String NAME = "ip-blocklist";
+
+    private final RuleResult rejected = RuleResult.reject(NAME, TransactionStatus.REJECTED_FRAUD, "Transaction origin is blocked");
+    private final int[] networks;
+    private final int[] masks;
+
+    IpBlocklistRule(List<String> ranges) {
+        this.networks = new int[ranges.size()];
+        this.masks = new int[ranges.size()];
+        for (int i = 0; i < ranges.size(); i++) {
+            String range = ranges.get(i).trim();
+            int slash = range.indexOf('/');
+            int prefix = slash < 0 ? 32 : Integer.parseInt(range.substring(slash + 1));
+            long address = parseIpv4(slash < 0 ? range : range.substring(0, slash));
+            if (address < 0 || prefix < 0 || prefix > 32) {
+                throw new IllegalArgumentException("Invalid IPv4 range in app.rules.blocked-ip-ranges: " + range);
+            }
+            masks[i] = prefix == 0 ? 0 : -1 << (32 - prefix);
+            networks[i] = (int) address & masks[i];
+        }
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public RuleResult evaluate(ProcessTransactionRequestDTO request) {
+        long address = parseIpv4(request.getIpAddress());
+        if (address < 0) {
+            return RuleResult.PASS; // No or non-IPv4 address: nothing to match
+        }
+        for (int i = 0; i < networks.length; i++) {
+            if (((int) address & masks[i]) == networks[i]) {
+                return rejected;
+            }
+        }
+        return RuleResult.PASS;
+    }
+
+    /**
+     * @return the address as an unsigned 32-bit value, or -1 if it is not a dotted IPv4 address
+     */
+    static long parseIpv4(CharSequence ip) {
+        if (ip == null || ip.isEmpty()) {
+            return -1;
+        }
+        long result = 0;
+        int octet = 0;
+        int digits = 0;
+        int dots = 0;
+        for (int i = 0; i < ip.length(); i++) {
+            char c = ip.charAt(i);
+            if (c >= '0' && c <= '9') {
+                octet = octet * 10 + (c - '0');
+                if (++digits > 3 || octet > 255) {
+                    return -1;
+                }
+            } else if (c == '.' && digits > 0 && dots < 3) {
+                result = (result << 8) | octet;
+                octet = 0;
+                digits = 0;
+                dots++;
+            } else {
+                return -1;
+            }
+        }
+        if (dots != 3 || digits == 0) {
+            return -1;
+        }
+        return (result << 8) | octet;
+    }
+}
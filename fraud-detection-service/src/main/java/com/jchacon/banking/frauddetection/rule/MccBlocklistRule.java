@@ -0,0 +1,32 @@
+package com.jchacon.banking.frauddetection.rule;
+
+import com.jchacon.banking.frauddetection.model.ProcessTransactionRequestDTO;
+import com.jchacon.banking.frauddetection.model.enums.TransactionStatus;
+
+import java.util.Set;
+
+/**
+ * Rejects transactions from blocked merchant categories (ISO 18245).
+ */
+final class MccBlocklistRule implements FraudRule {
+
+    static final String NAME = "mcc-blocklist";
+
+    private final RuleResult rejected = RuleResult.reject(NAME, TransactionStatus.REJECTED_FRAUD, "Merchant category is blocked");
+    private final Set<String> blockedMccs;
+
+    MccBlocklistRule(Set<String> blockedMccs) {
+        this.blockedMccs = Set.copyOf(blockedMccs);
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public RuleResult evaluate(ProcessTransactionRequestDTO request) {
+        String mcc = request.getMcc();
+        return mcc != null && blockedMccs.contains(mcc) ? rejected : RuleResult.PASS;
+    }
+}
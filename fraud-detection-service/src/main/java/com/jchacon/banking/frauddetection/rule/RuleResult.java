@@ -0,0 +1,31 @@
+package com.jchacon.banking.frauddetection.rule;
+
+import com.jchacon.banking.frauddetection.model.enums.TransactionStatus;
+import lombok.Getter;
+
+/**
+ * Immutable outcome of a rule. Rules create their reject results once and reuse them.
+ */
+@Getter
+public final class RuleResult {
+
+    public static final RuleResult PASS = new RuleResult(null, null, null);
+
+    private final String ruleName;
+    private final TransactionStatus status;
+    private final String description;
+
+    private RuleResult(String ruleName, TransactionStatus status, String description) {
+        this.ruleName = ruleName;
+        this.status = status;
+        this.description = description;
+    }
+
+    public static RuleResult reject(String ruleName, TransactionStatus status, String description) {
+        return new RuleResult(ruleName, status, description);
+    }
+
+    public boolean isRejected() {
+        return status != null;
+    }
+}
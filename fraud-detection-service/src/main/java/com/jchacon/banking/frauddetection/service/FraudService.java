@@ -2,10 +2,22 @@ package com.jchacon.banking.frauddetection.service;
 
 import com.jchacon.banking.frauddetection.model.ProcessTransactionRequestDTO;
 import com.jchacon.banking.frauddetection.model.ProcessTransactionResponseDTO;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 public interface FraudService {
 
     Mono<ProcessTransactionResponseDTO> processTransaction(ProcessTransactionRequestDTO request);
 
+    /**
+     * Evaluates a stream of transactions and emits one result per item as soon as it is recorded.
+     * Invalid items are reported in the stream instead of failing the whole batch.
+     */
+    Flux<ProcessTransactionResponseDTO> processBatch(Flux<ProcessTransactionRequestDTO> requests);
+
+    /**
+     * Evaluates an unbounded feed item by item, taking new items only as fast as the DB pool allows.
+     */
+    Flux<ProcessTransactionResponseDTO> processStream(Flux<ProcessTransactionRequestDTO> requests);
+
 }
@@ -1,5 +1,6 @@
 package com.jchacon.banking.frauddetection.service;
 
+import com.jchacon.banking.frauddetection.model.IdempotencyClaim;
 import com.jchacon.banking.frauddetection.model.ProcessTransactionResponseDTO;
 import reactor.core.publisher.Mono;
 
@@ -16,6 +17,30 @@ public interface IdempotencyService {
      */
     Mono<ProcessTransactionResponseDTO> getCachedResponse(String key);
 
+    /**
+     * Atomically claims the transaction ID for processing, or returns what is already stored under it.
+     * One round trip replaces the check-then-process lookup, so two concurrent requests can never both own an id.
+     * @param key The transactionId
+     * @return Mono<IdempotencyClaim> CLAIMED, IN_FLIGHT (another request owns it) or COMPLETED with the stored response
+     */
+    Mono<IdempotencyClaim> claim(String key);
+
+    /**
+     * Waits for the request that owns an in-flight claim to store its response.
+     * @param key The transactionId
+     * @return Mono with the owner's response, empty if the claim was released or expired without one,
+     * or a TimeoutException if it is still in flight after the claim TTL
+     */
+    Mono<ProcessTransactionResponseDTO> awaitCompletion(String key);
+
+    /**
+     * Drops the claim after a failed attempt so a retry can process the transaction.
+     * Does nothing if the key no longer holds this claim (response stored, or claim expired and taken over).
+     * @param key The transactionId
+     * @param token The token of the claim to release
+     */
+    Mono<Void> releaseClaim(String key, String token);
+
     /**
      * Saves the full response DTO into Redis with a TTL.
      * @param key The transactionId
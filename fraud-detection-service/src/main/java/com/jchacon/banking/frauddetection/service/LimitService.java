@@ -0,0 +1,19 @@
+package com.jchacon.banking.frauddetection.service;
+
+import com.jchacon.banking.frauddetection.model.LimitReservation;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+
+public interface LimitService {
+    /**
+     * Reserves the amount against the customer's daily limit.
+     * @return Mono<LimitReservation> with approved=false if the limit would be exceeded, empty if the customer does not exist
+     */
+    Mono<LimitReservation> reserve(String customerId, BigDecimal amount);
+
+    /**
+     * Gives back an amount reserved by a transaction that could not be recorded.
+     */
+    Mono<Void> release(String customerId, BigDecimal amount);
+}
@@ -1,67 +1,238 @@
 package com.jchacon.banking.frauddetection.service.impl;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jchacon.banking.frauddetection.config.BatchProcessingProperties;
+import com.jchacon.banking.frauddetection.config.ConnectionPoolBackpressure;
+import com.jchacon.banking.frauddetection.config.DailyLimitClock;
 import com.jchacon.banking.frauddetection.entity.OutboxEventEntity;
 import com.jchacon.banking.frauddetection.model.enums.OutboxEventStatus;
+import com.jchacon.banking.frauddetection.outbox.OutboxRelay;
 import com.jchacon.banking.frauddetection.repository.OutboxRepository;
 import io.micrometer.tracing.Tracer;
 
 import com.jchacon.banking.frauddetection.event.TransactionEvent;
 import com.jchacon.banking.frauddetection.exception.BusinessException;
 import com.jchacon.banking.frauddetection.exception.TechnicalException;
-import com.jchacon.banking.frauddetection.entity.CustomerLimitEntity;
+import com.jchacon.banking.frauddetection.idempotency.TransactionIdFilter;
+import com.jchacon.banking.frauddetection.idempotency.TransactionSingleFlight;
 import com.jchacon.banking.frauddetection.entity.TransactionEntity;
+import com.jchacon.banking.frauddetection.model.IdempotencyClaim;
 import com.jchacon.banking.frauddetection.model.ProcessTransactionRequestDTO;
 import com.jchacon.banking.frauddetection.model.ProcessTransactionResponseDTO;
 import com.jchacon.banking.frauddetection.model.enums.OperationType;
 import com.jchacon.banking.frauddetection.model.enums.TransactionStatus;
-import com.jchacon.banking.frauddetection.producer.FraudEventProducer;
-import com.jchacon.banking.frauddetection.repository.CustomerLimitRepository;
 import com.jchacon.banking.frauddetection.repository.TransactionRepository;
+import com.jchacon.banking.frauddetection.rule.FraudRuleEngine;
+import com.jchacon.banking.frauddetection.rule.RuleResult;
 import com.jchacon.banking.frauddetection.service.FraudService;
 import com.jchacon.banking.frauddetection.service.IdempotencyService;
+import com.jchacon.banking.frauddetection.service.LimitService;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.math.BigDecimal;
 import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.UUID;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
 
 @Slf4j
 @RequiredArgsConstructor
 @Service
 public class FraudServiceImpl implements FraudService {
 
+    // Same response code the API returns for @Valid failures
+    private static final String INVALID_INPUT_CODE = "99";
+    // Times a concurrent duplicate takes over an id whose first request failed before giving up
+    private static final int IN_FLIGHT_ATTEMPTS = 3;
+
     private final TransactionRepository transactionRepository;
-    private final CustomerLimitRepository customerLimitRepository;
+    private final LimitService limitService;
+    private final FraudRuleEngine fraudRuleEngine;
     private final IdempotencyService idempotencyService;
     private final OutboxRepository outboxRepository;
-    private final ObjectMapper objectMapper;
     private final Tracer tracer;
+    private final Validator validator;
+    private final TransactionalOperator transactionalOperator;
+    private final BatchProcessingProperties batchProperties;
+    private final ConnectionPoolBackpressure poolBackpressure;
+    private final TransactionIdFilter transactionIdFilter;
+    private final TransactionSingleFlight singleFlight;
+    private final OutboxRelay outboxRelay;
+    private final DailyLimitClock dailyLimitClock;
 
     /**
      * Entry point for transaction processing.
      * Implements Idempotency to prevent double-spending or duplicate records.
      */
-    @Transactional // Ensures both database operations complete or fail together
     public Mono<ProcessTransactionResponseDTO> processTransaction(ProcessTransactionRequestDTO request) {
+        // Get the current technical Trace ID
+        String activeTraceId = currentTraceId();
+        // Retries racing on this pod share one attempt before any remote call
+        return singleFlight.execute(request.getTransactionId(),
+                () -> processTransaction(request, activeTraceId, IN_FLIGHT_ATTEMPTS));
+    }
+
+    private Mono<ProcessTransactionResponseDTO> processTransaction(ProcessTransactionRequestDTO request, String activeTraceId,
+                                                                   int attemptsLeft) {
         String txnId = request.getTransactionId();
 
-        // Get the current technical Trace ID
-        String activeTraceId = tracer.currentSpan() != null ?
-                tracer.currentSpan().context().traceId() : "N/A";
-
-        // Try to get from Redis Cache (Full JSON)
-        return idempotencyService.getCachedResponse(txnId)
-                .doOnNext(res -> log.warn("Idempotency Triggered (Redis): Returning full cached response for {}", txnId))
-                // If NOT in Redis, check DB (Double check for safety)
-                .switchIfEmpty(Mono.defer(() -> fetchFromDbAndMap(txnId)))
+        // Negative cache: an id the filter has never seen needs the claim only, no DB lookup
+        boolean maybeSeen = transactionIdFilter.mightContain(txnId);
+
+        // Claim the id in Redis, or get what is already stored under it (Full JSON)
+        return idempotencyService.claim(txnId)
+                .flatMap(claim -> switch (claim.state()) {
+                    case COMPLETED -> {
+                        log.warn("Idempotency Triggered (Redis): Returning full cached response for {}", txnId);
+                        yield Mono.just(claim.response());
+                    }
+                    case IN_FLIGHT -> awaitInFlight(request, activeTraceId, attemptsLeft);
+                    case CLAIMED -> processClaimed(request, activeTraceId, claim.token(), maybeSeen);
+                });
+    }
+
+    /**
+     * This request owns the id. Checks the DB (Redis may have expired the response) and processes it otherwise.
+     * The claim is released on failure so a retry does not wait for the in-flight TTL.
+     */
+    private Mono<ProcessTransactionResponseDTO> processClaimed(ProcessTransactionRequestDTO request, String traceId,
+                                                               String claimToken, boolean maybeSeen) {
+        String txnId = request.getTransactionId();
+        // If NOT in Redis, check DB (Double check for safety); a row read back is committed, so it replaces the claim
+        Mono<ProcessTransactionResponseDTO> recorded = maybeSeen
+                ? fetchFromDbAndMap(txnId).flatMap(this::publishCompleted)
+                : Mono.empty();
+        return recorded
                 // If NOT in DB, process normally
-                .switchIfEmpty(Mono.defer(() -> executeProcessing(request, activeTraceId)));
+                .switchIfEmpty(Mono.defer(() -> {
+                    if (maybeSeen) {
+                        transactionIdFilter.recordFalsePositive();
+                    }
+                    return processNewTransaction(request, traceId);
+                }))
+                .onErrorResume(e -> idempotencyService.releaseClaim(txnId, claimToken).then(Mono.error(e)));
+    }
+
+    /**
+     * A concurrent duplicate: waits for the first request's response instead of evaluating again.
+     * If the first request failed (claim released or expired), this one takes over the id.
+     */
+    private Mono<ProcessTransactionResponseDTO> awaitInFlight(ProcessTransactionRequestDTO request, String traceId,
+                                                              int attemptsLeft) {
+        String txnId = request.getTransactionId();
+        log.warn("Idempotency Triggered (In-flight): Waiting for the first request of {}", txnId);
+        return idempotencyService.awaitCompletion(txnId)
+                .switchIfEmpty(Mono.defer(() -> attemptsLeft > 1
+                        ? processTransaction(request, traceId, attemptsLeft - 1)
+                        : Mono.error(inProgress(txnId))))
+                .onErrorMap(TimeoutException.class, e -> inProgress(txnId));
+    }
+
+    private BusinessException inProgress(String txnId) {
+        return new BusinessException(TransactionStatus.DUPLICATE_IN_PROGRESS,
+                "Transaction " + txnId + " is still being processed by another request");
+    }
+
+    /**
+     * Runs the evaluation in its own DB transaction (all writes complete or fail together).
+     * A duplicate that got past the claim (e.g. Redis unavailable) fails on the transaction_id
+     * UNIQUE constraint; once rolled back, the recorded result is returned instead.
+     * Once committed, the outbox row is published right away; the relay only sends it if this does not confirm.
+     * The response replaces the claim (near cache and Redis) only after the commit as well: a failed commit or a
+     * rollback leaves the claim in place, so the caller releases it and a retry processes the id again.
+     */
+    private Mono<ProcessTransactionResponseDTO> processNewTransaction(ProcessTransactionRequestDTO request, String traceId) {
+        String txnId = request.getTransactionId();
+        AtomicReference<OutboxEventEntity> stagedEvent = new AtomicReference<>();
+        // Amount held by an approved reservation until the transaction is fully recorded
+        AtomicReference<BigDecimal> reservedAmount = new AtomicReference<>();
+        return transactionalOperator.transactional(executeProcessing(request, traceId, stagedEvent, reservedAmount))
+                // Give the amount back if the approval could not be recorded. Attached outside transactional():
+                // a failed commit is only signalled after the evaluation itself has completed
+                .doOnError(e -> releaseReservation(request.getCustomerId(), reservedAmount))
+                .doOnCancel(() -> releaseReservation(request.getCustomerId(), reservedAmount))
+                // Emitted only after the commit: the row is durable, so the send cannot outrun the transaction
+                .doOnNext(response -> outboxRelay.dispatchCommitted(stagedEvent.getAndSet(null)))
+                .flatMap(this::publishCompleted)
+                .onErrorResume(e -> e.getCause() instanceof DataIntegrityViolationException, e ->
+                        fetchFromDbAndMap(txnId).flatMap(this::publishCompleted).switchIfEmpty(Mono.error(e)));
+    }
+
+    /**
+     * Replaces the claim with the final response (near cache and Redis). Only called with responses of
+     * committed rows, so waiters and retries are never answered with a result the DB does not hold.
+     */
+    private Mono<ProcessTransactionResponseDTO> publishCompleted(ProcessTransactionResponseDTO response) {
+        return idempotencyService.markAsProcessed(response.getTransactionId(), response).thenReturn(response);
+    }
+
+    /**
+     * Batch entry point. Items of the same customer share a lane and are evaluated in arrival order;
+     * lanes run in parallel. Each lane groups its items into chunks that are written in one DB transaction
+     * with multi-row inserts, and the chunk results are emitted as soon as it commits.
+     */
+    @Override
+    public Flux<ProcessTransactionResponseDTO> processBatch(Flux<ProcessTransactionRequestDTO> requests) {
+        String activeTraceId = currentTraceId();
+        int lanes = batchProperties.getLanes();
+        return requests
+                .groupBy(request -> Math.floorMod(Objects.hashCode(request.getCustomerId()), lanes))
+                // Concurrency equals the number of lanes, so every group is always drained
+                .flatMap(lane -> lane
+                        // Fair backpressure: a chunk closed by the timer waits for demand while the previous
+                        // one is still being written, instead of overflowing the concatMap
+                        .bufferTimeout(batchProperties.getChunkSize(), batchProperties.getChunkWait(), true)
+                        .concatMap(chunk -> processChunk(chunk, activeTraceId)), lanes);
+    }
+
+    /**
+     * Streaming entry point for long-lived NDJSON feeds. Each item runs the single-transaction path;
+     * in-flight items and upstream demand (prefetch 1) are bounded by the stream permits of the DB connection pool.
+     */
+    @Override
+    public Flux<ProcessTransactionResponseDTO> processStream(Flux<ProcessTransactionRequestDTO> requests) {
+        return requests.flatMap(request -> poolBackpressure.withCapacity(Mono.defer(() -> processStreamItem(request))),
+                poolBackpressure.maxInFlight(), 1);
+    }
+
+    private Mono<ProcessTransactionResponseDTO> processStreamItem(ProcessTransactionRequestDTO request) {
+        String txnId = request.getTransactionId();
+        String violations = validate(request);
+        if (violations != null) {
+            log.error("Validation failed for streamed item {}: {}", txnId, violations);
+            return Mono.just(itemError(txnId, INVALID_INPUT_CODE, violations));
+        }
+        return asItemResult(txnId, processTransaction(request));
+    }
+
+    /**
+     * Reports a failed item inline, with the code of its business error or as a system error.
+     */
+    private Mono<ProcessTransactionResponseDTO> asItemResult(String txnId, Mono<ProcessTransactionResponseDTO> processing) {
+        return processing
+                .onErrorResume(BusinessException.class, e ->
+                        Mono.just(itemError(txnId, e.getStatus().getResponseCode(), e.getMessage())))
+                .onErrorResume(e -> Mono.just(itemError(txnId, TransactionStatus.ERROR_SYSTEM.getResponseCode(), e.getMessage())));
+    }
+
+    private String currentTraceId() {
+        return tracer.currentSpan() != null ? tracer.currentSpan().context().traceId() : "N/A";
     }
 
     /**
@@ -72,7 +243,7 @@ public class FraudServiceImpl implements FraudService {
         return transactionRepository.findByTransactionId(transactionId)
                 .map(existingEntity -> {
                     log.warn("Idempotency Triggered (DB): Transaction {} found in records.", transactionId);
-                    return mapToResponseDTO(existingEntity);
+                    return TransactionRecords.toResponse(existingEntity);
                 });
     }
 
@@ -80,32 +251,26 @@ public class FraudServiceImpl implements FraudService {
      * Internal logic for a new transaction evaluation.
      * Evaluates the transaction and updates the customer's daily spent balance if approved.
      */
-    private Mono<ProcessTransactionResponseDTO> executeProcessing(ProcessTransactionRequestDTO request, String traceId) {
+    private Mono<ProcessTransactionResponseDTO> executeProcessing(ProcessTransactionRequestDTO request, String traceId,
+                                                                  AtomicReference<OutboxEventEntity> stagedEvent,
+                                                                  AtomicReference<BigDecimal> reservedAmount) {
+        // Single clock read for the whole request: event fallback timestamp and outbox row
+        LocalDateTime now = dailyLimitClock.now();
         // Map using the traceId as the correlationId for the Entity/Database
-        TransactionEntity transaction = mapRequestToEntity(request, traceId);
+        TransactionEntity transaction = TransactionRecords.toEntity(request, traceId);
+        // From now on retries of this id go through the full idempotency lookup
+        transactionIdFilter.put(transaction.getTransactionId());
         log.info("Processing new transaction: {} | Type: {} | Correlation: {}", transaction.getTransactionId(), transaction.getOperationType(), traceId);
-        return customerLimitRepository.findById(transaction.getCustomerId())
-                .timeout(Duration.ofSeconds(2)) // Critical: Protects against slow DB lookups
-                .flatMap(limit -> {
-                    // Business Rule: Determine if this operation should impact the daily limit
-                    BigDecimal impactValue = calculateLimitImpact(transaction);
-                    BigDecimal projectedSpent = limit.getCurrentDailySpent().add(impactValue);
-                    // Validation against daily threshold
-                    if (projectedSpent.compareTo(limit.getDailyMaxAmount()) > 0) {
-                        return handleRejectedTransaction(transaction, projectedSpent);
-                    } else {
-                        return handleApprovedTransaction(transaction, limit, projectedSpent);
-                    }
-                })
-                // AFTER DB SAVE: Mark as processed in Redis AND send to Kafka
+        return evaluate(request, transaction, reservedAmount)
+                .flatMap(this::saveTransaction)
+                // AFTER DB SAVE: stage the outbox row in the same transaction
                 .flatMap(savedEntity -> {
-                    ProcessTransactionResponseDTO response = mapToResponseDTO(savedEntity);
-                    TransactionEvent event = mapToEvent(savedEntity);
-                    // TRANSACTIONAL ATOMICITY:
-                    // 1. Save to Outbox (Postgres - Same transaction)
-                    // 2. Mark in Redis (External - Occurs only if Outbox save succeeds)
-                    return saveToOutboxInternal(event) // This must be a method in your service or a specialized component
-                            .then(idempotencyService.markAsProcessed(savedEntity.getTransactionId(), response))
+                    // Built once: the same response goes to Redis and to the caller
+                    ProcessTransactionResponseDTO response = TransactionRecords.toResponse(savedEntity);
+                    TransactionEvent event = TransactionRecords.toEvent(savedEntity, now);
+                    // Redis is only told after the commit (processNewTransaction), never for a rolled back row
+                    return saveToOutboxInternal(event, now)
+                            .doOnNext(stagedEvent::set)
                             .thenReturn(response);
                 })
                 // Applying timeout to the entire flow or individual DB saves
@@ -122,31 +287,263 @@ public class FraudServiceImpl implements FraudService {
     }
 
     /**
-     * Internal helper to save to Outbox as part of the main transaction.
-     * Status is set to 'FAILED' (or 'PENDING') so the Scheduler picks it up immediately.
-     */
-    private Mono<Void> saveToOutboxInternal(TransactionEvent event) {
-        return Mono.fromCallable(() -> objectMapper.writeValueAsString(event))
-                .flatMap(payload -> {
-                    OutboxEventEntity outboxEvent = OutboxEventEntity.builder()
-                            .transactionId(event.getTransactionId())
-                            .payload(payload)
-                            .status(OutboxEventStatus.FAILED.name()) // The scheduler looks for 'FAILED'
-                            .retryCount(0)
-                            .createdAt(LocalDateTime.now())
-                            .updatedAt(LocalDateTime.now())
-                            .build();
-
-                    return outboxRepository.save(outboxEvent);
-                })
+     * Runs the evaluation stages and sets the verdict on the transaction without persisting it.
+     * Emits nothing when the customer does not exist.
+     */
+    private Mono<TransactionEntity> evaluate(ProcessTransactionRequestDTO request, TransactionEntity transaction,
+                                             AtomicReference<BigDecimal> reservedAmount) {
+        // Rule-engine stage first: in-memory rules reject without touching customer_limits
+        return Mono.fromCallable(() -> fraudRuleEngine.evaluate(request))
+                .flatMap(verdict -> verdict.isRejected()
+                        ? Mono.just(applyRuleRejection(transaction, verdict))
+                        : evaluateDailyLimit(transaction, reservedAmount));
+    }
+
+    /**
+     * Last stage of the evaluation: reserves the amount against the customer's daily limit.
+     */
+    private Mono<TransactionEntity> evaluateDailyLimit(TransactionEntity transaction, AtomicReference<BigDecimal> reservedAmount) {
+        // Business Rule: Determine if this operation should impact the daily limit
+        return Mono.fromCallable(() -> calculateLimitImpact(transaction))
+                // Single round trip: the limit check and the balance update happen in the same step
+                .flatMap(impactValue -> limitService.reserve(transaction.getCustomerId(), impactValue)
+                        .timeout(Duration.ofSeconds(2)) // Critical: Protects against slow DB lookups
+                        .doOnNext(reservation -> {
+                            if (reservation.isApproved()) {
+                                reservedAmount.set(impactValue);
+                            }
+                        }))
+                .map(reservation -> reservation.isApproved()
+                        ? approveTransaction(transaction, reservation.getProjectedSpent())
+                        : rejectOnLimit(transaction, reservation.getProjectedSpent()));
+    }
+
+    private void releaseReservation(String customerId, AtomicReference<BigDecimal> reservedAmount) {
+        BigDecimal amount = reservedAmount.getAndSet(null);
+        if (amount == null) {
+            return;
+        }
+        limitService.release(customerId, amount)
+                .doOnError(e -> log.error("Could not release {} for customer {}: {}", amount, customerId, e.getMessage()))
+                .onErrorResume(e -> Mono.empty())
+                .subscribe();
+    }
+
+    /**
+     * Processes one lane chunk: invalid items and replays are answered without evaluation, ids that another
+     * request is processing take the single-item path (which waits for that request), and the claimed rest
+     * is evaluated in order and written in a single DB transaction.
+     */
+    private Flux<ProcessTransactionResponseDTO> processChunk(List<ProcessTransactionRequestDTO> chunk, String traceId) {
+        List<ProcessTransactionResponseDTO> invalid = new ArrayList<>();
+        Map<String, ProcessTransactionRequestDTO> unique = new LinkedHashMap<>();
+        List<String> repeated = new ArrayList<>();
+        for (ProcessTransactionRequestDTO request : chunk) {
+            String violations = validate(request);
+            if (violations != null) {
+                log.error("Validation failed for batch item {}: {}", request.getTransactionId(), violations);
+                invalid.add(itemError(request.getTransactionId(), INVALID_INPUT_CODE, violations));
+            } else if (unique.putIfAbsent(request.getTransactionId(), request) != null) {
+                repeated.add(request.getTransactionId()); // Same id twice in one chunk: answered like a replay
+            }
+        }
+        if (unique.isEmpty()) {
+            return Flux.fromIterable(invalid);
+        }
+
+        Mono<List<ProcessTransactionResponseDTO>> results = claimChunk(unique.values())
+                .flatMap(claims -> {
+                    Map<String, ProcessTransactionResponseDTO> processed = claims.processed();
+                    List<ProcessTransactionRequestDTO> fresh = unique.values().stream()
+                            .filter(request -> claims.owned().containsKey(request.getTransactionId()))
+                            .toList();
+                    return evaluateChunk(fresh, claims.owned(), traceId)
+                            .doOnNext(processed::putAll)
+                            .thenMany(Flux.fromIterable(claims.inFlight())
+                                    .flatMap(request -> asItemResult(request.getTransactionId(),
+                                            singleFlight.execute(request.getTransactionId(),
+                                                    () -> awaitInFlight(request, traceId, IN_FLIGHT_ATTEMPTS)))))
+                            .doOnNext(response -> processed.put(response.getTransactionId(), response))
+                            .then(Mono.fromSupplier(() -> {
+                                List<ProcessTransactionResponseDTO> ordered = new ArrayList<>(unique.size() + repeated.size());
+                                unique.keySet().forEach(id -> ordered.add(processed.get(id)));
+                                repeated.forEach(id -> ordered.add(processed.get(id)));
+                                return ordered;
+                            }));
+                });
+        return Flux.concat(Flux.fromIterable(invalid), results.flatMapIterable(list -> list));
+    }
+
+    /**
+     * Claims of one chunk: responses already recorded, ids this chunk owns (with their claim token, null when
+     * Redis was unavailable) and ids another request is processing.
+     */
+    private record ChunkClaims(Map<String, ProcessTransactionResponseDTO> processed, Map<String, String> owned,
+                               List<ProcessTransactionRequestDTO> inFlight) {
+
+        void add(ProcessTransactionRequestDTO request, IdempotencyClaim claim) {
+            switch (claim.state()) {
+                case COMPLETED -> processed.put(request.getTransactionId(), claim.response());
+                case IN_FLIGHT -> inFlight.add(request);
+                case CLAIMED -> owned.put(request.getTransactionId(), claim.token());
+            }
+        }
+    }
+
+    /**
+     * Idempotency for a whole chunk: claims every id like the single path does, then one DB query for the
+     * claimed ids the negative cache may have seen (Redis may have expired their response).
+     */
+    private Mono<ChunkClaims> claimChunk(Collection<ProcessTransactionRequestDTO> requests) {
+        ChunkClaims claims = new ChunkClaims(new HashMap<>(), new HashMap<>(), new ArrayList<>());
+        return Flux.fromIterable(requests)
+                .flatMap(request -> idempotencyService.claim(request.getTransactionId())
+                        .doOnNext(claim -> claims.add(request, claim)))
+                .then(Mono.defer(() -> {
+                    // Ids the negative cache has never seen are new and skip the DB lookup
+                    List<String> candidates = claims.owned().keySet().stream()
+                            .filter(transactionIdFilter::mightContain)
+                            .toList();
+                    if (candidates.isEmpty()) {
+                        return Mono.just(claims);
+                    }
+                    return transactionRepository.findAllByTransactionIdIn(candidates)
+                            .map(TransactionRecords::toResponse)
+                            // A row read back is committed, so it replaces the claim
+                            .concatMap(this::publishCompleted)
+                            .doOnNext(response -> {
+                                claims.owned().remove(response.getTransactionId());
+                                claims.processed().put(response.getTransactionId(), response);
+                            })
+                            .then(Mono.fromSupplier(() -> {
+                                candidates.stream().filter(claims.owned()::containsKey)
+                                        .forEach(id -> transactionIdFilter.recordFalsePositive());
+                                return claims;
+                            }));
+                }))
+                .onErrorResume(e -> releaseClaims(claims.owned()).then(Mono.error(e)));
+    }
+
+    private Mono<Void> releaseClaims(Map<String, String> owned) {
+        return Flux.fromIterable(owned.entrySet())
+                .flatMap(claim -> idempotencyService.releaseClaim(claim.getKey(), claim.getValue()))
                 .then();
     }
 
+    /**
+     * Evaluates the items one by one (per-customer order) and writes the chunk with multi-row inserts.
+     * Reservations and inserts share one DB transaction; the responses replace the claims only once it has
+     * committed. On failure nothing of the chunk is kept and the claims are released: every item is reported
+     * as a system error, except after a duplicate transaction_id (an id recorded while Redis was unavailable),
+     * where each item takes the single-transaction path so only the duplicate is answered from the DB.
+     */
+    private Mono<Map<String, ProcessTransactionResponseDTO>> evaluateChunk(List<ProcessTransactionRequestDTO> fresh,
+                                                                           Map<String, String> claimTokens, String traceId) {
+        if (fresh.isEmpty()) {
+            return Mono.just(Map.of());
+        }
+        // One clock read for the whole chunk
+        LocalDateTime now = dailyLimitClock.now();
+        List<Map.Entry<String, AtomicReference<BigDecimal>>> reservations = new ArrayList<>(fresh.size());
+        Map<String, ProcessTransactionResponseDTO> results = new HashMap<>(fresh.size() * 2);
+        // Claims of items that record nothing (unknown customer), released like the single path does
+        Map<String, String> unrecorded = new HashMap<>();
+
+        Mono<List<ProcessTransactionResponseDTO>> work = Flux.fromIterable(fresh)
+                .concatMap(request -> {
+                    TransactionEntity transaction = TransactionRecords.toEntity(request, traceId);
+                    transactionIdFilter.put(transaction.getTransactionId());
+                    AtomicReference<BigDecimal> reservedAmount = new AtomicReference<>();
+                    reservations.add(Map.entry(transaction.getCustomerId(), reservedAmount));
+                    return evaluate(request, transaction, reservedAmount)
+                            .switchIfEmpty(Mono.fromRunnable(() -> {
+                                unrecorded.put(request.getTransactionId(), claimTokens.get(request.getTransactionId()));
+                                results.put(request.getTransactionId(), itemError(request.getTransactionId(),
+                                        TransactionStatus.CUSTOMER_NOT_FOUND.getResponseCode(), "Customer not found in system"));
+                            }));
+                })
+                .collectList()
+                .flatMap(decided -> persistChunk(decided, now));
+
+        return transactionalOperator.transactional(work)
+                .timeout(batchProperties.getChunkTimeout())
+                // Committed: the same responses go to the idempotency store and the results
+                .flatMap(saved -> Flux.fromIterable(saved)
+                        .concatMap(this::publishCompleted)
+                        // A retry of an unknown customer's id is evaluated again instead of waiting for the claim TTL
+                        .then(Mono.defer(() -> releaseClaims(unrecorded)))
+                        .then(Mono.fromSupplier(() -> {
+                            saved.forEach(response -> results.put(response.getTransactionId(), response));
+                            return results;
+                        })))
+                .onErrorResume(e -> {
+                    reservations.forEach(held -> releaseReservation(held.getKey(), held.getValue()));
+                    if (e instanceof DataIntegrityViolationException || e.getCause() instanceof DataIntegrityViolationException) {
+                        log.warn("Duplicate transaction id in batch chunk of {} items, processing them one by one", fresh.size());
+                        return Flux.fromIterable(fresh)
+                                .concatMap(request -> asItemResult(request.getTransactionId(), processClaimed(request, traceId,
+                                        claimTokens.get(request.getTransactionId()), true)))
+                                .collectMap(ProcessTransactionResponseDTO::getTransactionId, response -> response, HashMap::new);
+                    }
+                    log.error("Technical error during batch chunk of {} items: {}", fresh.size(), e.getMessage());
+                    Map<String, ProcessTransactionResponseDTO> failed = new HashMap<>(fresh.size() * 2);
+                    fresh.forEach(request -> failed.put(request.getTransactionId(), itemError(request.getTransactionId(),
+                            TransactionStatus.ERROR_SYSTEM.getResponseCode(), "Service temporarily unavailable due to System issues")));
+                    return releaseClaims(claimTokens).thenReturn(failed);
+                });
+    }
+
+    private Mono<List<ProcessTransactionResponseDTO>> persistChunk(List<TransactionEntity> decided, LocalDateTime now) {
+        if (decided.isEmpty()) {
+            return Mono.just(List.of());
+        }
+        return transactionRepository.insertAll(decided)
+                .then(Mono.fromCallable(() -> {
+                    List<OutboxEventEntity> events = new ArrayList<>(decided.size());
+                    for (TransactionEntity entity : decided) {
+                        events.add(TransactionRecords.toOutboxRow(TransactionRecords.toEvent(entity, now), OutboxEventStatus.FAILED, now));
+                    }
+                    return events;
+                }))
+                .flatMap(outboxRepository::insertAll)
+                // Mapped once the insert filled in id and created_at
+                .then(Mono.fromCallable(() -> decided.stream().map(TransactionRecords::toResponse).toList()));
+    }
+
+    private String validate(ProcessTransactionRequestDTO request) {
+        Set<ConstraintViolation<ProcessTransactionRequestDTO>> violations = validator.validate(request);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .collect(Collectors.joining(", "));
+    }
+
+    private ProcessTransactionResponseDTO itemError(String transactionId, String responseCode, String description) {
+        return ProcessTransactionResponseDTO.builder()
+                .transactionId(transactionId)
+                .status(TransactionStatus.ERROR_SYSTEM.getDescription())
+                .responseCode(responseCode)
+                .description(description)
+                .build();
+    }
+
+    /**
+     * Internal helper to save to Outbox as part of the main transaction.
+     * Status is 'PENDING': the after-commit fast path publishes it, and the relay only claims it once
+     * the pending grace period has passed without the fast path settling it.
+     */
+    private Mono<OutboxEventEntity> saveToOutboxInternal(TransactionEvent event, LocalDateTime now) {
+        return Mono.fromCallable(() -> TransactionRecords.toOutboxRow(event, OutboxEventStatus.PENDING, now))
+                .flatMap(outboxRepository::save);
+    }
+
     /**
      * Strategy pattern-like logic to determine how much the transaction impacts the limit.
      */
     private BigDecimal calculateLimitImpact(TransactionEntity transaction) {
-        OperationType type = OperationType.valueOf(transaction.getOperationType().toUpperCase());
+        OperationType type = OperationType.resolve(transaction.getOperationType());
 
         return switch (type) {
             case DEBIT, CASH_WITHDRAWAL, TRANSFER -> transaction.getAmount();
@@ -160,83 +557,39 @@ public class FraudServiceImpl implements FraudService {
         };
     }
 
-    private Mono<TransactionEntity> handleApprovedTransaction(TransactionEntity transaction,
-                                                              CustomerLimitEntity limit,
-                                                              BigDecimal totalSpent) {
+    private TransactionEntity approveTransaction(TransactionEntity transaction, BigDecimal totalSpent) {
 
-        log.info("Transaction approved for customer: {}", transaction.getCustomerId());
+        log.info("Transaction approved for customer: {}. New daily spent: {}", transaction.getCustomerId(), totalSpent);
 
         transaction.setStatus(TransactionStatus.APPROVED.getDescription());
         transaction.setResponseCode(TransactionStatus.APPROVED.getResponseCode());
         transaction.setDescription("Transaction verified successfully");
-
-        // Update the limit object with the new total spent
-        limit.setCurrentDailySpent(totalSpent);
-
-        // Chain both saves: Update limit AND save transaction
-        return customerLimitRepository.save(limit)
-                .doOnSuccess(l -> log.info("STEP 1 SUCCESS: Customer balance updated to {}", l.getCurrentDailySpent()))
-                .doOnError(e -> log.error("STEP 1 FAILED: Could not update customer balance: {}", e.getMessage()))
-                .then(transactionRepository.save(transaction))
-                .doOnSuccess(t -> log.info("STEP 2 SUCCESS: Transaction recorded with ID: {}", t.getId()))
-                .doOnError(e -> log.error("STEP 2 FAILED: Could not save transaction record: {}", e.getMessage()));
+        return transaction;
     }
 
-    private Mono<TransactionEntity> handleRejectedTransaction(TransactionEntity transaction, BigDecimal totalSpent) {
+    private TransactionEntity rejectOnLimit(TransactionEntity transaction, BigDecimal totalSpent) {
         log.warn("Fraud alert! Limit exceeded for customer: {}. Total: {}", transaction.getCustomerId(), totalSpent);
 
         transaction.setStatus(TransactionStatus.REJECTED_LIMIT.getDescription());
         transaction.setResponseCode(TransactionStatus.REJECTED_LIMIT.getResponseCode());
         transaction.setDescription("Daily transaction limit exceeded");
-
-        return transactionRepository.save(transaction);
+        return transaction;
     }
 
-    /**
-     * Maps the Request DTO to a Transaction Entity.
-     */
-    private TransactionEntity mapRequestToEntity(ProcessTransactionRequestDTO request, String correlationId) {
-
-        return TransactionEntity.builder()
-                .transactionId(request.getTransactionId())
-                .correlationId(correlationId)
-                .accountId(request.getAccountId())
-                .customerId(request.getCustomerId())
-                .amount(request.getAmount())
-                .currency(request.getCurrency())
-                .operationType(request.getOperationType())
-                .merchantId(request.getMerchantId())
-                .merchantName(request.getMerchantName())
-                .mcc(request.getMcc())
-                .terminalId(request.getTerminalId())
-                .ipAddress(request.getIpAddress())
-                .channel(request.getChannel())
-                .build();
-    }
+    private TransactionEntity applyRuleRejection(TransactionEntity transaction, RuleResult verdict) {
+        log.warn("Fraud alert! Rule {} rejected transaction {} for customer: {}",
+                verdict.getRuleName(), transaction.getTransactionId(), transaction.getCustomerId());
 
-    /**
-     * Maps the persisted Entity to a Response DTO.
-     */
-    private ProcessTransactionResponseDTO mapToResponseDTO(TransactionEntity entity) {
-        return ProcessTransactionResponseDTO.builder()
-                .id(entity.getId() != null ? entity.getId().toString() : null)
-                .transactionId(entity.getTransactionId())
-                .status(entity.getStatus())
-                .responseCode(entity.getResponseCode())
-                .description(entity.getDescription())
-                .createdAt(entity.getCreatedAt())
-                .build();
+        transaction.setStatus(verdict.getStatus().getDescription());
+        transaction.setResponseCode(verdict.getStatus().getResponseCode());
+        transaction.setDescription(verdict.getDescription());
+        return transaction;
     }
 
-    private TransactionEvent mapToEvent(TransactionEntity entity) {
-        return TransactionEvent.builder()
-                .transactionId(entity.getTransactionId())
-                .customerId(entity.getCustomerId())
-                .amount(entity.getAmount())
-                .status(entity.getStatus())
-                .responseCode(entity.getResponseCode())
-                .timestamp(entity.getCreatedAt() != null ? entity.getCreatedAt() : LocalDateTime.now())
-                .correlationId(entity.getCorrelationId())
-                .build();
+    private Mono<TransactionEntity> saveTransaction(TransactionEntity transaction) {
+        // An approved balance was already reserved by LimitService, only the transaction record is left
+        return transactionRepository.save(transaction)
+                .doOnSuccess(t -> log.info("Transaction recorded with ID: {}", t.getId()))
+                .doOnError(e -> log.error("Could not save transaction record: {}", e.getMessage()));
     }
 }
@@ -2,32 +2,92 @@ package com.jchacon.banking.frauddetection.service.impl;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jchacon.banking.frauddetection.model.IdempotencyClaim;
 import com.jchacon.banking.frauddetection.model.ProcessTransactionResponseDTO;
 import com.jchacon.banking.frauddetection.service.IdempotencyService;
-import lombok.RequiredArgsConstructor;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
 
+/**
+ * Two-tier idempotency cache: a bounded in-process near cache answers retries that hit the same pod
+ * without a network hop, Redis stays the shared source of truth across pods.
+ * A key holds either an in-flight marker (short TTL, set by the claim) or the final response (full TTL).
+ */
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class IdempotencyServiceImpl implements IdempotencyService {
 
+    private static final String REDIS_PREFIX = "idempotency:txn:";
+    private static final String IN_FLIGHT_PREFIX = "IN_FLIGHT:";
+
+    // Returns the stored value, or sets our marker and returns it when the key is free
+    private static final RedisScript<String> CLAIM_SCRIPT = RedisScript.of("""
+            local current = redis.call('GET', KEYS[1])
+            if current then
+                return current
+            end
+            redis.call('SET', KEYS[1], ARGV[1], 'PX', ARGV[2])
+            return ARGV[1]
+            """, String.class);
+
+    // Compare-and-delete: never drops a response or a claim taken over by someone else
+    private static final RedisScript<Long> RELEASE_SCRIPT = RedisScript.of("""
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+                return redis.call('DEL', KEYS[1])
+            end
+            return 0
+            """, Long.class);
+
     private final ReactiveStringRedisTemplate redisTemplate;
     private final ObjectMapper objectMapper;
+    private final int ttlHours;
+    private final Duration inFlightTtl;
+    private final Duration inFlightPoll;
+    private final Cache<String, ProcessTransactionResponseDTO> nearCache;
 
-    @Value("${app.idempotency.ttl-hours}")
-    private int ttlHours;
-
-    private static final String REDIS_PREFIX = "idempotency:txn:";
+    public IdempotencyServiceImpl(ReactiveStringRedisTemplate redisTemplate,
+                                  ObjectMapper objectMapper,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${app.idempotency.ttl-hours}") int ttlHours,
+                                  @Value("${app.idempotency.near-cache.max-size:100000}") long nearCacheMaxSize,
+                                  @Value("${app.idempotency.near-cache.ttl:10m}") Duration nearCacheTtl,
+                                  @Value("${app.idempotency.in-flight.ttl:30s}") Duration inFlightTtl,
+                                  @Value("${app.idempotency.in-flight.poll-interval:50ms}") Duration inFlightPoll) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.ttlHours = ttlHours;
+        this.inFlightTtl = inFlightTtl;
+        this.inFlightPoll = inFlightPoll;
+        // Never keep an entry longer than Redis does
+        Duration ttl = nearCacheTtl.compareTo(Duration.ofHours(ttlHours)) < 0 ? nearCacheTtl : Duration.ofHours(ttlHours);
+        this.nearCache = Caffeine.newBuilder()
+                .maximumSize(nearCacheMaxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        // cache.gets{result=hit|miss}, cache.evictions, cache.size tagged cache=idempotency-near
+        CaffeineCacheMetrics.monitor(meterRegistry, nearCache, "idempotency-near");
+    }
 
     @Override
     public Mono<Boolean> isDuplicate(String key) {
+        if (nearCache.getIfPresent(key) != null) {
+            return Mono.just(true);
+        }
         return redisTemplate.hasKey(REDIS_PREFIX + key)
                 .doOnNext(exists -> {
                     if (exists) log.debug("Redis hit: Transaction {} already processed", key);
@@ -36,20 +96,96 @@ public class IdempotencyServiceImpl implements IdempotencyService {
 
     @Override
     public Mono<ProcessTransactionResponseDTO> getCachedResponse(String key) {
+        ProcessTransactionResponseDTO local = nearCache.getIfPresent(key);
+        if (local != null) {
+            log.info("Near cache hit for key: {}", key);
+            return Mono.just(local);
+        }
         return redisTemplate.opsForValue().get(REDIS_PREFIX + key)
+                // A claim is not a response yet
+                .filter(value -> !isInFlight(value))
                 .flatMap(json -> {
-                    try {
-                        log.info("Redis hit for key: {}", key);
-                        return Mono.just(objectMapper.readValue(json, ProcessTransactionResponseDTO.class));
-                    } catch (JsonProcessingException e) {
-                        log.error("Error deserializing cached response", e);
-                        return Mono.empty();
+                    log.info("Redis hit for key: {}", key);
+                    return Mono.justOrEmpty(deserialize(json));
+                })
+                // Further retries on this pod are answered locally
+                .doOnNext(response -> nearCache.put(key, response));
+    }
+
+    @Override
+    public Mono<IdempotencyClaim> claim(String key) {
+        ProcessTransactionResponseDTO local = nearCache.getIfPresent(key);
+        if (local != null) {
+            log.info("Near cache hit for key: {}", key);
+            return Mono.just(IdempotencyClaim.completed(local));
+        }
+        String token = IN_FLIGHT_PREFIX + UUID.randomUUID();
+        return redisTemplate.execute(CLAIM_SCRIPT, List.of(REDIS_PREFIX + key),
+                        List.of(token, String.valueOf(inFlightTtl.toMillis())))
+                .next()
+                .map(value -> {
+                    if (value.equals(token)) {
+                        return IdempotencyClaim.claimed(token);
+                    }
+                    if (isInFlight(value)) {
+                        log.debug("Transaction {} is in flight on another request", key);
+                        return IdempotencyClaim.inFlight();
+                    }
+                    ProcessTransactionResponseDTO response = deserialize(value);
+                    if (response == null) {
+                        // Unreadable entry: fall back to the DB checks, the UNIQUE constraint still guards the id
+                        return IdempotencyClaim.claimed(null);
+                    }
+                    log.info("Redis hit for key: {}", key);
+                    nearCache.put(key, response);
+                    return IdempotencyClaim.completed(response);
+                })
+                // Degrade to the unclaimed path rather than failing the payment on a cache outage
+                .onErrorResume(e -> {
+                    log.error("Idempotency claim failed for {}, continuing unclaimed: {}", key, e.getMessage());
+                    return Mono.just(IdempotencyClaim.claimed(null));
+                });
+    }
+
+    @Override
+    public Mono<ProcessTransactionResponseDTO> awaitCompletion(String key) {
+        return Flux.interval(inFlightPoll)
+                .concatMap(tick -> {
+                    ProcessTransactionResponseDTO local = nearCache.getIfPresent(key);
+                    if (local != null) {
+                        return Mono.just(Optional.of(local));
                     }
+                    return redisTemplate.opsForValue().get(REDIS_PREFIX + key)
+                            .defaultIfEmpty("")
+                            // Still in flight: skip this tick. Gone: the owner gave up, stop waiting
+                            .filter(value -> !isInFlight(value))
+                            .map(value -> Optional.ofNullable(value.isEmpty() ? null : deserialize(value)));
+                })
+                .next()
+                // The marker expires after the TTL even if its owner died, so waiting longer is pointless
+                .timeout(inFlightTtl.plus(inFlightPoll))
+                .flatMap(Mono::justOrEmpty)
+                .doOnNext(response -> nearCache.put(key, response));
+    }
+
+    @Override
+    public Mono<Void> releaseClaim(String key, String token) {
+        if (token == null) {
+            return Mono.empty();
+        }
+        return redisTemplate.execute(RELEASE_SCRIPT, List.of(REDIS_PREFIX + key), List.of(token))
+                .then()
+                // Worst case the marker expires on its own after the in-flight TTL
+                .onErrorResume(e -> {
+                    log.error("Failed to release claim for {}: {}", key, e.getMessage());
+                    return Mono.empty();
                 });
     }
 
     @Override
     public Mono<Void> markAsProcessed(String key, ProcessTransactionResponseDTO response) {
+        // The response is final, the local copy is valid even if the Redis write below fails
+        nearCache.put(key, response);
         return Mono.fromCallable(() -> objectMapper.writeValueAsString(response))
                 .flatMap(json -> redisTemplate.opsForValue()
                         .set(REDIS_PREFIX + key, json, Duration.ofHours(ttlHours)))
@@ -60,4 +196,17 @@ public class IdempotencyServiceImpl implements IdempotencyService {
                 })
                 .then();
     }
+
+    private static boolean isInFlight(String value) {
+        return value.startsWith(IN_FLIGHT_PREFIX);
+    }
+
+    private ProcessTransactionResponseDTO deserialize(String json) {
+        try {
+            return objectMapper.readValue(json, ProcessTransactionResponseDTO.class);
+        } catch (JsonProcessingException e) {
+            log.error("Error deserializing cached response", e);
+            return null;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,43 @@
+package com.jchacon.banking.frauddetection.service.impl;
+
+import com.jchacon.banking.frauddetection.config.DailyLimitClock;
+import com.jchacon.banking.frauddetection.model.LimitReservation;
+import com.jchacon.banking.frauddetection.repository.CustomerLimitRepository;
+import com.jchacon.banking.frauddetection.service.LimitService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Default limit strategy: every reservation is a conditional UPDATE on customer_limits.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.limits.ledger.enabled", havingValue = "false", matchIfMissing = true)
+public class LimitServiceImpl implements LimitService {
+
+    private final CustomerLimitRepository customerLimitRepository;
+    private final DailyLimitClock dailyLimitClock;
+
+    @Override
+    public Mono<LimitReservation> reserve(String customerId, BigDecimal amount) {
+        // Stale rows are rolled over by the same statement, no midnight batch needed
+        return Mono.defer(() -> {
+            LocalDateTime now = dailyLimitClock.now();
+            return customerLimitRepository.reserveLimit(customerId, amount, dailyLimitClock.dayStartOf(now), now);
+        });
+    }
+
+    @Override
+    public Mono<Void> release(String customerId, BigDecimal amount) {
+        // The reservation runs inside the caller's @Transactional, so the rollback already gives it back
+        log.debug("Release for customer {} delegated to transaction rollback", customerId);
+        return Mono.empty();
+    }
+}
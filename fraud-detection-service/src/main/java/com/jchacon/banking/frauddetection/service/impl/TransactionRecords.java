@@ -0,0 +1,101 @@
+package com.jchacon.banking.frauddetection.service.impl;
+
+import com.jchacon.banking.frauddetection.entity.OutboxEventEntity;
+import com.jchacon.banking.frauddetection.entity.TransactionEntity;
+import com.jchacon.banking.frauddetection.event.TransactionEvent;
+import com.jchacon.banking.frauddetection.event.TransactionEventCodec;
+import com.jchacon.banking.frauddetection.model.ProcessTransactionRequestDTO;
+import com.jchacon.banking.frauddetection.model.ProcessTransactionResponseDTO;
+import com.jchacon.banking.frauddetection.model.enums.OutboxEventStatus;
+import com.jchacon.banking.frauddetection.outbox.OutboxHeaders;
+import com.jchacon.banking.frauddetection.producer.FraudEventProducer;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+/**
+ * Mapping of one evaluation: request to entity, then the decided entity to its response, event and outbox row.
+ * Callers build each record once and share it (Redis, outbox, HTTP response); the timestamp is read once
+ * per request by the caller and passed in instead of each record calling LocalDateTime.now().
+ */
+public final class TransactionRecords {
+
+    // Kafka header carrying the correlation id, same key as the consumers' MDC entry
+    private static final String CORRELATION_ID_HEADER = "correlationId";
+
+    private TransactionRecords() {
+    }
+
+    /**
+     * Maps the Request DTO to a Transaction Entity.
+     */
+    public static TransactionEntity toEntity(ProcessTransactionRequestDTO request, String correlationId) {
+        return TransactionEntity.builder()
+                .transactionId(request.getTransactionId())
+                .correlationId(correlationId)
+                .accountId(request.getAccountId())
+                .customerId(request.getCustomerId())
+                .amount(request.getAmount())
+                .currency(request.getCurrency())
+                .operationType(request.getOperationType())
+                .merchantId(request.getMerchantId())
+                .merchantName(request.getMerchantName())
+                .mcc(request.getMcc())
+                .terminalId(request.getTerminalId())
+                .ipAddress(request.getIpAddress())
+                .channel(request.getChannel())
+                .build();
+    }
+
+    /**
+     * Maps the persisted Entity to a Response DTO.
+     */
+    public static ProcessTransactionResponseDTO toResponse(TransactionEntity entity) {
+        return ProcessTransactionResponseDTO.builder()
+                .id(entity.getId() != null ? entity.getId().toString() : null)
+                .transactionId(entity.getTransactionId())
+                .status(entity.getStatus())
+                .responseCode(entity.getResponseCode())
+                .description(entity.getDescription())
+                .createdAt(entity.getCreatedAt())
+                .build();
+    }
+
+    /**
+     * @param now timestamp of the request, used when the entity has no created_at yet
+     */
+    public static TransactionEvent toEvent(TransactionEntity entity, LocalDateTime now) {
+        return TransactionEvent.builder()
+                .transactionId(entity.getTransactionId())
+                .customerId(entity.getCustomerId())
+                .amount(entity.getAmount())
+                .status(entity.getStatus())
+                .responseCode(entity.getResponseCode())
+                .timestamp(entity.getCreatedAt() != null ? entity.getCreatedAt() : now)
+                .correlationId(entity.getCorrelationId())
+                .build();
+    }
+
+    /**
+     * The row holds the Kafka record as it will be sent (binary value, key, headers), so the relay forwards
+     * the bytes without decoding and re-encoding the event.
+     */
+    public static OutboxEventEntity toOutboxRow(TransactionEvent event, OutboxEventStatus status, LocalDateTime now) {
+        RecordHeaders headers = new RecordHeaders();
+        if (event.getCorrelationId() != null) {
+            headers.add(CORRELATION_ID_HEADER, event.getCorrelationId().getBytes(StandardCharsets.UTF_8));
+        }
+        return OutboxEventEntity.builder()
+                .transactionId(event.getTransactionId())
+                .payload(TransactionEventCodec.encode(event))
+                .messageKey(event.getTransactionId())
+                .topic(FraudEventProducer.topicFor(event))
+                .headers(OutboxHeaders.encode(headers))
+                .status(status.name()) // The relay claims 'FAILED' right away, 'PENDING' after the grace period
+                .retryCount(0)
+                .createdAt(now)
+                .updatedAt(now)
+                .build();
+    }
+}
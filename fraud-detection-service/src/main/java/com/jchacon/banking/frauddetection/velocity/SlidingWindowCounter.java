@@ -0,0 +1,54 @@
+package com.jchacon.banking.frauddetection.velocity;
+
+/**
+ * Time-bucketed ring buffer for one key. Keeps a running total, so updates and reads are O(1)
+ * apart from clearing the buckets the window has moved past (at most one lap of the ring).
+ * The count covers the current bucket plus the previous buckets - 1, i.e. the window with bucket granularity.
+ */
+final class SlidingWindowCounter {
+
+    private final int[] counts;
+    private long headBucket;
+    private int total;
+    private boolean retired;
+
+    SlidingWindowCounter(int buckets, long nowBucket) {
+        this.counts = new int[buckets];
+        this.headBucket = nowBucket;
+    }
+
+    /**
+     * @return the count within the window including this event, or -1 if the counter was evicted meanwhile
+     */
+    synchronized int incrementAndGet(long nowBucket) {
+        if (retired) {
+            return -1;
+        }
+        advance(nowBucket);
+        counts[(int) (headBucket % counts.length)]++;
+        return ++total;
+    }
+
+    /**
+     * Marks the counter as evicted when the whole window has passed since its last event.
+     */
+    synchronized boolean retireIfIdle(long nowBucket) {
+        if (nowBucket - headBucket >= counts.length) {
+            retired = true;
+        }
+        return retired;
+    }
+
+    private void advance(long nowBucket) {
+        if (nowBucket <= headBucket) {
+            return; // Same bucket, or a clock step back: count into the newest bucket
+        }
+        long steps = Math.min(nowBucket - headBucket, counts.length);
+        for (long i = 1; i <= steps; i++) {
+            int slot = (int) ((headBucket + i) % counts.length);
+            total -= counts[slot];
+            counts[slot] = 0;
+        }
+        headBucket = nowBucket;
+    }
+}
@@ -0,0 +1,77 @@
+package com.jchacon.banking.frauddetection.velocity;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Counters of one dimension. Bounded by maxKeys: once full, new keys are not tracked (fail open)
+ * until the eviction sweep drops idle ones.
+ */
+final class VelocityCounterStore {
+
+    private final ConcurrentHashMap<String, SlidingWindowCounter> counters = new ConcurrentHashMap<>();
+    private final int buckets;
+    private final int maxKeys;
+    private final Counter untracked;
+    private final Counter evicted;
+
+    VelocityCounterStore(VelocityDimension dimension, int buckets, int maxKeys, MeterRegistry meterRegistry) {
+        this.buckets = buckets;
+        this.maxKeys = maxKeys;
+        String tag = dimension.name().toLowerCase(Locale.ROOT);
+        Gauge.builder("fraud.velocity.keys", counters, ConcurrentHashMap::size)
+                .description("Keys with a live velocity counter")
+                .tag("dimension", tag)
+                .register(meterRegistry);
+        this.untracked = Counter.builder("fraud.velocity.untracked")
+                .description("Events not counted because the store was full")
+                .tag("dimension", tag)
+                .register(meterRegistry);
+        this.evicted = Counter.builder("fraud.velocity.evicted")
+                .description("Idle velocity counters dropped by the sweep")
+                .tag("dimension", tag)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Counts one event for the key.
+     * @return the count within the window including this event, or 0 when the key could not be tracked
+     */
+    int record(String key, long nowBucket) {
+        while (true) {
+            SlidingWindowCounter counter = counters.get(key);
+            if (counter == null) {
+                if (counters.size() >= maxKeys) {
+                    untracked.increment();
+                    return 0;
+                }
+                counter = counters.computeIfAbsent(key, k -> new SlidingWindowCounter(buckets, nowBucket));
+            }
+            int count = counter.incrementAndGet(nowBucket);
+            if (count >= 0) {
+                return count;
+            }
+            // Evicted between lookup and update: the sweep already removed it, start a fresh one
+        }
+    }
+
+    int evictIdle(long nowBucket) {
+        int removed = 0;
+        for (String key : counters.keySet()) {
+            // Retired under the map's bin lock, so a concurrent record() either sees it retired or keeps it alive
+            if (counters.computeIfPresent(key, (k, c) -> c.retireIfIdle(nowBucket) ? null : c) == null) {
+                removed++;
+            }
+        }
+        evicted.increment(removed);
+        return removed;
+    }
+
+    int size() {
+        return counters.size();
+    }
+}
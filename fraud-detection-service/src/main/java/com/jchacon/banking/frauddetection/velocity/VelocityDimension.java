@@ -0,0 +1,29 @@
+package com.jchacon.banking.frauddetection.velocity;
+
+import com.jchacon.banking.frauddetection.model.ProcessTransactionRequestDTO;
+
+import java.util.function.Function;
+
+/**
+ * Request attributes a velocity counter can be keyed by.
+ */
+public enum VelocityDimension {
+    CUSTOMER(ProcessTransactionRequestDTO::getCustomerId),
+    ACCOUNT(ProcessTransactionRequestDTO::getAccountId),
+    TERMINAL(ProcessTransactionRequestDTO::getTerminalId),
+    IP(ProcessTransactionRequestDTO::getIpAddress);
+
+    private final Function<ProcessTransactionRequestDTO, String> keyExtractor;
+
+    VelocityDimension(Function<ProcessTransactionRequestDTO, String> keyExtractor) {
+        this.keyExtractor = keyExtractor;
+    }
+
+    /**
+     * @return the counter key of the request, or null when the attribute is missing (e.g. no terminal on WEB)
+     */
+    public String keyOf(ProcessTransactionRequestDTO request) {
+        String key = keyExtractor.apply(request);
+        return key == null || key.isEmpty() ? null : key;
+    }
+}
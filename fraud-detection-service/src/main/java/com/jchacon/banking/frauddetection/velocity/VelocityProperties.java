@@ -0,0 +1,29 @@
+package com.jchacon.banking.frauddetection.velocity;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Velocity limits (app.velocity.*): max transactions per key within the sliding window.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.velocity")
+public class VelocityProperties {
+
+    private Duration window = Duration.ofSeconds(60);
+
+    // Ring-buffer slots per key; the window moves in steps of window / buckets
+    private int buckets = 12;
+
+    // Upper bound of tracked keys per dimension, new keys beyond it are not counted
+    private int maxKeys = 100_000;
+
+    // e.g. TERMINAL=10 rejects the 11th transaction on a terminal within the window
+    private Map<VelocityDimension, Integer> maxCount = new EnumMap<>(VelocityDimension.class);
+}
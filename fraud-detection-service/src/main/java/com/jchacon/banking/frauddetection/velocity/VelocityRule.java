@@ -0,0 +1,108 @@
+package com.jchacon.banking.frauddetection.velocity;
+
+import com.jchacon.banking.frauddetection.model.ProcessTransactionRequestDTO;
+import com.jchacon.banking.frauddetection.model.enums.TransactionStatus;
+import com.jchacon.banking.frauddetection.rule.FraudRule;
+import com.jchacon.banking.frauddetection.rule.RuleResult;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Velocity checks ("more than N transactions in 60s on this terminal") answered from in-memory
+ * sliding-window counters, so they add no database round trip to the evaluation.
+ * Registered as a FraudRule bean and picked up by FraudRuleEngine after the static rules.
+ *
+ * Every evaluated transaction is counted on all configured dimensions, rejected ones included:
+ * repeated attempts are the signal. Counters are per node, like the in-memory ledger.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.velocity.enabled", havingValue = "true")
+public class VelocityRule implements FraudRule {
+
+    static final String NAME = "velocity";
+
+    private final Clock clock;
+    private final long bucketMillis;
+    private final VelocityDimension[] dimensions;
+    private final int[] limits;
+    private final VelocityCounterStore[] stores;
+    private final RuleResult[] rejections;
+
+    @Autowired
+    public VelocityRule(VelocityProperties properties, MeterRegistry meterRegistry) {
+        this(properties, meterRegistry, Clock.systemUTC());
+    }
+
+    VelocityRule(VelocityProperties properties, MeterRegistry meterRegistry, Clock clock) {
+        if (properties.getBuckets() < 1 || properties.getWindow().toMillis() < properties.getBuckets()) {
+            throw new IllegalArgumentException("app.velocity.window must be at least app.velocity.buckets milliseconds");
+        }
+        this.clock = clock;
+        this.bucketMillis = properties.getWindow().toMillis() / properties.getBuckets();
+
+        Map<VelocityDimension, Integer> maxCount = properties.getMaxCount();
+        this.dimensions = maxCount.keySet().stream().sorted().toArray(VelocityDimension[]::new);
+        this.limits = new int[dimensions.length];
+        this.stores = new VelocityCounterStore[dimensions.length];
+        this.rejections = new RuleResult[dimensions.length];
+        for (int i = 0; i < dimensions.length; i++) {
+            limits[i] = maxCount.get(dimensions[i]);
+            stores[i] = new VelocityCounterStore(dimensions[i], properties.getBuckets(), properties.getMaxKeys(), meterRegistry);
+            rejections[i] = RuleResult.reject(NAME, TransactionStatus.REJECTED_FRAUD,
+                    "Too many transactions for this " + dimensions[i].name().toLowerCase(Locale.ROOT) + " in a short period");
+        }
+        log.info("Velocity rule enabled: window={} buckets={} limits={}", properties.getWindow(), properties.getBuckets(), maxCount);
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public RuleResult evaluate(ProcessTransactionRequestDTO request) {
+        long nowBucket = clock.millis() / bucketMillis;
+        RuleResult result = RuleResult.PASS;
+        // Count on every dimension before answering, so one breach does not hide traffic from the others
+        for (int i = 0; i < dimensions.length; i++) {
+            String key = dimensions[i].keyOf(request);
+            if (key != null && stores[i].record(key, nowBucket) > limits[i] && !result.isRejected()) {
+                result = rejections[i];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Drops counters whose whole window has expired, keeping memory proportional to active keys.
+     */
+    @Scheduled(fixedDelayString = "${app.velocity.evict-interval-ms:30000}")
+    public void evictIdle() {
+        long nowBucket = clock.millis() / bucketMillis;
+        int removed = 0;
+        for (VelocityCounterStore store : stores) {
+            removed += store.evictIdle(nowBucket);
+        }
+        if (removed > 0) {
+            log.debug("Evicted {} idle velocity counters", removed);
+        }
+    }
+
+    int trackedKeys(VelocityDimension dimension) {
+        for (int i = 0; i < dimensions.length; i++) {
+            if (dimensions[i] == dimension) {
+                return stores[i].size();
+            }
+        }
+        return 0;
+    }
+}
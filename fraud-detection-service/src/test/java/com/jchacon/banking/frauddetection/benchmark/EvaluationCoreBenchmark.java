@@ -0,0 +1,174 @@
+package com.jchacon.banking.frauddetection.benchmark;
+
+import com.jchacon.banking.frauddetection.config.DailyLimitClock;
+import com.jchacon.banking.frauddetection.entity.OutboxEventEntity;
+import com.jchacon.banking.frauddetection.entity.TransactionEntity;
+import com.jchacon.banking.frauddetection.event.TransactionEvent;
+import com.jchacon.banking.frauddetection.event.TransactionEventCodec;
+import com.jchacon.banking.frauddetection.ledger.LedgerEntry;
+import com.jchacon.banking.frauddetection.model.LimitReservation;
+import com.jchacon.banking.frauddetection.model.Money;
+import com.jchacon.banking.frauddetection.model.ProcessTransactionRequestDTO;
+import com.jchacon.banking.frauddetection.model.ProcessTransactionResponseDTO;
+import com.jchacon.banking.frauddetection.model.enums.OperationType;
+import com.jchacon.banking.frauddetection.model.enums.OutboxEventStatus;
+import com.jchacon.banking.frauddetection.model.enums.TransactionStatus;
+import com.jchacon.banking.frauddetection.outbox.OutboxHeaders;
+import com.jchacon.banking.frauddetection.producer.FraudEventProducer;
+import com.jchacon.banking.frauddetection.service.impl.TransactionRecords;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One batch item through the synchronous part of the evaluation in ledger mode only
+ * (app.limits.ledger.enabled=true): map the request, resolve the operation type, decide against the in-memory
+ * daily limit, then build the response (Redis and caller) and the outbox row. "ledgerLegacy" is the previous
+ * code (valueOf(toUpperCase()), BigDecimal limit arithmetic, four clock reads, the response mapped twice);
+ * "ledgerLean" is the current one. I/O, Reactor and the shard thread hop are left out.
+ * Without the ledger the limit is decided by reserveLimit in SQL, so the scaled-long arithmetic does not apply
+ * there and these numbers are not a baseline for that path; it only shares the enum lookup, clock read and mapping.
+ * The GC profiler adds gc.alloc.rate.norm, the bytes allocated per operation, next to ns/op.
+ *
+ * Run: mvn test-compile exec:java -Dexec.classpathScope=test
+ *        -Dexec.mainClass=com.jchacon.banking.frauddetection.benchmark.EvaluationCoreBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class EvaluationCoreBenchmark {
+
+    // Never reached within a run, every decision is an approval
+    private static final BigDecimal DAILY_MAX = new BigDecimal("99999999999999");
+    private static final String CORRELATION_ID = "698bfb95ee3cf3a1796c940d1123cfd8";
+
+    private final DailyLimitClock clock = new DailyLimitClock();
+    private ProcessTransactionRequestDTO request;
+    private UUID id;
+    private LocalDateTime createdAt;
+
+    // Legacy ledger state
+    private BigDecimal spent;
+    private BigDecimal pending;
+    // Current ledger state
+    private LedgerEntry entry;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        request = ProcessTransactionRequestDTO.builder()
+                .transactionId(UUID.randomUUID().toString())
+                .accountId("ACC-000123")
+                .customerId("CUST-000123")
+                .amount(new BigDecimal("1250.50"))
+                .currency("PEN")
+                .operationType("DEBIT")
+                .merchantId("MERCH-42")
+                .merchantName("Electro Store")
+                .mcc("5732")
+                .ipAddress("190.12.34.56")
+                .channel("WEB")
+                .build();
+        // Values the multi-row insert returns
+        id = UUID.randomUUID();
+        createdAt = LocalDateTime.now();
+        spent = BigDecimal.ZERO;
+        pending = BigDecimal.ZERO;
+        LocalDateTime now = clock.now();
+        entry = new LedgerEntry(request.getCustomerId(), DAILY_MAX, BigDecimal.ZERO, now, clock.dayStartOf(now), now,
+                System.nanoTime());
+    }
+
+    @Benchmark
+    public void ledgerLegacy(Blackhole blackhole) {
+        TransactionEntity transaction = TransactionRecords.toEntity(request, CORRELATION_ID);
+        OperationType type = OperationType.valueOf(transaction.getOperationType().toUpperCase());
+        blackhole.consume(type);
+
+        LocalDateTime dayStart = clock.currentDayStart();
+        LocalDateTime now = clock.now();
+        blackhole.consume(dayStart.isBefore(now));
+        BigDecimal projected = spent.add(transaction.getAmount());
+        boolean approved = projected.compareTo(DAILY_MAX) <= 0;
+        if (approved) {
+            spent = projected;
+            pending = pending.add(transaction.getAmount());
+        }
+        LimitReservation reservation = LimitReservation.builder()
+                .customerId(transaction.getCustomerId())
+                .dailyMaxAmount(DAILY_MAX)
+                .projectedSpent(projected)
+                .approved(approved)
+                .build();
+        decide(transaction, reservation);
+
+        // created_at came back from the insert, the LocalDateTime.now() fallback was not taken
+        blackhole.consume(legacyOutboxRow(TransactionRecords.toEvent(transaction, null)));
+        // markAsProcessed and the chunk results each mapped their own response
+        blackhole.consume(TransactionRecords.toResponse(transaction));
+        blackhole.consume(TransactionRecords.toResponse(transaction));
+    }
+
+    @Benchmark
+    public void ledgerLean(Blackhole blackhole) {
+        LocalDateTime now = clock.now();
+        TransactionEntity transaction = TransactionRecords.toEntity(request, CORRELATION_ID);
+        OperationType type = OperationType.resolve(transaction.getOperationType());
+        blackhole.consume(type);
+
+        LimitReservation reservation = entry.reserve(Money.toUnits(transaction.getAmount()),
+                clock.dayStartOf(now), now, System.nanoTime());
+        decide(transaction, reservation);
+
+        blackhole.consume(TransactionRecords.toOutboxRow(TransactionRecords.toEvent(transaction, now),
+                OutboxEventStatus.FAILED, now));
+        ProcessTransactionResponseDTO response = TransactionRecords.toResponse(transaction);
+        blackhole.consume(response);
+    }
+
+    private void decide(TransactionEntity transaction, LimitReservation reservation) {
+        TransactionStatus status = reservation.isApproved() ? TransactionStatus.APPROVED : TransactionStatus.REJECTED_LIMIT;
+        transaction.setStatus(status.getDescription());
+        transaction.setResponseCode(status.getResponseCode());
+        transaction.setDescription("Transaction verified successfully");
+        transaction.setId(id);
+        transaction.setCreatedAt(createdAt);
+    }
+
+    private static OutboxEventEntity legacyOutboxRow(TransactionEvent event) {
+        RecordHeaders headers = new RecordHeaders();
+        if (event.getCorrelationId() != null) {
+            headers.add("correlationId", event.getCorrelationId().getBytes(StandardCharsets.UTF_8));
+        }
+        return OutboxEventEntity.builder()
+                .transactionId(event.getTransactionId())
+                .payload(TransactionEventCodec.encode(event))
+                .messageKey(event.getTransactionId())
+                .topic(FraudEventProducer.topicFor(event))
+                .headers(OutboxHeaders.encode(headers))
+                .status(OutboxEventStatus.FAILED.name())
+                .retryCount(0)
+                .createdAt(LocalDateTime.now())
+                .updatedAt(LocalDateTime.now())
+                .build();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(EvaluationCoreBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
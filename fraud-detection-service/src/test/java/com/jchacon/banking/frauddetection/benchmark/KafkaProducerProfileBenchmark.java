@@ -0,0 +1,99 @@
+package com.jchacon.banking.frauddetection.benchmark;
+
+import com.jchacon.banking.frauddetection.event.TransactionEvent;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.support.ResourcePropertySource;
+import reactor.core.publisher.Mono;
+import reactor.kafka.sender.KafkaSender;
+import reactor.kafka.sender.SenderOptions;
+import reactor.kafka.sender.SenderRecord;
+import reactor.kafka.sender.SenderResult;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes to fraud-detection-events with the producer settings of each profile, resolved from the
+ * same property files the service loads. Throughput reports events/sec; SampleTime reports the ack
+ * latency distribution (p0.99 is the p99). Many threads keep sends concurrent, as under real load.
+ * Needs the Kafka broker from docker-compose (override with -Dbench.kafka.bootstrap=...).
+ *
+ * Run: mvn test-compile exec:java -Dexec.classpathScope=test
+ *        -Dexec.mainClass=com.jchacon.banking.frauddetection.benchmark.KafkaProducerProfileBenchmark
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Threads(64)
+@Fork(1)
+@State(Scope.Benchmark)
+public class KafkaProducerProfileBenchmark {
+
+    private static final String TOPIC = "fraud-detection-events";
+
+    @Param({"default", "kafka-throughput"})
+    public String profile;
+
+    private KafkaSender<String, TransactionEvent> kafkaSender;
+    private TransactionEvent event;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        Map<String, Object> config = producerConfig(profile);
+        config.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, System.getProperty("bench.kafka.bootstrap", "localhost:9092"));
+        kafkaSender = KafkaSender.create(SenderOptions.<String, TransactionEvent>create(config).stopOnError(false));
+        event = TransactionEvent.builder()
+                .transactionId("BENCH")
+                .customerId("CUST-1")
+                .amount(new BigDecimal("100.00"))
+                .status("APPROVED")
+                .responseCode("00")
+                .timestamp(LocalDateTime.now())
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        kafkaSender.close();
+    }
+
+    /**
+     * Resolves spring.kafka.* the way the application does: base file, then the profile file on top.
+     */
+    static Map<String, Object> producerConfig(String profile) throws Exception {
+        StandardEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources().addLast(new ResourcePropertySource(new ClassPathResource("application.properties")));
+        if (!"default".equals(profile)) {
+            environment.getPropertySources().addFirst(new ResourcePropertySource(new ClassPathResource("application-" + profile + ".properties")));
+        }
+        KafkaProperties kafkaProperties = Binder.get(environment).bind("spring.kafka", KafkaProperties.class)
+                .orElseGet(KafkaProperties::new);
+        return kafkaProperties.buildProducerProperties(null);
+    }
+
+    @Benchmark
+    public SenderResult<String> sendAndAwaitAck() {
+        String key = "BENCH-" + ThreadLocalRandom.current().nextInt(100_000);
+        return kafkaSender.send(Mono.just(SenderRecord.create(TOPIC, null, null, key, event, key)))
+                .blockLast(Duration.ofSeconds(10));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(KafkaProducerProfileBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
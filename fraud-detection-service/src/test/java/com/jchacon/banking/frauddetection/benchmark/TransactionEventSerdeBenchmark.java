@@ -0,0 +1,82 @@
+package com.jchacon.banking.frauddetection.benchmark;
+
+import com.jchacon.banking.frauddetection.event.TransactionEvent;
+import com.jchacon.banking.frauddetection.event.TransactionEventCodec;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.Serializer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serializes and deserializes one TransactionEvent with the previous JSON path (Spring JsonSerializer /
+ * JsonDeserializer, as configured in both services) and with the binary codec. Scores are ns per event;
+ * the encoded size of each format is printed at setup as bytes per event.
+ *
+ * Run: mvn test-compile exec:java -Dexec.classpathScope=test
+ *        -Dexec.mainClass=com.jchacon.banking.frauddetection.benchmark.TransactionEventSerdeBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TransactionEventSerdeBenchmark {
+
+    private static final String TOPIC = "fraud-detection-events";
+
+    @Param({"json", "binary"})
+    public String format;
+
+    private Serializer<TransactionEvent> serializer;
+    private Deserializer<TransactionEvent> deserializer;
+    private TransactionEvent event;
+    private byte[] encoded;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        if ("json".equals(format)) {
+            serializer = new JsonSerializer<>();
+            deserializer = new JsonDeserializer<>(TransactionEvent.class, false);
+        } else {
+            serializer = (topic, value) -> TransactionEventCodec.encode(value);
+            deserializer = (topic, data) -> TransactionEventCodec.decode(data);
+        }
+        event = TransactionEvent.builder()
+                .transactionId(UUID.randomUUID().toString())
+                .customerId("CUST-000123")
+                .amount(new BigDecimal("1250.50"))
+                .status("REJECTED")
+                .responseCode("34")
+                .timestamp(LocalDateTime.now())
+                .correlationId(UUID.randomUUID().toString())
+                .build();
+        encoded = serializer.serialize(TOPIC, event);
+        System.out.printf("%n%s: %d bytes per event%n", format, encoded.length);
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return serializer.serialize(TOPIC, event);
+    }
+
+    @Benchmark
+    public TransactionEvent deserialize() {
+        return deserializer.deserialize(TOPIC, encoded);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(TransactionEventSerdeBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,96 @@
+package com.jchacon.banking.frauddetection.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.PoolMetrics;
+import io.r2dbc.spi.ConnectionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ConnectionPoolBackpressureTest {
+
+    @Mock
+    private ConnectionPool connectionPool;
+
+    @Mock
+    private PoolMetrics poolMetrics;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    private ConnectionPoolBackpressure pooled(int poolSize) {
+        when(connectionPool.getMetrics()).thenReturn(Optional.of(poolMetrics));
+        when(poolMetrics.getMaxAllocatedSize()).thenReturn(poolSize);
+        return new ConnectionPoolBackpressure(connectionPool, meterRegistry, 4);
+    }
+
+    @Test
+    @DisplayName("Should keep the reserved connections out of the stream's in-flight budget")
+    void shouldDeriveInFlightFromPoolSize() {
+        ConnectionPoolBackpressure backpressure = pooled(20);
+
+        assertEquals(16, backpressure.maxInFlight());
+    }
+
+    @Test
+    @DisplayName("Should start a queued item as soon as a running one finishes")
+    void shouldHandPermitOverOnRelease() {
+        ConnectionPoolBackpressure backpressure = pooled(5);
+        Sinks.One<String> running = Sinks.one();
+        backpressure.withCapacity(running.asMono()).subscribe();
+
+        StepVerifier.create(backpressure.withCapacity(Mono.just("queued")))
+                .expectSubscription()
+                .expectNoEvent(Duration.ofMillis(50))
+                .then(() -> running.tryEmitValue("done"))
+                .expectNext("queued")
+                .verifyComplete();
+
+        assertEquals(1.0, meterRegistry.get("fraud.stream.pool.waits").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should return the permit of a cancelled item")
+    void shouldReleasePermitOnCancel() {
+        ConnectionPoolBackpressure backpressure = pooled(5);
+        Disposable cancelled = backpressure.withCapacity(Mono.never()).subscribe();
+
+        cancelled.dispose();
+
+        StepVerifier.create(backpressure.withCapacity(Mono.just("next")))
+                .expectNext("next")
+                .expectComplete()
+                .verify(Duration.ofSeconds(1));
+    }
+
+    @Test
+    @DisplayName("Should not throttle when the connection factory is not pooled")
+    void shouldPassThroughWithoutPool() {
+        ConnectionPoolBackpressure backpressure =
+                new ConnectionPoolBackpressure(mock(ConnectionFactory.class), meterRegistry, 4);
+
+        StepVerifier.create(backpressure.withCapacity(Mono.just("item"))).expectNext("item").verifyComplete();
+        assertTrue(backpressure.maxInFlight() >= 1);
+    }
+}
@@ -0,0 +1,63 @@
+package com.jchacon.banking.frauddetection.config;
+
+import com.jchacon.banking.frauddetection.repository.CustomerLimitRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LimitRolloverSweeperTest {
+
+    @Mock
+    private CustomerLimitRepository customerLimitRepository;
+
+    private LimitRolloverSweeper sweeper;
+
+    private static final LocalDateTime DAY_START = LocalDateTime.of(2026, 3, 10, 0, 0);
+
+    @BeforeEach
+    void setUp() {
+        DailyLimitClock clock = new DailyLimitClock(Clock.fixed(Instant.parse("2026-03-10T00:01:00Z"), ZoneOffset.UTC));
+        sweeper = new LimitRolloverSweeper(customerLimitRepository, clock, 100, 1, Duration.ZERO);
+    }
+
+    @Test
+    @DisplayName("Should keep resetting pages until a short page comes back")
+    void shouldSweepInPages() {
+        when(customerLimitRepository.resetStaleLimits(eq(DAY_START), any(), eq(100)))
+                .thenReturn(Mono.just(100), Mono.just(100), Mono.just(37));
+
+        StepVerifier.create(sweeper.sweep())
+                .expectNext(237)
+                .verifyComplete();
+
+        verify(customerLimitRepository, times(3)).resetStaleLimits(eq(DAY_START), any(), eq(100));
+    }
+
+    @Test
+    @DisplayName("Should report zero and stay usable when the database fails")
+    void shouldSurviveDatabaseErrors() {
+        when(customerLimitRepository.resetStaleLimits(any(), any(), anyInt()))
+                .thenReturn(Mono.error(new RuntimeException("lock timeout")), Mono.just(0));
+
+        StepVerifier.create(sweeper.sweep()).expectNext(0).verifyComplete();
+        StepVerifier.create(sweeper.sweep()).expectNext(0).verifyComplete();
+
+        verify(customerLimitRepository, times(2)).resetStaleLimits(any(), any(), anyInt());
+    }
+}
@@ -0,0 +1,110 @@
+package com.jchacon.banking.frauddetection.config;
+
+import com.jchacon.banking.frauddetection.outbox.OutboxNotificationListener;
+import com.jchacon.banking.frauddetection.outbox.OutboxRelay;
+import com.jchacon.banking.frauddetection.outbox.OutboxRelayProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxSchedulerTest {
+
+    @Mock
+    private OutboxRelay outboxRelay;
+
+    @Mock
+    private OutboxNotificationListener notificationListener;
+
+    private SimpleMeterRegistry meterRegistry;
+    private OutboxScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        OutboxRelayProperties properties = new OutboxRelayProperties();
+        properties.setPollMin(Duration.ofMillis(100));
+        properties.setPollMax(Duration.ofSeconds(1));
+        meterRegistry = new SimpleMeterRegistry();
+        scheduler = new OutboxScheduler(outboxRelay, notificationListener, properties, meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Should back off the fallback poll while the outbox stays empty")
+    void shouldBackOffWhileIdle() {
+        when(outboxRelay.drain()).thenReturn(Mono.just(0L));
+
+        StepVerifier.withVirtualTime(() -> scheduler.relayLoop())
+                .expectSubscription()
+                .expectNoEvent(Duration.ofMillis(200)).expectNext(0L)
+                .expectNoEvent(Duration.ofMillis(400)).expectNext(0L)
+                .expectNoEvent(Duration.ofMillis(800)).expectNext(0L)
+                // Capped at poll-max
+                .expectNoEvent(Duration.ofSeconds(1)).expectNext(0L)
+                .thenCancel()
+                .verify();
+
+        assertEquals(1000.0, meterRegistry.get("outbox.relay.poll.interval").gauge().value());
+    }
+
+    @Test
+    @DisplayName("Should poll again at poll-min after a cycle that relayed rows")
+    void shouldPollQuicklyWhileBusy() {
+        when(outboxRelay.drain()).thenReturn(Mono.just(0L), Mono.just(0L), Mono.just(5L), Mono.just(0L));
+
+        StepVerifier.withVirtualTime(() -> scheduler.relayLoop())
+                .expectSubscription()
+                .expectNoEvent(Duration.ofMillis(200)).expectNext(0L)
+                .expectNoEvent(Duration.ofMillis(400)).expectNext(0L)
+                .expectNoEvent(Duration.ofMillis(100)).expectNext(5L)
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    @DisplayName("Should drain immediately on a notification instead of waiting for the poll")
+    void shouldWakeUpOnNotification() {
+        when(outboxRelay.drain()).thenReturn(Mono.just(0L));
+
+        StepVerifier.withVirtualTime(() -> scheduler.relayLoop())
+                .expectSubscription()
+                .expectNoEvent(Duration.ofMillis(50))
+                .then(scheduler::wakeUp)
+                .expectNext(0L)
+                .thenCancel()
+                .verify();
+
+        assertEquals(1.0, meterRegistry.get("outbox.relay.wakeups").tag("source", "notify").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should not lose a notification that arrives while a drain is running")
+    void shouldKeepNotificationDuringDrain() {
+        Sinks.One<Long> runningDrain = Sinks.one();
+        when(outboxRelay.drain()).thenReturn(runningDrain.asMono(), Mono.just(0L));
+
+        StepVerifier.withVirtualTime(() -> scheduler.relayLoop())
+                .expectSubscription()
+                .then(scheduler::wakeUp)
+                .then(() -> runningDrain.tryEmitValue(0L))
+                // No sleep: the notification already arrived
+                .expectNext(0L)
+                .expectNoEvent(Duration.ofMillis(400))
+                .expectNext(0L)
+                .thenCancel()
+                .verify();
+
+        verify(outboxRelay, times(2)).drain();
+    }
+}
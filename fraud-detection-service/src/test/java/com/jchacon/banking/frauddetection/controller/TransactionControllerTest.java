@@ -20,6 +20,7 @@ import org.springframework.http.MediaType;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.math.BigDecimal;
@@ -109,6 +110,34 @@ class TransactionControllerTest {
                 .jsonPath("$.responseCode").isEqualTo("99");
     }
 
+    @Test
+    @DisplayName("Should stream per-item results for an NDJSON batch")
+    void shouldStreamBatchResults() {
+        // Arrange
+        when(fraudService.processBatch(any())).thenAnswer(i -> i.<Flux<ProcessTransactionRequestDTO>>getArgument(0)
+                .map(item -> ProcessTransactionResponseDTO.builder()
+                        .transactionId(item.getTransactionId())
+                        .status("APPROVED")
+                        .responseCode("00")
+                        .build()));
+
+        String body = "{\"transactionId\":\"TXN-1\"}\n{\"transactionId\":\"TXN-2\"}\n";
+
+        // Act & Assert
+        webTestClient
+                .mutateWith(mockJwt().authorities(new SimpleGrantedAuthority("SCOPE_transaction:write")))
+                .post()
+                .uri("/api/v1/fraud/process/batch")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBodyList(ProcessTransactionResponseDTO.class)
+                .hasSize(2);
+    }
+
     @Test
     @DisplayName("Should return 401 Unauthorized when no JWT is provided")
     void shouldReturnUnauthorizedWhenNoToken() {
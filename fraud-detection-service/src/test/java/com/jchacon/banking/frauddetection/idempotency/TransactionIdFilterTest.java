@@ -0,0 +1,146 @@
+package com.jchacon.banking.frauddetection.idempotency;
+
+import com.jchacon.banking.frauddetection.model.RecentTransactionId;
+import com.jchacon.banking.frauddetection.repository.TransactionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionIdFilterTest {
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    private MutableClock clock;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(Instant.parse("2026-03-10T15:00:00Z"));
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    @DisplayName("Should treat every id as a possible hit until the rebuild has finished")
+    void shouldNotAnswerMissBeforeRebuild() {
+        TransactionIdFilter filter = filter(true);
+
+        assertTrue(filter.mightContain("TXN-NEW"));
+    }
+
+    @Test
+    @DisplayName("Should know the ids loaded at startup and the ids put afterwards")
+    void shouldRebuildFromRecentTransactions() {
+        when(transactionRepository.findRecentTransactionIds(any())).thenReturn(Flux.just(
+                new RecentTransactionId("TXN-OLD", LocalDateTime.of(2026, 3, 10, 3, 0))));
+        TransactionIdFilter filter = filter(true);
+
+        assertEquals(1L, filter.rebuild().block());
+        filter.put("TXN-LIVE");
+
+        assertTrue(filter.mightContain("TXN-OLD"));
+        assertTrue(filter.mightContain("TXN-LIVE"));
+        assertFalse(filter.mightContain("TXN-NEW"));
+    }
+
+    @Test
+    @DisplayName("Should keep an id for at least the TTL and drop it once its window has rotated out")
+    void shouldExpireIdsWithTheTtl() {
+        when(transactionRepository.findRecentTransactionIds(any())).thenReturn(Flux.empty());
+        TransactionIdFilter filter = filter(true);
+        filter.rebuild().block();
+        filter.put("TXN-1");
+
+        clock.advance(Duration.ofHours(24));
+        assertTrue(filter.mightContain("TXN-1"));
+
+        clock.advance(Duration.ofHours(6));
+        assertFalse(filter.mightContain("TXN-1"));
+    }
+
+    @Test
+    @DisplayName("Should stay close to the configured false-positive rate and export it")
+    void shouldHonourConfiguredFalsePositiveRate() {
+        when(transactionRepository.findRecentTransactionIds(any())).thenReturn(Flux.empty());
+        TransactionIdFilter filter = filter(true);
+        filter.rebuild().block();
+        for (int i = 0; i < 2_500; i++) {
+            filter.put("TXN-SEEN-" + i);
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (filter.mightContain("TXN-NEW-" + i)) {
+                falsePositives++;
+                filter.recordFalsePositive();
+            }
+        }
+
+        // Windows are sized for 10k / 4 ids at 1%
+        assertTrue(falsePositives < 200, "false positives: " + falsePositives);
+        double observed = meterRegistry.get("idempotency.bloom.false.positive.rate").gauge().value();
+        assertEquals(falsePositives / 10_000.0, observed, 1e-9);
+        assertTrue(meterRegistry.get("idempotency.bloom.false.positive.rate.expected").gauge().value() < 0.02);
+    }
+
+    @Test
+    @DisplayName("Should always answer possible hit when disabled")
+    void shouldPassThroughWhenDisabled() {
+        TransactionIdFilter filter = filter(false);
+        filter.rebuild().block();
+        filter.put("TXN-1");
+
+        assertTrue(filter.mightContain("TXN-NEW"));
+    }
+
+    private TransactionIdFilter filter(boolean enabled) {
+        return new TransactionIdFilter(transactionRepository, meterRegistry, clock, enabled, Duration.ofHours(24), 10_000, 0.01, 4);
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
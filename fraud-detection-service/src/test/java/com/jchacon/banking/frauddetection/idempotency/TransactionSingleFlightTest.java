@@ -0,0 +1,98 @@
+package com.jchacon.banking.frauddetection.idempotency;
+
+import com.jchacon.banking.frauddetection.model.ProcessTransactionResponseDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TransactionSingleFlightTest {
+
+    private static final String TXN_ID = "TXN-100";
+
+    private SimpleMeterRegistry meterRegistry;
+    private TransactionSingleFlight singleFlight;
+    private AtomicInteger executions;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        singleFlight = new TransactionSingleFlight(meterRegistry, 2);
+        executions = new AtomicInteger();
+    }
+
+    @Test
+    @DisplayName("Should run concurrent requests for the same id once and give every caller the result")
+    void shouldShareRunningAttempt() {
+        Sinks.One<ProcessTransactionResponseDTO> result = Sinks.one();
+        Mono<ProcessTransactionResponseDTO> first = singleFlight.execute(TXN_ID, () -> counted(result.asMono()));
+        Mono<ProcessTransactionResponseDTO> retry = singleFlight.execute(TXN_ID, () -> counted(result.asMono()));
+
+        StepVerifier.create(Mono.zip(first, retry))
+                .then(() -> result.tryEmitValue(response()))
+                .expectNextMatches(both -> both.getT1() == both.getT2())
+                .verifyComplete();
+
+        assertEquals(1, executions.get());
+        assertEquals(1.0, calls("leader"));
+        assertEquals(1.0, calls("coalesced"));
+        assertEquals(0, singleFlight.inFlightCount());
+    }
+
+    @Test
+    @DisplayName("Should not replay a failed attempt to the next retry")
+    void shouldForgetFailedAttempt() {
+        StepVerifier.create(singleFlight.execute(TXN_ID, () -> counted(Mono.error(new RuntimeException("DB down")))))
+                .expectError()
+                .verify();
+        StepVerifier.create(singleFlight.execute(TXN_ID, () -> counted(Mono.just(response()))))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        assertEquals(2, executions.get());
+        assertEquals(0, singleFlight.inFlightCount());
+    }
+
+    @Test
+    @DisplayName("Should run new ids unshared once max-keys ids are in flight")
+    void shouldBypassWhenFull() {
+        Sinks.One<ProcessTransactionResponseDTO> pending = Sinks.one();
+        singleFlight.execute("TXN-1", () -> pending.asMono()).subscribe();
+        singleFlight.execute("TXN-2", () -> pending.asMono()).subscribe();
+
+        StepVerifier.create(singleFlight.execute(TXN_ID, () -> counted(Mono.just(response()))))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        assertEquals(2, singleFlight.inFlightCount());
+        assertEquals(1.0, calls("bypassed"));
+        pending.tryEmitValue(response());
+        assertEquals(0, singleFlight.inFlightCount());
+    }
+
+    private Mono<ProcessTransactionResponseDTO> counted(Mono<ProcessTransactionResponseDTO> work) {
+        return Mono.defer(() -> {
+            executions.incrementAndGet();
+            return work;
+        });
+    }
+
+    private double calls(String result) {
+        return meterRegistry.get("idempotency.singleflight.calls").tag("result", result).counter().count();
+    }
+
+    private static ProcessTransactionResponseDTO response() {
+        return ProcessTransactionResponseDTO.builder()
+                .transactionId(TXN_ID)
+                .status("APPROVED")
+                .responseCode("00")
+                .build();
+    }
+}
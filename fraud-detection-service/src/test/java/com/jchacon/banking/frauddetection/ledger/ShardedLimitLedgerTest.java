@@ -0,0 +1,221 @@
+package com.jchacon.banking.frauddetection.ledger;
+
+import com.jchacon.banking.frauddetection.config.DailyLimitClock;
+import com.jchacon.banking.frauddetection.entity.CustomerLimitEntity;
+import com.jchacon.banking.frauddetection.model.LimitReservation;
+import com.jchacon.banking.frauddetection.repository.CustomerLimitRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ShardedLimitLedgerTest {
+
+    @Mock
+    private CustomerLimitRepository customerLimitRepository;
+
+    private ShardedLimitLedger ledger;
+    private CustomerLimitEntity seed;
+
+    private static final String CUSTOMER_ID = "CUST-777";
+    private static final Instant NOW = Instant.parse("2026-03-10T15:00:00Z");
+
+    @BeforeEach
+    void setUp() {
+        DailyLimitClock clock = new DailyLimitClock(Clock.fixed(NOW, ZoneOffset.UTC));
+        ledger = new ShardedLimitLedger(customerLimitRepository, clock, 4, Duration.ofMinutes(10));
+        seed = CustomerLimitEntity.builder()
+                .customerId(CUSTOMER_ID)
+                .dailyMaxAmount(new BigDecimal("500.00"))
+                .currentDailySpent(new BigDecimal("100.00"))
+                .lastReset(LocalDateTime.of(2026, 3, 10, 0, 0, 5))
+                .build();
+        when(customerLimitRepository.loadLedgerSeed(eq(CUSTOMER_ID), any())).thenReturn(Mono.just(seed));
+    }
+
+    @AfterEach
+    void tearDown() {
+        // Shutdown flushes whatever is still pending
+        lenient().when(customerLimitRepository.applyLedgerDeltas(any(), any(), any(), any())).thenReturn(Mono.just(1));
+        ledger.shutdown();
+    }
+
+    @Test
+    @DisplayName("Should load a customer once and decide in memory afterwards")
+    void shouldApproveFromMemoryAfterFirstLoad() {
+        StepVerifier.create(ledger.reserve(CUSTOMER_ID, new BigDecimal("300.00")))
+                .expectNextMatches(LimitReservation::isApproved)
+                .verifyComplete();
+        StepVerifier.create(ledger.reserve(CUSTOMER_ID, new BigDecimal("150.00")))
+                .expectNextMatches(r -> !r.isApproved() && r.getProjectedSpent().compareTo(new BigDecimal("550.00")) == 0)
+                .verifyComplete();
+
+        verify(customerLimitRepository, times(1)).loadLedgerSeed(CUSTOMER_ID, LocalDateTime.of(2026, 3, 10, 0, 0));
+    }
+
+    @Test
+    @DisplayName("Should round amounts to the column scale before deciding at the limit boundary")
+    void shouldDecideOnRoundedAmounts() {
+        // 100 spent out of 500: 399.99995 is stored as 400.0000 and fills the limit exactly
+        StepVerifier.create(ledger.reserve(CUSTOMER_ID, new BigDecimal("399.99995")))
+                .expectNextMatches(r -> r.isApproved() && r.getProjectedSpent().compareTo(new BigDecimal("500")) == 0)
+                .verifyComplete();
+        StepVerifier.create(ledger.reserve(CUSTOMER_ID, new BigDecimal("0.00005")))
+                .expectNextMatches(r -> !r.isApproved() && r.getProjectedSpent().compareTo(new BigDecimal("500.0001")) == 0)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Should flush the coalesced delta of a customer in one statement")
+    void shouldFlushCoalescedDeltas() {
+        when(customerLimitRepository.applyLedgerDeltas(any(), any(), any(), any())).thenReturn(Mono.just(1));
+
+        Flux.range(0, 5)
+                .concatMap(i -> ledger.reserve(CUSTOMER_ID, new BigDecimal("20.00")))
+                .blockLast();
+        ledger.flush().block();
+
+        ArgumentCaptor<String[]> ids = ArgumentCaptor.forClass(String[].class);
+        ArgumentCaptor<BigDecimal[]> deltas = ArgumentCaptor.forClass(BigDecimal[].class);
+        verify(customerLimitRepository, times(1)).applyLedgerDeltas(ids.capture(), deltas.capture(), any(), any());
+        assertArrayEquals(new String[]{CUSTOMER_ID}, ids.getValue());
+        assertEquals(0, deltas.getValue()[0].compareTo(new BigDecimal("100.00")));
+
+        // Nothing left to write
+        ledger.flush().block();
+        verify(customerLimitRepository, times(1)).applyLedgerDeltas(any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Should keep deltas for the next flush when the write fails")
+    void shouldRetryDeltasAfterFailedFlush() {
+        when(customerLimitRepository.applyLedgerDeltas(any(), any(), any(), any()))
+                .thenReturn(Mono.error(new RuntimeException("DB down")))
+                .thenReturn(Mono.just(1));
+
+        ledger.reserve(CUSTOMER_ID, new BigDecimal("50.00")).block();
+        ledger.flush().block();
+        ledger.flush().block();
+
+        ArgumentCaptor<BigDecimal[]> deltas = ArgumentCaptor.forClass(BigDecimal[].class);
+        verify(customerLimitRepository, times(2)).applyLedgerDeltas(any(), deltas.capture(), any(), any());
+        assertEquals(0, deltas.getAllValues().get(1)[0].compareTo(new BigDecimal("50.00")));
+    }
+
+    @Test
+    @DisplayName("Rollover: Should start the day from zero when last_reset is before today")
+    void shouldRolloverStaleCustomerOnFirstTouch() {
+        // Stored 450.00 is yesterday's spend, the seed query only sums today's approvals: none yet
+        seed.setCurrentDailySpent(BigDecimal.ZERO);
+        seed.setLastReset(LocalDateTime.of(2026, 3, 9, 8, 0));
+        when(customerLimitRepository.applyLedgerDeltas(any(), any(), any(), any())).thenReturn(Mono.just(1));
+
+        StepVerifier.create(ledger.reserve(CUSTOMER_ID, new BigDecimal("100.00")))
+                .expectNextMatches(r -> r.isApproved() && r.getProjectedSpent().compareTo(new BigDecimal("100.00")) == 0)
+                .verifyComplete();
+        ledger.flush().block();
+
+        // The flush overwrites the stored amount instead of adding to yesterday's
+        ArgumentCaptor<BigDecimal[]> deltas = ArgumentCaptor.forClass(BigDecimal[].class);
+        ArgumentCaptor<Boolean[]> resets = ArgumentCaptor.forClass(Boolean[].class);
+        verify(customerLimitRepository).applyLedgerDeltas(any(), deltas.capture(), resets.capture(), any());
+        assertEquals(0, deltas.getValue()[0].compareTo(new BigDecimal("100.00")));
+        assertArrayEquals(new Boolean[]{true}, resets.getValue());
+    }
+
+    @Test
+    @DisplayName("Rollover: Should keep today's approvals when the service crashed before the first flush of the day")
+    void shouldKeepTodaysApprovalsOfStaleCheckpoint() {
+        // last_reset is yesterday but 300.00 was approved since midnight before the crash
+        seed.setCurrentDailySpent(new BigDecimal("300.00"));
+        seed.setLastReset(LocalDateTime.of(2026, 3, 9, 8, 0));
+        when(customerLimitRepository.applyLedgerDeltas(any(), any(), any(), any())).thenReturn(Mono.just(1));
+
+        StepVerifier.create(ledger.reserve(CUSTOMER_ID, new BigDecimal("250.00")))
+                .expectNextMatches(r -> !r.isApproved())
+                .verifyComplete();
+        StepVerifier.create(ledger.reserve(CUSTOMER_ID, new BigDecimal("200.00")))
+                .expectNextMatches(r -> r.isApproved() && r.getProjectedSpent().compareTo(new BigDecimal("500.00")) == 0)
+                .verifyComplete();
+        ledger.flush().block();
+
+        // The flush overwrites the stored amount with the whole day: seeded approvals plus the new one
+        ArgumentCaptor<BigDecimal[]> deltas = ArgumentCaptor.forClass(BigDecimal[].class);
+        ArgumentCaptor<Boolean[]> resets = ArgumentCaptor.forClass(Boolean[].class);
+        verify(customerLimitRepository).applyLedgerDeltas(any(), deltas.capture(), resets.capture(), any());
+        assertEquals(0, deltas.getValue()[0].compareTo(new BigDecimal("500.00")));
+        assertArrayEquals(new Boolean[]{true}, resets.getValue());
+    }
+
+    @Test
+    @DisplayName("Rollover: Should roll a customer seeded before midnight over without reloading it")
+    void shouldRolloverCustomerSeededBeforeMidnight() {
+        AtomicReference<LocalDateTime> now = new AtomicReference<>(LocalDateTime.of(2026, 3, 10, 23, 59));
+        ledger.shutdown();
+        ledger = new ShardedLimitLedger(customerLimitRepository, new DailyLimitClock() {
+            @Override
+            public LocalDateTime now() {
+                return now.get();
+            }
+        }, 4, Duration.ofMinutes(10));
+        // Seeded with the approvals since 2026-03-10T00:00, the day start passed to the seed query
+        seed.setCurrentDailySpent(new BigDecimal("400.00"));
+        when(customerLimitRepository.applyLedgerDeltas(any(), any(), any(), any())).thenReturn(Mono.just(1));
+
+        StepVerifier.create(ledger.reserve(CUSTOMER_ID, new BigDecimal("150.00")))
+                .expectNextMatches(r -> !r.isApproved())
+                .verifyComplete();
+
+        now.set(LocalDateTime.of(2026, 3, 11, 0, 1));
+        StepVerifier.create(ledger.reserve(CUSTOMER_ID, new BigDecimal("450.00")))
+                .expectNextMatches(r -> r.isApproved() && r.getProjectedSpent().compareTo(new BigDecimal("450.00")) == 0)
+                .verifyComplete();
+        ledger.flush().block();
+
+        verify(customerLimitRepository, times(1)).loadLedgerSeed(CUSTOMER_ID, LocalDateTime.of(2026, 3, 10, 0, 0));
+        // The new day replaces the stored amount
+        ArgumentCaptor<BigDecimal[]> deltas = ArgumentCaptor.forClass(BigDecimal[].class);
+        ArgumentCaptor<Boolean[]> resets = ArgumentCaptor.forClass(Boolean[].class);
+        verify(customerLimitRepository).applyLedgerDeltas(any(), deltas.capture(), resets.capture(), any());
+        assertEquals(0, deltas.getValue()[0].compareTo(new BigDecimal("450.00")));
+        assertArrayEquals(new Boolean[]{true}, resets.getValue());
+    }
+
+    @Test
+    @DisplayName("Concurrency: Should never exceed the daily limit under parallel load")
+    void shouldNeverOverspendUnderParallelLoad() {
+        Long approvals = Flux.range(0, 400)
+                .parallel(16)
+                .runOn(Schedulers.parallel())
+                .flatMap(i -> ledger.reserve(CUSTOMER_ID, new BigDecimal("10.00")))
+                .sequential()
+                .filter(LimitReservation::isApproved)
+                .count()
+                .block();
+
+        // 100 already spent out of 500 leaves room for exactly 40 reservations of 10
+        assertEquals(40L, approvals);
+    }
+}
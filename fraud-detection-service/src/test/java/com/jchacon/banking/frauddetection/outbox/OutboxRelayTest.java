@@ -0,0 +1,230 @@
+package com.jchacon.banking.frauddetection.outbox;
+
+import com.jchacon.banking.frauddetection.entity.OutboxEventEntity;
+import com.jchacon.banking.frauddetection.event.TransactionEvent;
+import com.jchacon.banking.frauddetection.event.TransactionEventCodec;
+import com.jchacon.banking.frauddetection.producer.FraudEventProducer;
+import com.jchacon.banking.frauddetection.repository.OutboxRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.stubbing.Answer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.kafka.sender.SenderRecord;
+import reactor.kafka.sender.SenderResult;
+import reactor.test.StepVerifier;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxRelayTest {
+
+    @Mock
+    private OutboxRepository outboxRepository;
+
+    @Mock
+    private FraudEventProducer fraudEventProducer;
+
+    private OutboxRelayProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+    private OutboxRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        properties = new OutboxRelayProperties();
+        properties.setBatchSize(3);
+        meterRegistry = new SimpleMeterRegistry();
+        relay = new OutboxRelay(outboxRepository, fraudEventProducer, properties, meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Should remove a fully published batch with one bulk delete")
+    void shouldDeletePublishedBatchAtOnce() {
+        when(outboxRepository.claimBatch(eq(3), any(), any(), any())).thenReturn(Flux.just(row(1), row(2)));
+        when(fraudEventProducer.<Long>sendAll(any())).thenAnswer(acknowledge(Set.of()));
+        when(outboxRepository.deleteAllByIds(any())).thenReturn(Mono.just(2));
+
+        StepVerifier.create(relay.drain())
+                .expectNext(2L)
+                .verifyComplete();
+
+        ArgumentCaptor<Long[]> ids = ArgumentCaptor.forClass(Long[].class);
+        verify(outboxRepository, times(1)).deleteAllByIds(ids.capture());
+        assertArrayEquals(new Long[]{1L, 2L}, ids.getValue());
+        verify(outboxRepository, never()).markFailed(any(), any(), anyInt(), any());
+    }
+
+    @Test
+    @DisplayName("Should hand failed rows back in one update and delete only the sent ones")
+    void shouldRescheduleFailedRows() {
+        when(outboxRepository.claimBatch(eq(3), any(), any(), any())).thenReturn(Flux.just(row(1), row(2)));
+        when(fraudEventProducer.<Long>sendAll(any())).thenAnswer(acknowledge(Set.of("TXN-1")));
+        when(outboxRepository.deleteAllByIds(any())).thenReturn(Mono.just(1));
+        when(outboxRepository.markFailed(any(), any(), anyInt(), any())).thenReturn(Mono.just(1));
+
+        relay.drain().block();
+
+        verify(outboxRepository).deleteAllByIds(new Long[]{2L});
+        verify(outboxRepository).markFailed(eq(new Long[]{1L}), eq(new String[]{"broker down"}), eq(10), any());
+        assertEquals(1.0, meterRegistry.get("outbox.relay.events").tag("path", "relay").tag("result", "failed").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should keep claiming while batches come back full")
+    void shouldDrainUntilShortBatch() {
+        when(outboxRepository.claimBatch(eq(3), any(), any(), any()))
+                .thenReturn(Flux.just(row(1), row(2), row(3)))
+                .thenReturn(Flux.just(row(4)));
+        when(fraudEventProducer.<Long>sendAll(any())).thenAnswer(acknowledge(Set.of()));
+        when(outboxRepository.deleteAllByIds(any())).thenReturn(Mono.just(1));
+
+        StepVerifier.create(relay.drain())
+                .expectNext(4L)
+                .verifyComplete();
+
+        verify(outboxRepository, times(2)).claimBatch(eq(3), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Should not start a second drain while one is running")
+    void shouldSkipOverlappingDrain() {
+        Sinks.Empty<Void> kafka = Sinks.empty();
+        when(outboxRepository.claimBatch(eq(3), any(), any(), any())).thenReturn(Flux.just(row(1)));
+        when(fraudEventProducer.<Long>sendAll(any())).thenAnswer(invocation -> kafka.asMono()
+                .thenMany(acknowledge(Set.of()).answer(invocation)));
+        when(outboxRepository.deleteAllByIds(any())).thenReturn(Mono.just(1));
+
+        Mono<Long> first = relay.drain().cache();
+        first.subscribe();
+        StepVerifier.create(relay.drain())
+                .expectNext(0L)
+                .verifyComplete();
+
+        kafka.tryEmitEmpty();
+        assertEquals(1L, first.block());
+        verify(outboxRepository, times(1)).claimBatch(eq(3), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Should match acks to rows by outbox id, whatever order they come back in")
+    void shouldMatchResultsByCorrelationMetadata() {
+        when(outboxRepository.claimBatch(eq(3), any(), any(), any())).thenReturn(Flux.just(row(1), row(2), row(3)))
+                .thenReturn(Flux.empty());
+        when(fraudEventProducer.<Long>sendAll(any())).thenAnswer(invocation -> acknowledge(Set.of("TXN-3"))
+                .answer(invocation).collectList().flatMapMany(results -> Flux.fromIterable(results.reversed())));
+        when(outboxRepository.deleteAllByIds(any())).thenReturn(Mono.just(2));
+        when(outboxRepository.markFailed(any(), any(), anyInt(), any())).thenReturn(Mono.just(1));
+
+        relay.drain().block();
+
+        verify(outboxRepository).deleteAllByIds(new Long[]{2L, 1L});
+        verify(outboxRepository).markFailed(eq(new Long[]{3L}), any(), eq(10), any());
+    }
+
+    @Test
+    @DisplayName("Should hand back every unacknowledged row when the sender aborts the batch")
+    void shouldRescheduleRowsOfAbortedBatch() {
+        when(outboxRepository.claimBatch(eq(3), any(), any(), any())).thenReturn(Flux.just(row(1), row(2)));
+        when(fraudEventProducer.<Long>sendAll(any())).thenAnswer(invocation -> acknowledge(Set.of())
+                .answer(invocation).take(1).concatWith(Mono.error(new IllegalStateException("sender closed"))));
+        when(outboxRepository.deleteAllByIds(any())).thenReturn(Mono.just(1));
+        when(outboxRepository.markFailed(any(), any(), anyInt(), any())).thenReturn(Mono.just(1));
+
+        StepVerifier.create(relay.drain())
+                .expectNext(2L)
+                .verifyComplete();
+
+        verify(outboxRepository).deleteAllByIds(new Long[]{1L});
+        verify(outboxRepository).markFailed(eq(new Long[]{2L}), eq(new String[]{"sender closed"}), eq(10), any());
+    }
+
+    @Test
+    @DisplayName("Should forward the stored key, value bytes and headers without re-encoding")
+    @SuppressWarnings("unchecked")
+    void shouldForwardStoredRecordAsIs() {
+        OutboxEventEntity row = row(1);
+        when(outboxRepository.claimBatch(eq(3), any(), any(), any())).thenReturn(Flux.just(row));
+        ArgumentCaptor<Flux<SenderRecord<String, byte[], Long>>> records = ArgumentCaptor.forClass(Flux.class);
+        when(fraudEventProducer.<Long>sendAll(records.capture())).thenAnswer(acknowledge(Set.of()));
+        when(outboxRepository.deleteAllByIds(any())).thenReturn(Mono.just(1));
+
+        relay.drain().block();
+
+        ProducerRecord<String, byte[]> sent = records.getValue().blockFirst();
+        assertEquals("fraud-detection-alerts", sent.topic());
+        assertEquals("TXN-1", sent.key());
+        assertSame(row.getPayload(), sent.value());
+        assertArrayEquals("corr-1".getBytes(), sent.headers().lastHeader("correlationId").value());
+    }
+
+    @Test
+    @DisplayName("Fast path: Should publish a committed row right away and delete it")
+    void shouldPublishCommittedRowImmediately() {
+        when(fraudEventProducer.retryFromOutbox(any())).thenReturn(Mono.empty());
+        when(outboxRepository.deleteAllByIds(any())).thenReturn(Mono.just(1));
+
+        relay.dispatchCommitted(row(7));
+
+        verify(outboxRepository).deleteAllByIds(new Long[]{7L});
+        verify(outboxRepository, never()).claimBatch(anyInt(), any(), any(), any());
+        assertEquals(1.0, meterRegistry.get("outbox.relay.events").tag("path", "fast_path").tag("result", "published").counter().count());
+    }
+
+    @Test
+    @DisplayName("Fast path: Should hand a row the broker refused to the relay as FAILED")
+    void shouldLeaveRefusedRowToRelay() {
+        when(fraudEventProducer.retryFromOutbox(any())).thenReturn(Mono.error(new RuntimeException("broker down")));
+        when(outboxRepository.markFailed(any(), any(), anyInt(), any())).thenReturn(Mono.just(1));
+
+        relay.dispatchCommitted(row(7));
+
+        verify(outboxRepository).markFailed(eq(new Long[]{7L}), eq(new String[]{"broker down"}), eq(10), any());
+        verify(outboxRepository, never()).deleteAllByIds(any());
+    }
+
+    /**
+     * Stand-in for the Kafka sender: one result per record, failing the transaction ids given.
+     */
+    @SuppressWarnings("unchecked")
+    private static Answer<Flux<SenderResult<Long>>> acknowledge(Set<String> failing) {
+        return invocation -> ((Flux<SenderRecord<String, byte[], Long>>) invocation.getArgument(0))
+                .map(record -> new Result(null,
+                        failing.contains(record.key()) ? new RuntimeException("broker down") : null,
+                        record.correlationMetadata()));
+    }
+
+    private record Result(RecordMetadata recordMetadata, Exception exception, Long correlationMetadata)
+            implements SenderResult<Long> {
+    }
+
+    private OutboxEventEntity row(long id) {
+        RecordHeaders headers = new RecordHeaders();
+        headers.add("correlationId", ("corr-" + id).getBytes());
+        return OutboxEventEntity.builder()
+                .id(id)
+                .transactionId("TXN-" + id)
+                .payload(TransactionEventCodec.encode(TransactionEvent.builder().transactionId("TXN-" + id).build()))
+                .messageKey("TXN-" + id)
+                .topic("fraud-detection-alerts")
+                .headers(OutboxHeaders.encode(headers))
+                .status("PROCESSING")
+                .build();
+    }
+}
@@ -0,0 +1,101 @@
+package com.jchacon.banking.frauddetection.rule;
+
+import com.jchacon.banking.frauddetection.model.ProcessTransactionRequestDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FraudRuleEngineTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private FraudRuleProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        properties = new FraudRuleProperties();
+        properties.setBlockedIpRanges(List.of("10.0.0.0/8", "192.168.1.15"));
+        properties.setBlockedMccs(Set.of("7995"));
+        properties.setChannelMaxAmount(Map.of("atm", new BigDecimal("2000.00")));
+    }
+
+    @Test
+    @DisplayName("Should reject blocked IP ranges, MCCs and amounts over the channel cap")
+    void shouldRejectOnEachBuiltInRule() {
+        FraudRuleEngine engine = engine();
+
+        assertEquals(IpBlocklistRule.NAME, engine.evaluate(request("10.20.30.40", "5411", "WEB", "10.00")).getRuleName());
+        assertEquals(IpBlocklistRule.NAME, engine.evaluate(request("192.168.1.15", "5411", "WEB", "10.00")).getRuleName());
+        assertEquals(MccBlocklistRule.NAME, engine.evaluate(request("8.8.8.8", "7995", "WEB", "10.00")).getRuleName());
+        assertEquals(ChannelAmountCapRule.NAME, engine.evaluate(request("8.8.8.8", "5411", "ATM", "2500.00")).getRuleName());
+
+        assertFalse(engine.evaluate(request("192.168.1.16", "5411", "ATM", "2000.00")).isRejected());
+        assertEquals(1.0, meterRegistry.get("fraud.rule.rejections").tag("rule", MccBlocklistRule.NAME).counter().count());
+    }
+
+    @Test
+    @DisplayName("Should run custom FraudRule beans after the built-in rules")
+    void shouldAppendCustomRules() {
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        beans.addBean("weekendRule", new FraudRule() {
+            @Override
+            public String name() {
+                return "always-reject";
+            }
+
+            @Override
+            public RuleResult evaluate(ProcessTransactionRequestDTO request) {
+                return RuleResult.reject(name(), null, "n/a");
+            }
+        });
+        FraudRuleEngine engine = new FraudRuleEngine(properties, beans.getBeanProvider(FraudRule.class), meterRegistry);
+
+        assertEquals(List.of(IpBlocklistRule.NAME, MccBlocklistRule.NAME, ChannelAmountCapRule.NAME, "always-reject"),
+                engine.activeRules());
+    }
+
+    @Test
+    @DisplayName("Reload: Should swap the rule set and keep the old one when the new config is invalid")
+    void shouldSwapRuleSetOnReload() {
+        FraudRuleEngine engine = engine();
+        ProcessTransactionRequestDTO gambling = request("8.8.8.8", "7995", "WEB", "10.00");
+        assertTrue(engine.evaluate(gambling).isRejected());
+
+        FraudRuleProperties updated = new FraudRuleProperties();
+        updated.setBlockedMccs(Set.of("6051"));
+        engine.reload(updated);
+        assertFalse(engine.evaluate(gambling).isRejected());
+
+        FraudRuleProperties invalid = new FraudRuleProperties();
+        invalid.setBlockedIpRanges(List.of("300.1.1.1/8"));
+        assertThrows(IllegalArgumentException.class, () -> engine.reload(invalid));
+        assertEquals(List.of(MccBlocklistRule.NAME), engine.activeRules());
+    }
+
+    private FraudRuleEngine engine() {
+        return new FraudRuleEngine(properties, new StaticListableBeanFactory().getBeanProvider(FraudRule.class), meterRegistry);
+    }
+
+    private ProcessTransactionRequestDTO request(String ip, String mcc, String channel, String amount) {
+        return ProcessTransactionRequestDTO.builder()
+                .transactionId("TXN-RULE")
+                .customerId("CUST-777")
+                .ipAddress(ip)
+                .mcc(mcc)
+                .channel(channel)
+                .amount(new BigDecimal(amount))
+                .build();
+    }
+}
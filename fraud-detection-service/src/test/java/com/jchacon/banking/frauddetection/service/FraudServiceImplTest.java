@@ -1,34 +1,73 @@
 package com.jchacon.banking.frauddetection.service;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jchacon.banking.frauddetection.config.BatchProcessingProperties;
+import com.jchacon.banking.frauddetection.config.ConnectionPoolBackpressure;
+import com.jchacon.banking.frauddetection.config.DailyLimitClock;
+import com.jchacon.banking.frauddetection.entity.OutboxEventEntity;
+import com.jchacon.banking.frauddetection.event.TransactionEvent;
+import com.jchacon.banking.frauddetection.event.TransactionEventCodec;
+import com.jchacon.banking.frauddetection.outbox.OutboxHeaders;
 import com.jchacon.banking.frauddetection.repository.OutboxRepository;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
 import io.micrometer.tracing.Span;
 import io.micrometer.tracing.TraceContext;
 import io.micrometer.tracing.Tracer;
 
 import com.jchacon.banking.frauddetection.entity.CustomerLimitEntity;
 import com.jchacon.banking.frauddetection.entity.TransactionEntity;
+import com.jchacon.banking.frauddetection.exception.BusinessException;
 import com.jchacon.banking.frauddetection.exception.TechnicalException;
+import com.jchacon.banking.frauddetection.idempotency.TransactionIdFilter;
+import com.jchacon.banking.frauddetection.idempotency.TransactionSingleFlight;
+import com.jchacon.banking.frauddetection.outbox.OutboxRelay;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import com.jchacon.banking.frauddetection.model.IdempotencyClaim;
+import com.jchacon.banking.frauddetection.model.LimitReservation;
 import com.jchacon.banking.frauddetection.model.ProcessTransactionRequestDTO;
+import com.jchacon.banking.frauddetection.model.ProcessTransactionResponseDTO;
 import com.jchacon.banking.frauddetection.model.enums.OperationType;
-import com.jchacon.banking.frauddetection.repository.CustomerLimitRepository;
+import com.jchacon.banking.frauddetection.model.enums.TransactionStatus;
 import com.jchacon.banking.frauddetection.repository.TransactionRepository;
+import com.jchacon.banking.frauddetection.rule.FraudRuleEngine;
+import com.jchacon.banking.frauddetection.rule.RuleResult;
 import com.jchacon.banking.frauddetection.service.impl.FraudServiceImpl;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
-
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
@@ -39,11 +78,14 @@ class FraudServiceImplTest {
     private TransactionRepository transactionRepository;
 
     @Mock
-    private CustomerLimitRepository customerLimitRepository;
+    private LimitService limitService;
 
     @Mock
     private IdempotencyService idempotencyService;
 
+    @Mock
+    private FraudRuleEngine fraudRuleEngine;
+
     @Mock
     private Tracer tracer;
 
@@ -51,7 +93,28 @@ class FraudServiceImplTest {
     private OutboxRepository outboxRepository; // New dependency added to service
 
     @Mock
-    private ObjectMapper objectMapper; // New dependency added to service
+    private TransactionalOperator transactionalOperator;
+
+    @Spy
+    private Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    @Spy
+    private BatchProcessingProperties batchProperties = new BatchProcessingProperties();
+
+    @Mock
+    private ConnectionPoolBackpressure poolBackpressure;
+
+    @Mock
+    private TransactionIdFilter transactionIdFilter;
+
+    @Mock
+    private OutboxRelay outboxRelay;
+
+    @Spy
+    private TransactionSingleFlight singleFlight = new TransactionSingleFlight(new SimpleMeterRegistry(), 100);
+
+    @Spy
+    private DailyLimitClock dailyLimitClock = new DailyLimitClock();
 
     @InjectMocks
     private FraudServiceImpl fraudService;
@@ -61,6 +124,7 @@ class FraudServiceImplTest {
 
     private static final String TXN_ID = "TXN-100";
     private static final String MOCK_TRACE_ID = "698bfb95ee3cf3a1796c940d1123cfd8";
+    private static final String CLAIM_TOKEN = "IN_FLIGHT:owner";
 
     @BeforeEach
     void setUp() {
@@ -72,6 +136,11 @@ class FraudServiceImplTest {
         when(tracer.currentSpan()).thenReturn(mockSpan);
         when(mockSpan.context()).thenReturn(mockContext);
         when(mockContext.traceId()).thenReturn(MOCK_TRACE_ID);
+        lenient().when(fraudRuleEngine.evaluate(any())).thenReturn(RuleResult.PASS);
+        lenient().when(transactionIdFilter.mightContain(anyString())).thenReturn(true);
+        lenient().when(transactionalOperator.transactional(any(Mono.class))).thenAnswer(i -> i.getArgument(0));
+        lenient().when(idempotencyService.claim(anyString())).thenReturn(Mono.just(IdempotencyClaim.claimed(CLAIM_TOKEN)));
+        lenient().when(idempotencyService.releaseClaim(anyString(), any())).thenReturn(Mono.empty());
 
         request = ProcessTransactionRequestDTO.builder()
                 .transactionId("TXN-100")
@@ -89,17 +158,14 @@ class FraudServiceImplTest {
 
     @Test
     @DisplayName("Should APPROVE transaction and update limit")
-    void shouldApproveTransaction() throws JsonProcessingException {
+    void shouldApproveTransaction() {
         // Arrange
-        when(idempotencyService.getCachedResponse(TXN_ID)).thenReturn(Mono.empty());
         when(idempotencyService.markAsProcessed(anyString(), any())).thenReturn(Mono.empty());
         when(transactionRepository.findByTransactionId(anyString())).thenReturn(Mono.empty());
-        when(customerLimitRepository.findById(anyString())).thenReturn(Mono.just(limit));
-        when(customerLimitRepository.save(any())).thenReturn(Mono.just(limit));
+        when(limitService.reserve(anyString(), any())).thenReturn(Mono.just(reservation(true, "100.00")));
         when(transactionRepository.save(any())).thenAnswer(i -> Mono.just(i.getArgument(0)));
 
         // --- FIX: Mocking Outbox dependencies ---
-        when(objectMapper.writeValueAsString(any())).thenReturn("{\"mock\":\"payload\"}");
         when(outboxRepository.save(any())).thenAnswer(i -> Mono.just(i.getArgument(0)));
         // ----------------------------------------
 
@@ -111,22 +177,53 @@ class FraudServiceImplTest {
                 .verifyComplete();
 
         verify(transactionRepository).save(argThat(t -> t.getCorrelationId() != null));
-        verify(customerLimitRepository).save(argThat(l -> l.getCurrentDailySpent().compareTo(new BigDecimal("100.00")) == 0));
+        verify(limitService).reserve(eq("CUST-777"), argThat(amount -> amount.compareTo(new BigDecimal("100.00")) == 0));
+        verify(limitService, never()).release(anyString(), any());
+        // Committed: the outbox row goes straight to Kafka instead of waiting for the relay
+        verify(outboxRelay).dispatchCommitted(argThat(row -> "PENDING".equals(row.getStatus())));
+        // The row holds the record as it goes on the wire
+        ArgumentCaptor<OutboxEventEntity> outboxRow = ArgumentCaptor.forClass(OutboxEventEntity.class);
+        verify(outboxRepository).save(outboxRow.capture());
+        TransactionEvent event = TransactionEventCodec.decode(outboxRow.getValue().getPayload());
+        assertEquals(request.getTransactionId(), event.getTransactionId());
+        assertEquals(request.getTransactionId(), outboxRow.getValue().getMessageKey());
+        assertEquals("fraud-detection-events", outboxRow.getValue().getTopic());
+        assertEquals(event.getCorrelationId(), new String(
+                OutboxHeaders.decode(outboxRow.getValue().getHeaders()).lastHeader("correlationId").value(), StandardCharsets.UTF_8));
+        // One clock read for the whole request
+        verify(dailyLimitClock, times(1)).now();
+        assertEquals(event.getTimestamp(), outboxRow.getValue().getCreatedAt());
+        assertEquals(outboxRow.getValue().getCreatedAt(), outboxRow.getValue().getUpdatedAt());
+    }
+
+    @Test
+    @DisplayName("Should resolve a non-canonical operation type and evaluate it like the canonical one")
+    void shouldApproveLowerCaseOperationType() {
+        request.setOperationType("cash_withdrawal");
+        when(idempotencyService.markAsProcessed(anyString(), any())).thenReturn(Mono.empty());
+        when(transactionRepository.findByTransactionId(anyString())).thenReturn(Mono.empty());
+        when(limitService.reserve(anyString(), any())).thenReturn(Mono.just(reservation(true, "100.00")));
+        when(transactionRepository.save(any())).thenAnswer(i -> Mono.just(i.getArgument(0)));
+        when(outboxRepository.save(any())).thenAnswer(i -> Mono.just(i.getArgument(0)));
+
+        StepVerifier.create(fraudService.processTransaction(request))
+                .expectNextMatches(response -> response.getStatus().equals("APPROVED"))
+                .verifyComplete();
+
+        assertEquals(OperationType.CASH_WITHDRAWAL, OperationType.resolve(request.getOperationType()));
+        assertThrows(IllegalArgumentException.class, () -> OperationType.resolve("REFUND"));
     }
 
     @Test
     @DisplayName("Should REJECT transaction when daily limit is exceeded")
-    void shouldRejectWhenLimitExceeded() throws JsonProcessingException {
+    void shouldRejectWhenLimitExceeded() {
         // Arrange
-        when(idempotencyService.getCachedResponse(TXN_ID)).thenReturn(Mono.empty());
         when(idempotencyService.markAsProcessed(anyString(), any())).thenReturn(Mono.empty());
-        limit.setCurrentDailySpent(new BigDecimal("450.00"));
         when(transactionRepository.findByTransactionId(anyString())).thenReturn(Mono.empty());
-        when(customerLimitRepository.findById(anyString())).thenReturn(Mono.just(limit));
+        when(limitService.reserve(anyString(), any())).thenReturn(Mono.just(reservation(false, "550.00")));
         when(transactionRepository.save(any())).thenAnswer(i -> Mono.just(i.getArgument(0)));
 
         // --- FIX: Mocking Outbox dependencies ---
-        when(objectMapper.writeValueAsString(any())).thenReturn("{\"mock\":\"payload\"}");
         when(outboxRepository.save(any())).thenAnswer(i -> Mono.just(i.getArgument(0)));
         // ----------------------------------------
 
@@ -138,14 +235,101 @@ class FraudServiceImplTest {
                 .verifyComplete();
 
         // Verify limit safety
-        verify(customerLimitRepository, never()).save(any());
+        verify(limitService, never()).release(anyString(), any());
+        // Rejections are routed to the alerts topic
+        verify(outboxRepository).save(argThat(row -> "fraud-detection-alerts".equals(row.getTopic())));
+    }
+
+    @Test
+    @DisplayName("Should REJECT on a fraud rule without touching the daily limit")
+    void shouldRejectOnRuleWithoutReservingLimit() {
+        // Arrange
+        when(idempotencyService.markAsProcessed(anyString(), any())).thenReturn(Mono.empty());
+        when(transactionRepository.findByTransactionId(anyString())).thenReturn(Mono.empty());
+        when(fraudRuleEngine.evaluate(any())).thenReturn(
+                RuleResult.reject("mcc-blocklist", TransactionStatus.REJECTED_FRAUD, "Merchant category is blocked"));
+        when(transactionRepository.save(any())).thenAnswer(i -> Mono.just(i.getArgument(0)));
+        when(outboxRepository.save(any())).thenAnswer(i -> Mono.just(i.getArgument(0)));
+
+        // Act & Assert
+        StepVerifier.create(fraudService.processTransaction(request))
+                .expectNextMatches(response ->
+                        "34".equals(response.getResponseCode()) &&
+                                "Merchant category is blocked".equals(response.getDescription()))
+                .verifyComplete();
+
+        // The rejected transaction is still recorded, but the limit is never read
+        verify(transactionRepository).save(any());
+        verify(limitService, never()).reserve(anyString(), any());
+    }
+
+    @Test
+    @DisplayName("Should release the reservation when the approved transaction cannot be recorded")
+    void shouldReleaseReservationWhenSaveFails() {
+        // Arrange
+        when(transactionRepository.findByTransactionId(anyString())).thenReturn(Mono.empty());
+        when(limitService.reserve(anyString(), any())).thenReturn(Mono.just(reservation(true, "100.00")));
+        when(limitService.release(anyString(), any())).thenReturn(Mono.empty());
+        when(transactionRepository.save(any())).thenReturn(Mono.error(new RuntimeException("connection reset")));
+
+        // Act & Assert
+        StepVerifier.create(fraudService.processTransaction(request))
+                .expectError(TechnicalException.class)
+                .verify();
+
+        verify(limitService).release(eq("CUST-777"), argThat(amount -> amount.compareTo(new BigDecimal("100.00")) == 0));
+        // A retry must not wait for the in-flight TTL
+        verify(idempotencyService).releaseClaim(TXN_ID, CLAIM_TOKEN);
+    }
+
+    @Test
+    @DisplayName("Should not store a response for a transaction whose commit failed")
+    @SuppressWarnings("unchecked")
+    void shouldNotMarkProcessedWhenCommitFails() {
+        when(transactionRepository.findByTransactionId(anyString())).thenReturn(Mono.empty());
+        when(limitService.reserve(anyString(), any())).thenReturn(Mono.just(reservation(true, "100.00")));
+        when(limitService.release(anyString(), any())).thenReturn(Mono.empty());
+        when(transactionRepository.save(any())).thenAnswer(i -> Mono.just(i.getArgument(0)));
+        when(outboxRepository.save(any())).thenAnswer(i -> Mono.just(i.getArgument(0)));
+        // The evaluation completes, then the commit itself fails
+        when(transactionalOperator.transactional(any(Mono.class))).thenAnswer(i ->
+                ((Mono<Object>) i.getArgument(0)).then(Mono.error(new RuntimeException("commit failed"))));
+
+        StepVerifier.create(fraudService.processTransaction(request))
+                .expectError()
+                .verify();
+
+        // No phantom COMPLETED entry, and the claim is still ours to release
+        verify(idempotencyService, never()).markAsProcessed(anyString(), any());
+        verify(outboxRelay, never()).dispatchCommitted(any());
+        verify(idempotencyService).releaseClaim(TXN_ID, CLAIM_TOKEN);
+    }
+
+    @Test
+    @DisplayName("Should release the reservation when the commit fails after the evaluation completed")
+    @SuppressWarnings("unchecked")
+    void shouldReleaseReservationWhenCommitFails() {
+        when(transactionRepository.findByTransactionId(anyString())).thenReturn(Mono.empty());
+        when(limitService.reserve(anyString(), any())).thenReturn(Mono.just(reservation(true, "100.00")));
+        when(limitService.release(anyString(), any())).thenReturn(Mono.empty());
+        when(transactionRepository.save(any())).thenAnswer(i -> Mono.just(i.getArgument(0)));
+        when(outboxRepository.save(any())).thenAnswer(i -> Mono.just(i.getArgument(0)));
+        // The wrapped Mono completes normally, the error only comes from the commit
+        when(transactionalOperator.transactional(any(Mono.class))).thenAnswer(i ->
+                ((Mono<Object>) i.getArgument(0)).then(Mono.error(new RuntimeException("commit failed"))));
+
+        StepVerifier.create(fraudService.processTransaction(request))
+                .expectError()
+                .verify();
+
+        // In ledger mode nothing rolls the in-memory reservation back, so it must be released here
+        verify(limitService).release(eq("CUST-777"), argThat(amount -> amount.compareTo(new BigDecimal("100.00")) == 0));
     }
 
     @Test
     @DisplayName("Idempotency: Should return cached result if transactionId exists")
     void shouldTriggerIdempotency() {
         // Arrange
-        when(idempotencyService.getCachedResponse(TXN_ID)).thenReturn(Mono.empty());
         TransactionEntity existingTx = TransactionEntity.builder()
                 .transactionId("TXN-100")
                 .status("APPROVED")
@@ -153,6 +337,7 @@ class FraudServiceImplTest {
                 .build();
 
         when(transactionRepository.findByTransactionId("TXN-100")).thenReturn(Mono.just(existingTx));
+        when(idempotencyService.markAsProcessed(eq(TXN_ID), any())).thenReturn(Mono.empty());
 
         // Act & Assert
         StepVerifier.create(fraudService.processTransaction(request))
@@ -160,18 +345,140 @@ class FraudServiceImplTest {
                 .verifyComplete();
 
         // Core Verify: Customer logic never executed
-        verify(customerLimitRepository, never()).findById(anyString());
+        verify(limitService, never()).reserve(anyString(), any());
+    }
+
+    @Test
+    @DisplayName("Negative cache: Should skip the DB lookup, but still claim and publish to Redis, for an id the filter has never seen")
+    void shouldSkipLookupsOnDefiniteMiss() {
+        // Arrange
+        when(transactionIdFilter.mightContain(TXN_ID)).thenReturn(false);
+        when(idempotencyService.markAsProcessed(anyString(), any())).thenReturn(Mono.empty());
+        when(limitService.reserve(anyString(), any())).thenReturn(Mono.just(reservation(true, "100.00")));
+        when(transactionRepository.save(any())).thenAnswer(i -> Mono.just(i.getArgument(0)));
+        when(outboxRepository.save(any())).thenAnswer(i -> Mono.just(i.getArgument(0)));
+
+        // Act & Assert
+        StepVerifier.create(fraudService.processTransaction(request))
+                .expectNextMatches(response -> "00".equals(response.getResponseCode()))
+                .verifyComplete();
+
+        verify(transactionRepository, never()).findByTransactionId(anyString());
+        verify(transactionIdFilter).put(TXN_ID);
+        // Redis stays the shared record: the claim and the final response are not skipped
+        verify(idempotencyService).claim(TXN_ID);
+        verify(idempotencyService).markAsProcessed(eq(TXN_ID), any());
+    }
+
+    @Test
+    @DisplayName("Negative cache: Should answer with the recorded result when the insert hits the unique constraint")
+    void shouldRecoverFromDuplicateKeyAfterDefiniteMiss() {
+        // Arrange: the filter did not know the id, but another pod recorded it meanwhile
+        when(transactionIdFilter.mightContain(TXN_ID)).thenReturn(false);
+        when(limitService.reserve(anyString(), any())).thenReturn(Mono.just(reservation(true, "100.00")));
+        when(limitService.release(anyString(), any())).thenReturn(Mono.empty());
+        when(transactionRepository.save(any())).thenReturn(Mono.error(new DuplicateKeyException("transactions_transaction_id_key")));
+        when(transactionRepository.findByTransactionId(TXN_ID)).thenReturn(Mono.just(TransactionEntity.builder()
+                .transactionId(TXN_ID)
+                .status("APPROVED")
+                .responseCode("00")
+                .build()));
+        when(idempotencyService.markAsProcessed(anyString(), any())).thenReturn(Mono.empty());
+
+        // Act & Assert
+        StepVerifier.create(fraudService.processTransaction(request))
+                .expectNextMatches(response -> TXN_ID.equals(response.getTransactionId()) && "00".equals(response.getResponseCode()))
+                .verifyComplete();
+
+        // Rolled back: nothing of this attempt may be published
+        verify(outboxRelay, never()).dispatchCommitted(any());
+        // The committed row of the other request replaces our claim, so waiters are not left until the TTL
+        verify(idempotencyService).markAsProcessed(eq(TXN_ID), argThat(r -> r != null && "00".equals(r.getResponseCode())));
+    }
+
+    @Test
+    @DisplayName("Idempotency: Should return the stored response when the claim finds one")
+    void shouldReturnStoredResponseFromClaim() {
+        // Arrange
+        ProcessTransactionResponseDTO stored = ProcessTransactionResponseDTO.builder()
+                .transactionId(TXN_ID)
+                .responseCode("00")
+                .build();
+        when(idempotencyService.claim(TXN_ID)).thenReturn(Mono.just(IdempotencyClaim.completed(stored)));
+
+        // Act & Assert
+        StepVerifier.create(fraudService.processTransaction(request))
+                .expectNext(stored)
+                .verifyComplete();
+
+        verify(transactionRepository, never()).findByTransactionId(anyString());
+        verify(limitService, never()).reserve(anyString(), any());
+    }
+
+    @Test
+    @DisplayName("In-flight: Should wait for the first request's response instead of evaluating again")
+    void shouldCoalesceIntoInFlightRequest() {
+        // Arrange
+        ProcessTransactionResponseDTO first = ProcessTransactionResponseDTO.builder()
+                .transactionId(TXN_ID)
+                .responseCode("00")
+                .build();
+        when(idempotencyService.claim(TXN_ID)).thenReturn(Mono.just(IdempotencyClaim.inFlight()));
+        when(idempotencyService.awaitCompletion(TXN_ID)).thenReturn(Mono.just(first));
+
+        // Act & Assert
+        StepVerifier.create(fraudService.processTransaction(request))
+                .expectNext(first)
+                .verifyComplete();
+
+        verify(limitService, never()).reserve(anyString(), any());
+        verify(transactionRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("In-flight: Should take over the id when the first request released its claim")
+    void shouldTakeOverReleasedClaim() {
+        // Arrange
+        when(idempotencyService.claim(TXN_ID))
+                .thenReturn(Mono.just(IdempotencyClaim.inFlight()))
+                .thenReturn(Mono.just(IdempotencyClaim.claimed(CLAIM_TOKEN)));
+        when(idempotencyService.awaitCompletion(TXN_ID)).thenReturn(Mono.empty());
+        when(idempotencyService.markAsProcessed(anyString(), any())).thenReturn(Mono.empty());
+        when(transactionRepository.findByTransactionId(TXN_ID)).thenReturn(Mono.empty());
+        when(limitService.reserve(anyString(), any())).thenReturn(Mono.just(reservation(true, "100.00")));
+        when(transactionRepository.save(any())).thenAnswer(i -> Mono.just(i.getArgument(0)));
+        when(outboxRepository.save(any())).thenAnswer(i -> Mono.just(i.getArgument(0)));
+
+        // Act & Assert
+        StepVerifier.create(fraudService.processTransaction(request))
+                .expectNextMatches(response -> "00".equals(response.getResponseCode()))
+                .verifyComplete();
+
+        verify(idempotencyService, times(2)).claim(TXN_ID);
+    }
+
+    @Test
+    @DisplayName("In-flight: Should answer 94 when the first request is still running after the claim TTL")
+    void shouldRejectWhenInFlightRequestNeverCompletes() {
+        // Arrange
+        when(idempotencyService.claim(TXN_ID)).thenReturn(Mono.just(IdempotencyClaim.inFlight()));
+        when(idempotencyService.awaitCompletion(TXN_ID)).thenReturn(Mono.error(new TimeoutException()));
+
+        // Act & Assert
+        StepVerifier.create(fraudService.processTransaction(request))
+                .expectErrorMatches(e -> e instanceof BusinessException be
+                        && be.getStatus() == TransactionStatus.DUPLICATE_IN_PROGRESS)
+                .verify();
     }
 
     @Test
     @DisplayName("Resilience: Should throw TechnicalException on Database Timeout")
     void shouldHandleTimeout() {
         // Arrange
-        when(idempotencyService.getCachedResponse(TXN_ID)).thenReturn(Mono.empty());
         when(transactionRepository.findByTransactionId(anyString())).thenReturn(Mono.empty());
         // Simulating DB delay of 10s (exceeding the 2s and 5s timeouts in service)
-        when(customerLimitRepository.findById(anyString()))
-                .thenReturn(Mono.just(limit).delayElement(Duration.ofSeconds(10)));
+        when(limitService.reserve(anyString(), any()))
+                .thenReturn(Mono.just(reservation(true, "100.00")).delayElement(Duration.ofSeconds(10)));
 
         // Act & Assert
         StepVerifier.withVirtualTime(() -> fraudService.processTransaction(request))
@@ -179,4 +486,332 @@ class FraudServiceImplTest {
                 .expectError(TechnicalException.class)
                 .verify();
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Concurrency: Should decide every concurrent call on its own reservation result")
+    void shouldFollowReservationUnderConcurrentCalls() throws Exception {
+        // Only the service side: the stub stands in for the conditional UPDATE, whose atomicity is Postgres'
+        // row lock and is not exercised here
+        // Arrange
+        int threads = 16;
+        int attempts = 200;
+        BigDecimal amount = new BigDecimal("10.00");
+        AtomicReference<BigDecimal> spent = new AtomicReference<>(BigDecimal.ZERO);
+
+        when(idempotencyService.markAsProcessed(anyString(), any())).thenReturn(Mono.empty());
+        when(transactionRepository.findByTransactionId(anyString())).thenReturn(Mono.empty());
+        when(transactionRepository.save(any())).thenAnswer(i -> Mono.just(i.getArgument(0)));
+        when(outboxRepository.save(any())).thenAnswer(i -> Mono.just(i.getArgument(0)));
+        // Same contract as reserveLimit: check and increment as one step
+        when(limitService.reserve(anyString(), any())).thenAnswer(i -> Mono.fromCallable(() -> {
+            BigDecimal requested = i.getArgument(1);
+            BigDecimal before = spent.getAndUpdate(current ->
+                    current.add(requested).compareTo(limit.getDailyMaxAmount()) <= 0 ? current.add(requested) : current);
+            BigDecimal projected = before.add(requested);
+            boolean approved = projected.compareTo(limit.getDailyMaxAmount()) <= 0;
+            return reservation(approved, projected.toPlainString());
+        }));
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<ProcessTransactionResponseDTO>> results = new ArrayList<>();
+        for (int n = 0; n < attempts; n++) {
+            ProcessTransactionRequestDTO concurrentRequest = ProcessTransactionRequestDTO.builder()
+                    .transactionId("TXN-C-" + n)
+                    .customerId("CUST-777")
+                    .amount(amount)
+                    .operationType(OperationType.DEBIT.name())
+                    .build();
+            results.add(executor.submit(() -> {
+                start.await();
+                return fraudService.processTransaction(concurrentRequest).block(Duration.ofSeconds(10));
+            }));
+        }
+
+        // Act
+        start.countDown();
+        long approvals = 0;
+        for (Future<ProcessTransactionResponseDTO> result : results) {
+            if ("00".equals(result.get(10, TimeUnit.SECONDS).getResponseCode())) {
+                approvals++;
+            }
+        }
+        executor.shutdown();
+
+        // Assert: no call approved beyond what its reservation granted
+        assertEquals(50, approvals);
+        assertEquals(0, spent.get().compareTo(limit.getDailyMaxAmount()));
+    }
+
+    @Test
+    @DisplayName("Batch: Should write each chunk with multi-row inserts and report invalid items inline")
+    void shouldProcessBatchWithBulkInserts() {
+        // Arrange
+        stubBatchHappyPath();
+        when(limitService.reserve(anyString(), any())).thenReturn(Mono.just(reservation(true, "100.00")));
+        ProcessTransactionRequestDTO invalid = ProcessTransactionRequestDTO.builder().transactionId("TXN-BAD").build();
+
+        // Act
+        List<ProcessTransactionResponseDTO> results = fraudService.processBatch(Flux.just(
+                        validItem("TXN-B1", "CUST-777"), invalid, validItem("TXN-B2", "CUST-778"), validItem("TXN-B3", "CUST-777")))
+                .collectList()
+                .block(Duration.ofSeconds(5));
+
+        // Assert
+        assertEquals(4, results.size());
+        assertTrue(results.stream().anyMatch(r -> "TXN-BAD".equals(r.getTransactionId()) && "99".equals(r.getResponseCode())));
+        assertEquals(3, results.stream().filter(r -> "00".equals(r.getResponseCode())).count());
+
+        ArgumentCaptor<List<TransactionEntity>> inserted = ArgumentCaptor.captor();
+        verify(transactionRepository, atLeastOnce()).insertAll(inserted.capture());
+        assertEquals(3, inserted.getAllValues().stream().mapToInt(List::size).sum());
+        verify(transactionRepository, never()).save(any());
+        verify(outboxRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("Batch: Should evaluate the items of one customer in arrival order")
+    void shouldKeepPerCustomerOrderInBatch() {
+        // Arrange
+        batchProperties.setChunkSize(7);
+        stubBatchHappyPath();
+        List<BigDecimal> reservedOrder = Collections.synchronizedList(new ArrayList<>());
+        when(limitService.reserve(anyString(), any())).thenAnswer(i -> {
+            reservedOrder.add(i.getArgument(1));
+            return Mono.just(reservation(true, "1.00"));
+        });
+        List<ProcessTransactionRequestDTO> items = new ArrayList<>();
+        for (int n = 1; n <= 30; n++) {
+            ProcessTransactionRequestDTO item = validItem("TXN-O" + n, "CUST-777");
+            item.setAmount(new BigDecimal(n));
+            items.add(item);
+        }
+
+        // Act
+        List<ProcessTransactionResponseDTO> results = fraudService.processBatch(Flux.fromIterable(items))
+                .collectList()
+                .block(Duration.ofSeconds(5));
+
+        // Assert: reservations and results follow the request order
+        assertEquals(30, results.size());
+        for (int n = 1; n <= 30; n++) {
+            assertEquals(0, reservedOrder.get(n - 1).compareTo(new BigDecimal(n)));
+            assertEquals("TXN-O" + n, results.get(n - 1).getTransactionId());
+        }
+    }
+
+    @Test
+    @DisplayName("Batch: Should hold back timed-out chunks while a slow chunk is written")
+    void shouldBackPressureChunksBehindSlowChunk() {
+        // Arrange: small chunks that the timer closes well before the previous one is written
+        batchProperties.setChunkSize(3);
+        batchProperties.setChunkWait(Duration.ofMillis(1));
+        stubBatchHappyPath();
+        when(limitService.reserve(anyString(), any()))
+                .thenAnswer(i -> Mono.delay(Duration.ofMillis(5)).thenReturn(reservation(true, "1.00")));
+        Flux<ProcessTransactionRequestDTO> items = Flux.range(1, 40)
+                .map(n -> validItem("TXN-P" + n, "CUST-777"))
+                // Items trickle in, so most chunks are closed by the timer, not by size
+                .delayElements(Duration.ofMillis(2));
+
+        // Act
+        List<ProcessTransactionResponseDTO> results = fraudService.processBatch(items)
+                .collectList()
+                .block(Duration.ofSeconds(10));
+
+        // Assert: nothing overflowed or was dropped, and order is kept
+        assertEquals(40, results.size());
+        for (int n = 1; n <= 40; n++) {
+            assertEquals("TXN-P" + n, results.get(n - 1).getTransactionId());
+        }
+    }
+
+    @Test
+    @DisplayName("Batch: Should report every item of a failed chunk as a system error and release reservations")
+    void shouldFailWholeChunkWhenBulkInsertFails() {
+        // Arrange
+        when(transactionRepository.findAllByTransactionIdIn(any())).thenReturn(Flux.empty());
+        when(limitService.reserve(anyString(), any())).thenReturn(Mono.just(reservation(true, "100.00")));
+        when(limitService.release(anyString(), any())).thenReturn(Mono.empty());
+        when(transactionRepository.insertAll(any())).thenReturn(Flux.error(new RuntimeException("connection reset")));
+        when(idempotencyService.releaseClaim(anyString(), eq(CLAIM_TOKEN))).thenReturn(Mono.empty());
+
+        // Act & Assert
+        StepVerifier.create(fraudService.processBatch(Flux.just(validItem("TXN-F1", "CUST-777"), validItem("TXN-F2", "CUST-777"))))
+                .expectNextMatches(r -> "TXN-F1".equals(r.getTransactionId()) && "96".equals(r.getResponseCode()))
+                .expectNextMatches(r -> "TXN-F2".equals(r.getTransactionId()) && "96".equals(r.getResponseCode()))
+                .verifyComplete();
+
+        verify(limitService, times(2)).release(eq("CUST-777"), any());
+        // Claims are dropped so a retry of the batch processes the ids again
+        verify(idempotencyService).releaseClaim("TXN-F1", CLAIM_TOKEN);
+        verify(idempotencyService).releaseClaim("TXN-F2", CLAIM_TOKEN);
+    }
+
+    @Test
+    @DisplayName("Batch: Should not store responses of a chunk whose commit failed")
+    @SuppressWarnings("unchecked")
+    void shouldNotMarkBatchProcessedWhenCommitFails() {
+        // Arrange
+        when(transactionRepository.findAllByTransactionIdIn(any())).thenReturn(Flux.empty());
+        when(transactionRepository.insertAll(any())).thenAnswer(i -> Flux.fromIterable(i.<List<TransactionEntity>>getArgument(0)));
+        when(outboxRepository.insertAll(any())).thenAnswer(i -> Mono.just((long) i.<List<OutboxEventEntity>>getArgument(0).size()));
+        when(limitService.reserve(anyString(), any())).thenReturn(Mono.just(reservation(true, "100.00")));
+        when(limitService.release(anyString(), any())).thenReturn(Mono.empty());
+        when(transactionalOperator.transactional(any(Mono.class))).thenAnswer(i ->
+                ((Mono<Object>) i.getArgument(0)).then(Mono.error(new RuntimeException("commit failed"))));
+        when(idempotencyService.releaseClaim(anyString(), any())).thenReturn(Mono.empty());
+
+        // Act & Assert
+        StepVerifier.create(fraudService.processBatch(Flux.just(validItem("TXN-C1", "CUST-777"))))
+                .expectNextMatches(r -> "TXN-C1".equals(r.getTransactionId()) && "96".equals(r.getResponseCode()))
+                .verifyComplete();
+
+        verify(idempotencyService, never()).markAsProcessed(anyString(), any());
+    }
+
+    @Test
+    @DisplayName("Batch: Should replay completed ids and wait for ids another request is processing")
+    void shouldClaimBatchIds() {
+        // Arrange
+        stubBatchHappyPath();
+        when(limitService.reserve(anyString(), any())).thenReturn(Mono.just(reservation(true, "100.00")));
+        ProcessTransactionResponseDTO stored = ProcessTransactionResponseDTO.builder()
+                .transactionId("TXN-K1").responseCode("00").description("cached").build();
+        ProcessTransactionResponseDTO owner = ProcessTransactionResponseDTO.builder()
+                .transactionId("TXN-K2").responseCode("00").description("from owner").build();
+        when(idempotencyService.claim("TXN-K1")).thenReturn(Mono.just(IdempotencyClaim.completed(stored)));
+        when(idempotencyService.claim("TXN-K2")).thenReturn(Mono.just(IdempotencyClaim.inFlight()));
+        when(idempotencyService.awaitCompletion("TXN-K2")).thenReturn(Mono.just(owner));
+
+        // Act
+        List<ProcessTransactionResponseDTO> results = fraudService.processBatch(Flux.just(
+                        validItem("TXN-K1", "CUST-777"), validItem("TXN-K2", "CUST-777"), validItem("TXN-K3", "CUST-777")))
+                .collectList()
+                .block(Duration.ofSeconds(5));
+
+        // Assert: only the claimed id is evaluated and written
+        assertEquals(List.of("cached", "from owner"), results.stream()
+                .filter(r -> !"TXN-K3".equals(r.getTransactionId()))
+                .map(ProcessTransactionResponseDTO::getDescription)
+                .toList());
+        verify(limitService, times(1)).reserve(anyString(), any());
+        verify(transactionRepository).insertAll(argThat(rows -> rows.size() == 1
+                && "TXN-K3".equals(rows.get(0).getTransactionId())));
+    }
+
+    @Test
+    @DisplayName("Batch: Should fall back to one item at a time when the chunk hits a duplicate transaction id")
+    void shouldRecoverChunkFromDuplicateKey() {
+        // Arrange: TXN-D1 was recorded by a request that ran while Redis was down
+        when(idempotencyService.markAsProcessed(anyString(), any())).thenReturn(Mono.empty());
+        when(transactionRepository.findAllByTransactionIdIn(any())).thenReturn(Flux.empty());
+        when(limitService.reserve(anyString(), any())).thenReturn(Mono.just(reservation(true, "100.00")));
+        when(limitService.release(anyString(), any())).thenReturn(Mono.empty());
+        when(transactionRepository.insertAll(any())).thenReturn(Flux.error(new DuplicateKeyException("transactions_transaction_id_key")));
+        TransactionEntity recorded = TransactionEntity.builder()
+                .transactionId("TXN-D1").status("APPROVED").responseCode("00").description("recorded earlier").build();
+        when(transactionRepository.findByTransactionId("TXN-D1")).thenReturn(Mono.just(recorded));
+        when(transactionRepository.findByTransactionId("TXN-D2")).thenReturn(Mono.empty());
+        when(transactionRepository.save(any())).thenAnswer(i -> Mono.just(i.getArgument(0)));
+        when(outboxRepository.save(any())).thenAnswer(i -> Mono.just(i.getArgument(0)));
+
+        // Act & Assert: the duplicate is answered from the DB, the other item is still evaluated
+        StepVerifier.create(fraudService.processBatch(Flux.just(validItem("TXN-D1", "CUST-777"), validItem("TXN-D2", "CUST-777"))))
+                .expectNextMatches(r -> "TXN-D1".equals(r.getTransactionId()) && "recorded earlier".equals(r.getDescription()))
+                .expectNextMatches(r -> "TXN-D2".equals(r.getTransactionId()) && "00".equals(r.getResponseCode()))
+                .verifyComplete();
+
+        verify(transactionRepository).save(argThat(row -> "TXN-D2".equals(row.getTransactionId())));
+        verify(limitService, times(2)).release(eq("CUST-777"), any());
+    }
+
+    @Test
+    @DisplayName("Batch: Should release the claim of an unknown customer's item so a resubmission is answered at once")
+    void shouldReleaseClaimOfCustomerNotFoundItem() {
+        // Arrange: claims behave like Redis, a held id is in flight until released
+        Set<String> held = ConcurrentHashMap.newKeySet();
+        when(idempotencyService.claim(anyString())).thenAnswer(i -> Mono.just(held.add(i.getArgument(0))
+                ? IdempotencyClaim.claimed(CLAIM_TOKEN)
+                : IdempotencyClaim.inFlight()));
+        when(idempotencyService.releaseClaim(anyString(), any())).thenAnswer(i ->
+                Mono.fromRunnable(() -> held.remove(i.<String>getArgument(0))));
+        when(transactionRepository.findAllByTransactionIdIn(any())).thenReturn(Flux.empty());
+        when(limitService.reserve(eq("CUST-404"), any())).thenReturn(Mono.empty());
+
+        // Act & Assert: the resubmission is evaluated again, not parked behind a leftover claim
+        for (int attempt = 0; attempt < 2; attempt++) {
+            StepVerifier.create(fraudService.processBatch(Flux.just(validItem("TXN-N1", "CUST-404"))))
+                    .expectNextMatches(r -> "TXN-N1".equals(r.getTransactionId()) && "14".equals(r.getResponseCode()))
+                    .expectComplete()
+                    .verify(Duration.ofSeconds(1));
+        }
+
+        assertTrue(held.isEmpty());
+        verify(idempotencyService, never()).awaitCompletion(anyString());
+        verify(transactionRepository, never()).insertAll(any());
+    }
+
+    @Test
+    @DisplayName("Stream: Should bound demand by the pool budget and report item errors inline")
+    void shouldProcessStreamWithBoundedDemand() {
+        // Arrange
+        when(poolBackpressure.maxInFlight()).thenReturn(2);
+        when(poolBackpressure.withCapacity(any())).thenAnswer(i -> i.getArgument(0));
+        when(idempotencyService.markAsProcessed(anyString(), any())).thenReturn(Mono.empty());
+        when(transactionRepository.findByTransactionId(anyString())).thenReturn(Mono.empty());
+        when(transactionRepository.save(any())).thenAnswer(i -> Mono.just(i.getArgument(0)));
+        when(outboxRepository.save(any())).thenAnswer(i -> Mono.just(i.getArgument(0)));
+        when(limitService.reserve(eq("CUST-777"), any())).thenReturn(Mono.just(reservation(true, "100.00")));
+        when(limitService.reserve(eq("CUST-404"), any())).thenReturn(Mono.empty());
+
+        AtomicLong maxRequested = new AtomicLong();
+        Flux<ProcessTransactionRequestDTO> feed = Flux.range(1, 10)
+                .map(n -> validItem("TXN-S" + n, n == 5 ? "CUST-404" : "CUST-777"))
+                .concatWith(Flux.just(ProcessTransactionRequestDTO.builder().transactionId("TXN-BAD").build()))
+                .doOnRequest(n -> maxRequested.accumulateAndGet(n, Math::max));
+
+        // Act
+        List<ProcessTransactionResponseDTO> results = fraudService.processStream(feed)
+                .collectList()
+                .block(Duration.ofSeconds(5));
+
+        // Assert: never asked the decoder for more than the in-flight budget
+        assertTrue(maxRequested.get() <= 2);
+        assertEquals(11, results.size());
+        assertEquals(9, results.stream().filter(r -> "00".equals(r.getResponseCode())).count());
+        assertTrue(results.stream().anyMatch(r -> "TXN-S5".equals(r.getTransactionId()) && "14".equals(r.getResponseCode())));
+        assertTrue(results.stream().anyMatch(r -> "TXN-BAD".equals(r.getTransactionId()) && "99".equals(r.getResponseCode())));
+    }
+
+    private void stubBatchHappyPath() {
+        when(idempotencyService.markAsProcessed(anyString(), any())).thenReturn(Mono.empty());
+        when(transactionRepository.findAllByTransactionIdIn(any())).thenReturn(Flux.empty());
+        when(transactionRepository.insertAll(any())).thenAnswer(i -> Flux.fromIterable(i.<List<TransactionEntity>>getArgument(0)));
+        when(outboxRepository.insertAll(any())).thenAnswer(i -> Mono.just((long) i.<List<OutboxEventEntity>>getArgument(0).size()));
+    }
+
+    private ProcessTransactionRequestDTO validItem(String transactionId, String customerId) {
+        return ProcessTransactionRequestDTO.builder()
+                .transactionId(transactionId)
+                .accountId("ACC-1")
+                .customerId(customerId)
+                .amount(new BigDecimal("100.00"))
+                .currency("PEN")
+                .operationType(OperationType.DEBIT.name())
+                .merchantId("M-1")
+                .merchantName("Store")
+                .mcc("5411")
+                .channel("WEB")
+                .build();
+    }
+
+    private LimitReservation reservation(boolean approved, String projectedSpent) {
+        return LimitReservation.builder()
+                .customerId(limit.getCustomerId())
+                .dailyMaxAmount(limit.getDailyMaxAmount())
+                .projectedSpent(new BigDecimal(projectedSpent))
+                .approved(approved)
+                .build();
+    }
+}
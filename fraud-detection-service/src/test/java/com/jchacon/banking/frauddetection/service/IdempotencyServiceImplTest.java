@@ -0,0 +1,156 @@
+package com.jchacon.banking.frauddetection.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.jchacon.banking.frauddetection.model.IdempotencyClaim;
+import com.jchacon.banking.frauddetection.model.ProcessTransactionResponseDTO;
+import com.jchacon.banking.frauddetection.service.impl.IdempotencyServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.ReactiveValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyServiceImplTest {
+
+    @Mock
+    private ReactiveStringRedisTemplate redisTemplate;
+
+    @Mock
+    private ReactiveValueOperations<String, String> valueOperations;
+
+    private SimpleMeterRegistry meterRegistry;
+    private IdempotencyServiceImpl idempotencyService;
+
+    private static final String TXN_ID = "TXN-100";
+    private static final String STORED = "{\"transactionId\":\"TXN-100\",\"status\":\"APPROVED\",\"responseCode\":\"00\"}";
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        idempotencyService = new IdempotencyServiceImpl(redisTemplate, objectMapper, meterRegistry, 24, 1_000, Duration.ofMinutes(10),
+                Duration.ofSeconds(30), Duration.ofMillis(1));
+        lenient().when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+    }
+
+    @Test
+    @DisplayName("Near cache: Should answer a repeated lookup without going back to Redis")
+    void shouldServeRepeatedLookupLocally() {
+        when(valueOperations.get("idempotency:txn:" + TXN_ID))
+                .thenReturn(Mono.just(STORED));
+
+        StepVerifier.create(idempotencyService.getCachedResponse(TXN_ID))
+                .expectNextMatches(r -> "00".equals(r.getResponseCode()))
+                .verifyComplete();
+        StepVerifier.create(idempotencyService.getCachedResponse(TXN_ID))
+                .expectNextMatches(r -> "00".equals(r.getResponseCode()))
+                .verifyComplete();
+
+        verify(valueOperations, times(1)).get(anyString());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "idempotency-near").tag("result", "hit").functionCounter().count());
+    }
+
+    @Test
+    @DisplayName("Near cache: Should keep the response of a processed transaction even if Redis is down")
+    void shouldRememberProcessedResponseLocally() {
+        when(valueOperations.set(anyString(), anyString(), any(Duration.class))).thenReturn(Mono.error(new RuntimeException("Redis down")));
+        ProcessTransactionResponseDTO response = ProcessTransactionResponseDTO.builder()
+                .transactionId(TXN_ID)
+                .status("REJECTED")
+                .responseCode("51")
+                .build();
+
+        StepVerifier.create(idempotencyService.markAsProcessed(TXN_ID, response)).verifyComplete();
+        StepVerifier.create(idempotencyService.getCachedResponse(TXN_ID))
+                .expectNext(response)
+                .verifyComplete();
+
+        verify(valueOperations, never()).get(anyString());
+    }
+
+    @Test
+    @DisplayName("Claim: Should give the id to the first request only")
+    void shouldClaimFreeKeyOnce() {
+        // The script stores the first marker and hands it back to everyone after
+        String[] stored = new String[1];
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), anyList())).thenAnswer(i -> {
+            List<?> args = i.getArgument(2);
+            if (stored[0] == null) {
+                stored[0] = (String) args.get(0);
+            }
+            return Flux.just(stored[0]);
+        });
+
+        StepVerifier.create(idempotencyService.claim(TXN_ID))
+                .expectNextMatches(c -> c.state() == IdempotencyClaim.State.CLAIMED && stored[0].equals(c.token()))
+                .verifyComplete();
+        StepVerifier.create(idempotencyService.claim(TXN_ID))
+                .expectNextMatches(c -> c.state() == IdempotencyClaim.State.IN_FLIGHT)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Claim: Should return the stored response of a processed id")
+    void shouldReturnStoredResponseOnClaim() {
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), anyList())).thenReturn(Flux.just(STORED));
+
+        StepVerifier.create(idempotencyService.claim(TXN_ID))
+                .expectNextMatches(c -> c.state() == IdempotencyClaim.State.COMPLETED && "00".equals(c.response().getResponseCode()))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Claim: Should fall back to an unclaimed run when Redis is down")
+    void shouldDegradeWhenClaimFails() {
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), anyList())).thenReturn(Flux.error(new RuntimeException("Redis down")));
+
+        StepVerifier.create(idempotencyService.claim(TXN_ID))
+                .expectNextMatches(c -> c.state() == IdempotencyClaim.State.CLAIMED && c.token() == null)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Await: Should wait while the claim is in flight and emit the owner's response")
+    void shouldAwaitOwnerResponse() {
+        when(valueOperations.get("idempotency:txn:" + TXN_ID))
+                .thenReturn(Mono.just("IN_FLIGHT:owner"))
+                .thenReturn(Mono.just("IN_FLIGHT:owner"))
+                .thenReturn(Mono.just(STORED));
+
+        StepVerifier.create(idempotencyService.awaitCompletion(TXN_ID))
+                .expectNextMatches(r -> "00".equals(r.getResponseCode()))
+                .verifyComplete();
+
+        verify(valueOperations, times(3)).get(anyString());
+    }
+
+    @Test
+    @DisplayName("Await: Should complete empty when the owner released its claim")
+    void shouldStopAwaitingReleasedClaim() {
+        when(valueOperations.get("idempotency:txn:" + TXN_ID))
+                .thenReturn(Mono.just("IN_FLIGHT:owner"))
+                .thenReturn(Mono.empty());
+
+        StepVerifier.create(idempotencyService.awaitCompletion(TXN_ID))
+                .verifyComplete();
+    }
+}
@@ -0,0 +1,142 @@
+package com.jchacon.banking.frauddetection.velocity;
+
+import com.jchacon.banking.frauddetection.model.ProcessTransactionRequestDTO;
+import com.jchacon.banking.frauddetection.rule.RuleResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VelocityRuleTest {
+
+    private MutableClock clock;
+    private VelocityProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(Instant.parse("2026-03-10T15:00:00Z"));
+        meterRegistry = new SimpleMeterRegistry();
+        properties = new VelocityProperties();
+        properties.setWindow(Duration.ofSeconds(60));
+        properties.setBuckets(12);
+        properties.getMaxCount().put(VelocityDimension.TERMINAL, 3);
+        properties.getMaxCount().put(VelocityDimension.IP, 5);
+    }
+
+    @Test
+    @DisplayName("Should reject once a terminal goes over its count within the window")
+    void shouldRejectAboveTerminalLimit() {
+        VelocityRule rule = new VelocityRule(properties, meterRegistry, clock);
+
+        for (int i = 0; i < 3; i++) {
+            assertFalse(rule.evaluate(request("TERM-1", "8.8.8.8")).isRejected());
+        }
+        RuleResult fourth = rule.evaluate(request("TERM-1", "8.8.8.8"));
+        assertTrue(fourth.isRejected());
+        assertEquals("Too many transactions for this terminal in a short period", fourth.getDescription());
+
+        // Other terminals are counted on their own
+        assertFalse(rule.evaluate(request("TERM-2", "8.8.4.4")).isRejected());
+    }
+
+    @Test
+    @DisplayName("Should forget events once they slide out of the window")
+    void shouldSlideWindow() {
+        VelocityRule rule = new VelocityRule(properties, meterRegistry, clock);
+        for (int i = 0; i < 3; i++) {
+            rule.evaluate(request("TERM-1", null));
+        }
+
+        clock.advance(Duration.ofSeconds(30));
+        assertTrue(rule.evaluate(request("TERM-1", null)).isRejected());
+
+        // 65s after the first burst only the event at +30s is still in the window
+        clock.advance(Duration.ofSeconds(35));
+        assertFalse(rule.evaluate(request("TERM-1", null)).isRejected());
+        assertFalse(rule.evaluate(request("TERM-1", null)).isRejected());
+        assertTrue(rule.evaluate(request("TERM-1", null)).isRejected());
+    }
+
+    @Test
+    @DisplayName("Should count every dimension even when one is already over the limit")
+    void shouldCountAllDimensions() {
+        VelocityRule rule = new VelocityRule(properties, meterRegistry, clock);
+        for (int i = 0; i < 5; i++) {
+            rule.evaluate(request("TERM-" + (i % 2), "1.2.3.4"));
+        }
+
+        // TERM-0 is at 3 + 1, and the IP reached its sixth event in the same call
+        RuleResult result = rule.evaluate(request("TERM-0", "1.2.3.4"));
+        assertTrue(result.isRejected());
+        assertTrue(rule.evaluate(request("TERM-9", "1.2.3.4")).isRejected());
+    }
+
+    @Test
+    @DisplayName("Memory: Should evict idle keys and stop tracking new keys when full")
+    void shouldBoundAndEvictKeys() {
+        properties.setMaxKeys(2);
+        VelocityRule rule = new VelocityRule(properties, meterRegistry, clock);
+        rule.evaluate(request("TERM-1", null));
+        rule.evaluate(request("TERM-2", null));
+        rule.evaluate(request("TERM-3", null));
+
+        assertEquals(2, rule.trackedKeys(VelocityDimension.TERMINAL));
+        assertEquals(1.0, meterRegistry.get("fraud.velocity.untracked").tag("dimension", "terminal").counter().count());
+
+        clock.advance(Duration.ofSeconds(30));
+        rule.evaluate(request("TERM-2", null));
+        clock.advance(Duration.ofSeconds(40));
+        rule.evictIdle();
+
+        // TERM-1 has been idle for a full window, TERM-2 still has an event inside it
+        assertEquals(1, rule.trackedKeys(VelocityDimension.TERMINAL));
+    }
+
+    private ProcessTransactionRequestDTO request(String terminalId, String ipAddress) {
+        return ProcessTransactionRequestDTO.builder()
+                .transactionId("TXN-VEL")
+                .customerId("CUST-777")
+                .terminalId(terminalId)
+                .ipAddress(ipAddress)
+                .build();
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
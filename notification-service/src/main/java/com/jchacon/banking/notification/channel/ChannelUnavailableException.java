@@ -0,0 +1,11 @@
+package com.jchacon.banking.notification.channel;
+
+/**
+ * A channel did not take the send: its circuit is open or its bulkhead is full.
+ */
+public class ChannelUnavailableException extends RuntimeException {
+
+    public ChannelUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,94 @@
+package com.jchacon.banking.notification.channel;
+
+import com.jchacon.banking.notification.event.TransactionEvent;
+import com.jchacon.banking.notification.model.enums.TransactionStatus;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Isolates one channel from the others:
+ * - bulkhead: at most max-concurrency sends in flight, further sends are rejected right away instead of queueing;
+ *   approval receipts only get receipt-concurrency of them, so alerts always find a free permit
+ * - timeout: a send that takes longer than timeout fails
+ * - circuit breaker: after repeated failures the channel is skipped for a while instead of tying up sends
+ *
+ * Metrics: notification.channel.sends (tagged with channel and outcome) and notification.channel.latency.
+ */
+public class GuardedChannel {
+
+    private final NotificationChannel channel;
+    private final int maxConcurrency;
+    private final int receiptConcurrency;
+    private final Duration timeout;
+    private final CircuitBreaker circuitBreaker;
+    private final MeterRegistry meterRegistry;
+    private final Timer latency;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public GuardedChannel(NotificationChannel channel, int maxConcurrency, int receiptConcurrency, Duration timeout,
+                          CircuitBreaker circuitBreaker, MeterRegistry meterRegistry) {
+        this.channel = channel;
+        this.maxConcurrency = maxConcurrency;
+        this.receiptConcurrency = Math.min(receiptConcurrency, maxConcurrency);
+        this.timeout = timeout;
+        this.circuitBreaker = circuitBreaker;
+        this.meterRegistry = meterRegistry;
+        this.latency = Timer.builder("notification.channel.latency").tag("channel", channel.name()).register(meterRegistry);
+        meterRegistry.gauge("notification.channel.in.flight", Tags.of("channel", channel.name()), inFlight);
+    }
+
+    public String name() {
+        return channel.name();
+    }
+
+    public Mono<Void> send(TransactionEvent event, String message) {
+        return Mono.defer(() -> {
+            if (!circuitBreaker.tryAcquire()) {
+                return reject("open", "circuit open");
+            }
+            int limit = TransactionStatus.APPROVED.getDescription().equals(event.getStatus())
+                    ? receiptConcurrency : maxConcurrency;
+            if (inFlight.incrementAndGet() > limit) {
+                inFlight.decrementAndGet();
+                // A full bulkhead says nothing about the gateway's health
+                circuitBreaker.onIgnored();
+                return reject("rejected", "bulkhead full");
+            }
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return channel.send(event, message)
+                    .timeout(timeout)
+                    .doOnSuccess(done -> {
+                        circuitBreaker.onSuccess();
+                        count("delivered");
+                    })
+                    .doOnError(e -> {
+                        circuitBreaker.onFailure();
+                        count(e instanceof TimeoutException ? "timeout" : "failed");
+                    })
+                    .doOnCancel(circuitBreaker::onIgnored)
+                    .doFinally(signal -> {
+                        inFlight.decrementAndGet();
+                        sample.stop(latency);
+                    });
+        });
+    }
+
+    public CircuitBreaker.State state() {
+        return circuitBreaker.state();
+    }
+
+    private Mono<Void> reject(String outcome, String reason) {
+        count(outcome);
+        return Mono.error(new ChannelUnavailableException(channel.name() + ": " + reason));
+    }
+
+    private void count(String outcome) {
+        meterRegistry.counter("notification.channel.sends", "channel", channel.name(), "outcome", outcome).increment();
+    }
+}
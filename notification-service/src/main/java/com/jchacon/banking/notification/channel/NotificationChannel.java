@@ -0,0 +1,23 @@
+package com.jchacon.banking.notification.channel;
+
+import com.jchacon.banking.notification.event.TransactionEvent;
+import reactor.core.publisher.Mono;
+
+/**
+ * One way of reaching the customer (SMS, push, email). Implementations only talk to their gateway;
+ * concurrency limits, timeouts and the circuit breaker are applied around them by {@link GuardedChannel}.
+ */
+public interface NotificationChannel {
+
+    /**
+     * Channel name, also the key of its settings under app.notification.channels.*
+     */
+    String name();
+
+    /**
+     * @param event the transaction being notified
+     * @param message text for the customer
+     * @return Mono<Void> completes once the gateway accepted the message
+     */
+    Mono<Void> send(TransactionEvent event, String message);
+}
@@ -0,0 +1,35 @@
+package com.jchacon.banking.notification.channel;
+
+import com.jchacon.banking.notification.event.TransactionEvent;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Local stand-in for a gateway: accepts every message after a fixed latency, without blocking a thread.
+ * The latency of each channel is set with app.notification.channels.<name>.stub-latency, e.g. for load tests.
+ */
+@Slf4j
+public class StubNotificationChannel implements NotificationChannel {
+
+    private final String name;
+    private final Duration latency;
+
+    public StubNotificationChannel(String name, Duration latency) {
+        this.name = name;
+        this.latency = latency;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public Mono<Void> send(TransactionEvent event, String message) {
+        return Mono.delay(latency)
+                .doOnNext(tick -> log.debug("[{}] To {}: {}", name, event.getCustomerId(), message))
+                .then();
+    }
+}
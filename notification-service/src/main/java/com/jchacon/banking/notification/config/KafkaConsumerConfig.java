@@ -1,30 +1,106 @@
 package com.jchacon.banking.notification.config;
 
+import com.jchacon.banking.notification.consumer.NotificationLane;
+import com.jchacon.banking.notification.consumer.NotificationRetryTopics;
+import com.jchacon.banking.notification.event.TransactionEvent;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.kafka.ConcurrentKafkaListenerContainerFactoryConfigurer;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.boot.ssl.SslBundles;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.ContainerProperties;
 import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
 import org.springframework.kafka.listener.DefaultErrorHandler;
 import org.springframework.util.backoff.FixedBackOff;
+import reactor.kafka.receiver.KafkaReceiver;
+import reactor.kafka.receiver.ReceiverOptions;
+
+import java.util.List;
 
 @Slf4j
 @Configuration
 public class KafkaConsumerConfig {
 
+    /**
+     * Recoverer that sends the failed message to the DLT of its lane (fraud-detection-events-dlt or
+     * fraud-detection-alerts-dlt), whether it failed on the main topic or on its last retry topic.
+     */
+    @Bean
+    public DeadLetterPublishingRecoverer deadLetterRecoverer(KafkaTemplate<String, Object> template) {
+        // Partition -1: chosen from the key, as retry topics may not match the DLT partition count
+        return new DeadLetterPublishingRecoverer(template,
+                (record, e) -> new TopicPartition(NotificationLane.of(record.topic()).dltTopic(), -1));
+    }
+
     /**
      * Configures the error handling for Kafka consumers.
-     * If a message fails, it will retry 3 times every 2 seconds.
-     * After exhaustion, it will be sent to a .DLT (Dead Letter Topic).
+     * A failed message is not retried in place, which would stall its partition: it is republished
+     * to the next retry topic (app.notification.consumer.retry-tiers) and, after the last one,
+     * sent to the DLT (Dead Letter Topic).
+     */
+    @Bean
+    public DefaultErrorHandler errorHandler(NotificationRetryTopics retryTopics) {
+        // No in-place retries; the recoverer runs on the first failure
+        var backOff = new FixedBackOff(0L, 0L);
+
+        return new DefaultErrorHandler((record, e) -> retryTopics.forward(record, e).block(), backOff);
+    }
+
+    /**
+     * Container factory for the batch listener: one listener call per poll, offsets committed
+     * once the call returns, i.e. after every record of the batch has settled.
      */
     @Bean
-    public DefaultErrorHandler errorHandler(KafkaTemplate<String, Object> template) {
-        // Retry policy: 3 attempts, 2000ms interval
-        var backOff = new FixedBackOff(2000L, 3);
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> batchListenerContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            ConsumerFactory<Object, Object> consumerFactory) {
+        var factory = new ConcurrentKafkaListenerContainerFactory<Object, Object>();
+        // Same spring.kafka.listener.* settings and error handler as the default factory
+        configurer.configure(factory, consumerFactory);
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.BATCH);
+        return factory;
+    }
 
-        // Recoverer that sends the failed message to a topic named: originalTopic-dlt
-        var recoverer = new DeadLetterPublishingRecoverer(template);
+    /**
+     * Reactive receivers for mode=reactive, one per lane, built from the same spring.kafka.consumer.* settings.
+     * Offsets may be acknowledged out of order; reactor-kafka only commits up to the lowest
+     * offset of each partition that is still in flight.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "app.notification.consumer.mode", havingValue = "reactive")
+    public KafkaReceiver<String, TransactionEvent> transactionEventReceiver(KafkaProperties kafkaProperties,
+                                                                         ObjectProvider<SslBundles> sslBundles,
+                                                                         NotificationConsumerProperties properties) {
+        return receiver(NotificationLane.RECEIPT, kafkaProperties, sslBundles, properties);
+    }
+
+    /**
+     * The alert lane has a consumer of its own, so a receipt backlog never holds back its fetches.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "app.notification.consumer.mode", havingValue = "reactive")
+    public KafkaReceiver<String, TransactionEvent> alertEventReceiver(KafkaProperties kafkaProperties,
+                                                                   ObjectProvider<SslBundles> sslBundles,
+                                                                   NotificationConsumerProperties properties) {
+        return receiver(NotificationLane.ALERT, kafkaProperties, sslBundles, properties);
+    }
 
-        return new DefaultErrorHandler(recoverer, backOff);
+    private static KafkaReceiver<String, TransactionEvent> receiver(NotificationLane lane,
+                                                                   KafkaProperties kafkaProperties,
+                                                                   ObjectProvider<SslBundles> sslBundles,
+                                                                   NotificationConsumerProperties properties) {
+        ReceiverOptions<String, TransactionEvent> options = ReceiverOptions.<String, TransactionEvent>create(
+                        kafkaProperties.buildConsumerProperties(sslBundles.getIfAvailable()))
+                .maxDeferredCommits(properties.getMaxDeferredCommits())
+                .subscription(List.of(lane.topic()));
+        return KafkaReceiver.create(options);
     }
-}
\ No newline at end of file
+}
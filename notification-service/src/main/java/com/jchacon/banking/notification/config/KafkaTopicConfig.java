@@ -0,0 +1,48 @@
+package com.jchacon.banking.notification.config;
+
+import com.jchacon.banking.notification.consumer.NotificationLane;
+import com.jchacon.banking.notification.consumer.NotificationRetryTopics;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.KafkaAdmin;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+public class KafkaTopicConfig {
+
+    /**
+     * Topics of every lane, created by KafkaAdmin at startup when missing. Existing topics are left as they
+     * are unless they have fewer partitions.
+     */
+    @Bean
+    public KafkaAdmin.NewTopics notificationTopics(NotificationRetryTopics retryTopics,
+                                                   NotificationConsumerProperties properties) {
+        return new KafkaAdmin.NewTopics(laneTopics(retryTopics, properties).toArray(NewTopic[]::new));
+    }
+
+    /**
+     * @return List<NewTopic> per lane: the main topic, one retry topic per tier and the DLT
+     */
+    public static List<NewTopic> laneTopics(NotificationRetryTopics retryTopics, NotificationConsumerProperties properties) {
+        List<NewTopic> topics = new ArrayList<>();
+        for (NotificationLane lane : NotificationLane.values()) {
+            topics.add(topic(lane.topic(), properties));
+            for (int tier = 0; tier < retryTopics.tierCount(); tier++) {
+                topics.add(topic(retryTopics.topic(lane, tier), properties));
+            }
+            topics.add(topic(lane.dltTopic(), properties));
+        }
+        return topics;
+    }
+
+    private static NewTopic topic(String name, NotificationConsumerProperties properties) {
+        return TopicBuilder.name(name)
+                .partitions(properties.getTopicPartitions())
+                .replicas(properties.getTopicReplicas())
+                .build();
+    }
+}
@@ -0,0 +1,30 @@
+package com.jchacon.banking.notification.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Per-customer burst aggregation and redelivery dedup (app.notification.aggregation.*).
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.notification.aggregation")
+public class NotificationAggregationProperties {
+
+    // false: one notification per event, as before
+    private boolean enabled = true;
+
+    // The first alert of a customer is sent right away; the rest of the window goes out as one digest.
+    // Approval receipts are always sent one by one
+    private Duration window = Duration.ofMinutes(1);
+
+    // Customers with an open window; beyond this the oldest windows are flushed early
+    private long maxCustomers = 100_000;
+
+    // How long a notified transactionId is remembered to drop Kafka redeliveries, and how many at most
+    private Duration dedupTtl = Duration.ofMinutes(10);
+    private long dedupMaxSize = 500_000;
+}
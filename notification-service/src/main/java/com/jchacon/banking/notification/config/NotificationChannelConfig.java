@@ -0,0 +1,31 @@
+package com.jchacon.banking.notification.config;
+
+import com.jchacon.banking.notification.channel.NotificationChannel;
+import com.jchacon.banking.notification.channel.StubNotificationChannel;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Local stub channels with the latency set in app.notification.channels.<name>.stub-latency.
+ * Real gateway channels are NotificationChannel beans of their own, with app.notification.stub-channels=false.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.notification.stub-channels", havingValue = "true", matchIfMissing = true)
+public class NotificationChannelConfig {
+
+    @Bean
+    public NotificationChannel smsChannel(NotificationChannelProperties properties) {
+        return new StubNotificationChannel("sms", properties.settings("sms").getStubLatency());
+    }
+
+    @Bean
+    public NotificationChannel pushChannel(NotificationChannelProperties properties) {
+        return new StubNotificationChannel("push", properties.settings("push").getStubLatency());
+    }
+
+    @Bean
+    public NotificationChannel emailChannel(NotificationChannelProperties properties) {
+        return new StubNotificationChannel("email", properties.settings("email").getStubLatency());
+    }
+}
@@ -0,0 +1,47 @@
+package com.jchacon.banking.notification.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Notification channels: per-channel isolation settings (app.notification.channels.<name>.*), e.g. sms, push, email.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.notification")
+public class NotificationChannelProperties {
+
+    // Register the local stub channels; disable once real gateway channels are deployed
+    private boolean stubChannels = true;
+
+    private Map<String, Channel> channels = new LinkedHashMap<>();
+
+    public Channel settings(String name) {
+        return channels.getOrDefault(name, new Channel());
+    }
+
+    @Data
+    public static class Channel {
+
+        // Sends in flight at once; further sends are rejected until one finishes
+        private int maxConcurrency = 32;
+
+        // Part of max-concurrency approval receipts may take; the rest is held for alerts
+        private double receiptShare = 0.75;
+
+        // Longest a single send may take
+        private Duration timeout = Duration.ofSeconds(5);
+
+        // Consecutive failures that open the circuit, and how long it stays open
+        private int failureThreshold = 5;
+        private Duration openDuration = Duration.ofSeconds(30);
+
+        // Latency of the stub gateway
+        private Duration stubLatency = Duration.ofMillis(50);
+    }
+}
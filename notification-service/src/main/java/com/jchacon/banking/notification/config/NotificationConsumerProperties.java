@@ -0,0 +1,43 @@
+package com.jchacon.banking.notification.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tuning of the fraud-detection-events and fraud-detection-alerts consumers (app.notification.consumer.*).
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.notification.consumer")
+public class NotificationConsumerProperties {
+
+    // record: one event per listener call; batch: a whole poll dispatched concurrently;
+    // reactive: reactor-kafka receiver, events dispatched concurrently per partition
+    private String mode = "record";
+
+    // Keys dispatched at the same time in batch mode; events of one key always run one after another.
+    // In reactive mode, events in flight per partition
+    private int concurrency = 16;
+
+    // Reactive mode: acknowledged offsets held back while an earlier offset of the same partition is in flight
+    private int maxDeferredCommits = 1000;
+
+    // Delay of each retry topic (<lane topic>-retry-<delay>, one set per lane), in order; a failing event moves
+    // one tier down per failure and goes to the DLT after the last one
+    private List<Duration> retryTiers = List.of(Duration.ofSeconds(5), Duration.ofSeconds(30), Duration.ofMinutes(5));
+
+    // Partitions and replication factor of the lane topics created at startup (main, retry tiers, DLT)
+    private int topicPartitions = 1;
+    private short topicReplicas = 1;
+
+    // End-to-end latency each lane is expected to meet (alert, receipt), measured from the Kafka record timestamp
+    private Map<String, Duration> latencyBudget = new LinkedHashMap<>(Map.of(
+            "alert", Duration.ofSeconds(2),
+            "receipt", Duration.ofMinutes(1)));
+}
@@ -0,0 +1,60 @@
+package com.jchacon.banking.notification.consumer;
+
+import com.jchacon.banking.notification.config.NotificationConsumerProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end latency per lane: from the Kafka record timestamp (when fraud-detection-service published it)
+ * to the notification going out. Retried records keep the timestamp of the main topic record in a header,
+ * so a delivery on a retry tier counts its whole delay. notification.lane.latency{lane} has a histogram bucket at the lane's budget
+ * (app.notification.consumer.latency-budget.*), and notification.lane.budget.exceeded{lane} counts the misses.
+ */
+@Component
+public class LaneMetrics {
+
+    private final Clock clock;
+    private final Map<NotificationLane, Duration> budgets = new EnumMap<>(NotificationLane.class);
+    private final Map<NotificationLane, Timer> latency = new EnumMap<>(NotificationLane.class);
+    private final Map<NotificationLane, Counter> exceeded = new EnumMap<>(NotificationLane.class);
+
+    @Autowired
+    public LaneMetrics(NotificationConsumerProperties properties, MeterRegistry meterRegistry) {
+        this(properties, meterRegistry, Clock.systemUTC());
+    }
+
+    LaneMetrics(NotificationConsumerProperties properties, MeterRegistry meterRegistry, Clock clock) {
+        this.clock = clock;
+        for (NotificationLane lane : NotificationLane.values()) {
+            Duration budget = properties.getLatencyBudget().getOrDefault(lane.tag(), Duration.ofMinutes(1));
+            budgets.put(lane, budget);
+            latency.put(lane, Timer.builder("notification.lane.latency")
+                    .tag("lane", lane.tag())
+                    .serviceLevelObjectives(budget)
+                    .register(meterRegistry));
+            exceeded.put(lane, meterRegistry.counter("notification.lane.budget.exceeded", "lane", lane.tag()));
+        }
+    }
+
+    /**
+     * Records a delivered event of a main topic or of one of its retry topics.
+     */
+    public void delivered(ConsumerRecord<?, ?> record) {
+        NotificationLane lane = NotificationLane.of(record.topic());
+        long millis = Math.max(0, clock.millis() - NotificationRetryTopics.originTimestampOf(record));
+        latency.get(lane).record(millis, TimeUnit.MILLISECONDS);
+        if (millis > budgets.get(lane).toMillis()) {
+            exceeded.get(lane).increment();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.jchacon.banking.notification.consumer;
+
+import com.jchacon.banking.notification.event.TransactionEvent;
+import com.jchacon.banking.notification.service.NotificationService;
+import lombok.RequiredArgsConstructor;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * Delivers one consumed event without blocking. A failure is not retried in place: the event is handed
+ * to the retry topics (or the DLT) so the rest of its partition keeps flowing. Used by the consumers that
+ * dispatch concurrently.
+ */
+@Component
+@RequiredArgsConstructor
+public class NotificationDelivery {
+
+    private final NotificationService notificationService;
+    private final NotificationRetryTopics retryTopics;
+    private final LaneMetrics laneMetrics;
+
+    /**
+     * @return Mono<Boolean> true when delivered, false when handed to a retry topic or the DLT;
+     * an error only when that hand-off failed too
+     */
+    public Mono<Boolean> deliver(ConsumerRecord<String, TransactionEvent> record) {
+        TransactionEvent event = record.value();
+        if (event == null) {
+            // ErrorHandlingDeserializer left the value empty; the DLT recoverer publishes the original bytes
+            return retryTopics.forward(record, new IllegalStateException("Record value could not be deserialized"))
+                    .thenReturn(false);
+        }
+        return Mono.defer(() -> notificationService.sendNotification(event))
+                .doOnNext(sent -> {
+                    if (sent) {
+                        laneMetrics.delivered(record);
+                    }
+                })
+                .thenReturn(true)
+                .onErrorResume(e -> retryTopics.forward(record, e).thenReturn(false));
+    }
+}
@@ -0,0 +1,46 @@
+package com.jchacon.banking.notification.consumer;
+
+/**
+ * Priority lanes. fraud-detection-service publishes rejections and errors to their own topic, and each
+ * topic is consumed by its own containers/receivers, so a backlog of approval receipts never delays an alert.
+ */
+public enum NotificationLane {
+
+    ALERT("fraud-detection-alerts"),
+    RECEIPT("fraud-detection-events");
+
+    private final String topic;
+
+    NotificationLane(String topic) {
+        this.topic = topic;
+    }
+
+    public String topic() {
+        return topic;
+    }
+
+    public String tag() {
+        return name().toLowerCase();
+    }
+
+    /**
+     * Retry topic of this lane for one tier, e.g. fraud-detection-alerts-retry-5s.
+     */
+    public String retryTopic(String tierLabel) {
+        return topic + "-retry-" + tierLabel;
+    }
+
+    /**
+     * Dead letter topic of this lane, e.g. fraud-detection-alerts-dlt.
+     */
+    public String dltTopic() {
+        return topic + "-dlt";
+    }
+
+    /**
+     * @return NotificationLane of a main topic or of one of its retry topics or DLT; unknown topics count as receipts
+     */
+    public static NotificationLane of(String topic) {
+        return topic != null && (topic.equals(ALERT.topic) || topic.startsWith(ALERT.topic + "-")) ? ALERT : RECEIPT;
+    }
+}
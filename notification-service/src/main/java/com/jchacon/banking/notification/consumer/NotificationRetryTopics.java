@@ -0,0 +1,208 @@
+package com.jchacon.banking.notification.consumer;
+
+import com.jchacon.banking.notification.config.NotificationConsumerProperties;
+import com.jchacon.banking.notification.event.TransactionEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.ListenerExecutionFailedException;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Non-blocking retries: a failed event is republished to the next retry topic of its lane
+ * (fraud-detection-events-retry-5s, -30s, -5m by default, fraud-detection-alerts-retry-* for alerts) instead
+ * of being retried on the partition it came from, and to the DLT once the last tier has failed too. Each
+ * retry topic is consumed with its delay by {@link RetryTierConsumer}, so retried alerts never wait
+ * behind retried receipts.
+ */
+@Slf4j
+@Component
+public class NotificationRetryTopics {
+
+    // Index of the tier the record was published to, and when it may be consumed (epoch millis)
+    static final String TIER_HEADER = "notification-retry-tier";
+    static final String DUE_HEADER = "notification-retry-due";
+    // Timestamp of the main topic record, kept across tiers for the lane latency
+    static final String ORIGIN_TIMESTAMP_HEADER = "notification-origin-timestamp";
+    // Text of a customer digest; the retry sends it instead of notifying the carried event on its own
+    static final String DIGEST_HEADER = "notification-digest";
+
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final DeadLetterPublishingRecoverer deadLetterRecoverer;
+    private final MeterRegistry meterRegistry;
+    private final Clock clock;
+    private final List<Duration> delays;
+
+    @Autowired
+    public NotificationRetryTopics(KafkaTemplate<String, Object> kafkaTemplate,
+                                   DeadLetterPublishingRecoverer deadLetterRecoverer,
+                                   NotificationConsumerProperties properties,
+                                   MeterRegistry meterRegistry) {
+        this(kafkaTemplate, deadLetterRecoverer, properties, meterRegistry, Clock.systemUTC());
+    }
+
+    NotificationRetryTopics(KafkaTemplate<String, Object> kafkaTemplate,
+                            DeadLetterPublishingRecoverer deadLetterRecoverer,
+                            NotificationConsumerProperties properties,
+                            MeterRegistry meterRegistry,
+                            Clock clock) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.deadLetterRecoverer = deadLetterRecoverer;
+        this.meterRegistry = meterRegistry;
+        this.clock = clock;
+        this.delays = List.copyOf(properties.getRetryTiers());
+    }
+
+    public int tierCount() {
+        return delays.size();
+    }
+
+    public Duration delay(int tier) {
+        return delays.get(tier);
+    }
+
+    public String topic(NotificationLane lane, int tier) {
+        return lane.retryTopic(label(tier));
+    }
+
+    /**
+     * Short form of the tier delay used in topic names and metric tags: 5s, 30s, 5m, 1h, 250ms.
+     */
+    public String label(int tier) {
+        Duration delay = delays.get(tier);
+        if (delay.toMillis() % 1000 != 0) {
+            return delay.toMillis() + "ms";
+        }
+        long seconds = delay.toSeconds();
+        if (seconds % 3600 == 0) {
+            return seconds / 3600 + "h";
+        }
+        return seconds % 60 == 0 ? seconds / 60 + "m" : seconds + "s";
+    }
+
+    /**
+     * Moves a failed record one tier down within its lane: to the first retry topic when it comes from the
+     * main topic, to the DLT after the last tier. Records without a value (deserialization failures) go straight to the DLT.
+     * @return Mono<Void> completes once the broker has acknowledged the new record
+     */
+    public Mono<Void> forward(ConsumerRecord<?, ?> record, Throwable failure) {
+        Exception cause = unwrap(failure);
+        int next = tierOf(record) + 1;
+        if (record.value() == null || next >= delays.size()) {
+            return deadLetter(record, cause);
+        }
+        NotificationLane lane = NotificationLane.of(record.topic());
+        long due = clock.millis() + delays.get(next).toMillis();
+        RecordHeaders headers = new RecordHeaders(record.headers().toArray());
+        if (headers.lastHeader(ORIGIN_TIMESTAMP_HEADER) == null) {
+            headers.add(ORIGIN_TIMESTAMP_HEADER, Long.toString(record.timestamp()).getBytes(StandardCharsets.UTF_8));
+        }
+        headers.remove(TIER_HEADER);
+        headers.remove(DUE_HEADER);
+        headers.add(TIER_HEADER, Integer.toString(next).getBytes(StandardCharsets.UTF_8));
+        headers.add(DUE_HEADER, Long.toString(due).getBytes(StandardCharsets.UTF_8));
+        ProducerRecord<String, Object> retry = new ProducerRecord<>(topic(lane, next), null,
+                record.key() != null ? record.key().toString() : null, record.value(), headers);
+
+        return Mono.fromFuture(() -> kafkaTemplate.send(retry))
+                .doOnSuccess(result -> {
+                    meterRegistry.counter("notification.retry.forwarded", "lane", lane.tag(), "tier", label(next)).increment();
+                    log.warn("Event at {}-{}@{} failed ({}), retrying on {}",
+                            record.topic(), record.partition(), record.offset(), cause.getMessage(), retry.topic());
+                })
+                .then();
+    }
+
+    /**
+     * Hands a digest that no channel delivered to the first retry tier of the alert lane (only alerts are
+     * windowed). The record carries the digest's last event and the digest text, and then moves down the
+     * tiers like any other retried record.
+     * @return Mono<Void> completes once the broker has acknowledged the record
+     */
+    public Mono<Void> forwardDigest(TransactionEvent last, String message, Throwable failure) {
+        if (delays.isEmpty()) {
+            return Mono.error(new IllegalStateException("No retry tier configured for the digest of " + last.getCustomerId()));
+        }
+        long now = clock.millis();
+        RecordHeaders headers = new RecordHeaders();
+        headers.add(ORIGIN_TIMESTAMP_HEADER, Long.toString(now).getBytes(StandardCharsets.UTF_8));
+        headers.add(DIGEST_HEADER, message.getBytes(StandardCharsets.UTF_8));
+        headers.add(TIER_HEADER, "0".getBytes(StandardCharsets.UTF_8));
+        headers.add(DUE_HEADER, Long.toString(now + delays.get(0).toMillis()).getBytes(StandardCharsets.UTF_8));
+        ProducerRecord<String, Object> retry = new ProducerRecord<>(topic(NotificationLane.ALERT, 0), null,
+                last.getCustomerId(), last, headers);
+
+        return Mono.fromFuture(() -> kafkaTemplate.send(retry))
+                .doOnSuccess(result -> {
+                    meterRegistry.counter("notification.retry.forwarded", "lane", NotificationLane.ALERT.tag(),
+                            "tier", label(0)).increment();
+                    log.warn("Digest for customer {} {}, retrying on {}", last.getCustomerId(),
+                            failure != null ? "failed (" + failure.getMessage() + ")" : "not sent before shutdown",
+                            retry.topic());
+                })
+                .then();
+    }
+
+    /**
+     * @return String digest text of a retried digest, null for a retried event
+     */
+    static String digestOf(ConsumerRecord<?, ?> record) {
+        Header header = record.headers().lastHeader(DIGEST_HEADER);
+        return header == null ? null : new String(header.value(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return int tier index from the record headers, -1 for records of the main topic
+     */
+    static int tierOf(ConsumerRecord<?, ?> record) {
+        Header header = record.headers().lastHeader(TIER_HEADER);
+        return header == null ? -1 : Integer.parseInt(new String(header.value(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return long epoch millis at which a retry record may be consumed, 0 when it has no due time
+     */
+    static long dueOf(ConsumerRecord<?, ?> record) {
+        Header header = record.headers().lastHeader(DUE_HEADER);
+        return header == null ? 0L : Long.parseLong(new String(header.value(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return long epoch millis of the main topic record a retry record was made from, the record's own
+     * timestamp for records of a main topic
+     */
+    static long originTimestampOf(ConsumerRecord<?, ?> record) {
+        Header header = record.headers().lastHeader(ORIGIN_TIMESTAMP_HEADER);
+        return header == null ? record.timestamp() : Long.parseLong(new String(header.value(), StandardCharsets.UTF_8));
+    }
+
+    private Mono<Void> deadLetter(ConsumerRecord<?, ?> record, Exception cause) {
+        // The recoverer waits for the DLT ack, so it runs off the consuming threads
+        return Mono.fromRunnable(() -> deadLetterRecoverer.accept(record, cause))
+                .subscribeOn(Schedulers.boundedElastic())
+                .doOnSubscribe(s -> log.error("Error processing notification event at {}-{}@{}: {}",
+                        record.topic(), record.partition(), record.offset(), cause.getMessage()))
+                .doOnSuccess(done -> meterRegistry.counter("notification.retry.forwarded",
+                        "lane", NotificationLane.of(record.topic()).tag(), "tier", "dlt").increment())
+                .then();
+    }
+
+    private static Exception unwrap(Throwable failure) {
+        Throwable cause = failure instanceof ListenerExecutionFailedException && failure.getCause() != null
+                ? failure.getCause() : failure;
+        return cause instanceof Exception e ? e : new IllegalStateException(cause);
+    }
+}
@@ -0,0 +1,86 @@
+package com.jchacon.banking.notification.consumer;
+
+import com.jchacon.banking.notification.config.NotificationConsumerProperties;
+import com.jchacon.banking.notification.event.TransactionEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.kafka.receiver.KafkaReceiver;
+import reactor.kafka.receiver.ReceiverOffset;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+
+/**
+ * Reactive consumer (app.notification.consumer.mode=reactive) on reactor-kafka KafkaReceivers, one per lane
+ * (receipts and alerts), so no thread waits on a notification. Records are grouped by partition and each
+ * partition keeps up to the configured concurrency in flight. An offset is acknowledged as soon as its event
+ * is delivered or handed to the retry topics, in any order; the receiver commits each partition only up to
+ * its oldest unsettled offset.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.notification.consumer.mode", havingValue = "reactive")
+public class ReactiveTransactionEventConsumer {
+
+    private final KafkaReceiver<String, TransactionEvent> receiver;
+    private final KafkaReceiver<String, TransactionEvent> alertReceiver;
+    private final NotificationDelivery delivery;
+    private final NotificationConsumerProperties properties;
+
+    private Disposable subscription;
+
+    public ReactiveTransactionEventConsumer(@Qualifier("transactionEventReceiver") KafkaReceiver<String, TransactionEvent> receiver,
+                                            @Qualifier("alertEventReceiver") KafkaReceiver<String, TransactionEvent> alertReceiver,
+                                            NotificationDelivery delivery,
+                                            NotificationConsumerProperties properties) {
+        this.receiver = receiver;
+        this.alertReceiver = alertReceiver;
+        this.delivery = delivery;
+        this.properties = properties;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        // Each lane runs and restarts on its own
+        subscription = Disposables.composite(run(receiver), run(alertReceiver));
+    }
+
+    private Disposable run(KafkaReceiver<String, TransactionEvent> laneReceiver) {
+        return consume(laneReceiver)
+                // A failure (retry topic unreachable, broker error) closes the consumer; the new one resumes
+                // from the last commit, so unsettled events are redelivered as the error handler would
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1)).maxBackoff(Duration.ofSeconds(30))
+                        .doBeforeRetry(signal -> log.error("Notification consumer failed, restarting: {}",
+                                signal.failure().getMessage())))
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+
+    /**
+     * @return Flux<ReceiverOffset> offsets as they are acknowledged
+     */
+    Flux<ReceiverOffset> consume(KafkaReceiver<String, TransactionEvent> laneReceiver) {
+        return laneReceiver.receive()
+                .groupBy(record -> record.receiverOffset().topicPartition())
+                .flatMap(partition -> partition
+                        .flatMap(record -> delivery.deliver(record).thenReturn(record.receiverOffset()),
+                                properties.getConcurrency())
+                        .doOnNext(ReceiverOffset::acknowledge),
+                        // Every assigned partition needs a live group, otherwise groupBy stalls
+                        Integer.MAX_VALUE);
+    }
+}
@@ -0,0 +1,131 @@
+package com.jchacon.banking.notification.consumer;
+
+import com.jchacon.banking.notification.event.TransactionEvent;
+import com.jchacon.banking.notification.service.NotificationService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.listener.AcknowledgingMessageListener;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Consumes the retry topics, one listener container per lane and tier so that a long delay never holds back a
+ * shorter one and retried receipts never hold back retried alerts. Records of a tier share the same delay and arrive in due order: when the head is not due
+ * yet it is nacked, which pauses that container until it is (polling continues, so the group is kept).
+ *
+ * Metrics per lane and tier: notification.retry.lag (time between a record's due time and its processing) and
+ * notification.retry.attempts (tagged with the outcome); a delivery also counts in its lane's
+ * notification.lane.latency, measured from the original record. Offset lag of each retry topic is reported by the
+ * Kafka client metrics as kafka.consumer.fetch.manager.records.lag.
+ */
+@Slf4j
+@Component
+public class RetryTierConsumer implements SmartLifecycle {
+
+    private final ConcurrentKafkaListenerContainerFactory<?, ?> containerFactory;
+    private final NotificationService notificationService;
+    private final NotificationRetryTopics retryTopics;
+    private final LaneMetrics laneMetrics;
+    private final MeterRegistry meterRegistry;
+    private final Clock clock;
+    private final List<ConcurrentMessageListenerContainer<?, ?>> containers = new ArrayList<>();
+
+    @Autowired
+    public RetryTierConsumer(ConcurrentKafkaListenerContainerFactory<?, ?> kafkaListenerContainerFactory,
+                             NotificationService notificationService,
+                             NotificationRetryTopics retryTopics,
+                             LaneMetrics laneMetrics,
+                             MeterRegistry meterRegistry) {
+        this(kafkaListenerContainerFactory, notificationService, retryTopics, laneMetrics, meterRegistry, Clock.systemUTC());
+    }
+
+    RetryTierConsumer(ConcurrentKafkaListenerContainerFactory<?, ?> kafkaListenerContainerFactory,
+                      NotificationService notificationService,
+                      NotificationRetryTopics retryTopics,
+                      LaneMetrics laneMetrics,
+                      MeterRegistry meterRegistry,
+                      Clock clock) {
+        this.containerFactory = kafkaListenerContainerFactory;
+        this.notificationService = notificationService;
+        this.retryTopics = retryTopics;
+        this.laneMetrics = laneMetrics;
+        this.meterRegistry = meterRegistry;
+        this.clock = clock;
+    }
+
+    @Override
+    public synchronized void start() {
+        for (NotificationLane lane : NotificationLane.values()) {
+            for (int tier = 0; tier < retryTopics.tierCount(); tier++) {
+                int index = tier;
+                ConcurrentMessageListenerContainer<?, ?> container =
+                        containerFactory.createContainer(retryTopics.topic(lane, tier));
+                ContainerProperties containerProperties = container.getContainerProperties();
+                containerProperties.setGroupId("notification-group");
+                containerProperties.setAckMode(ContainerProperties.AckMode.MANUAL);
+                containerProperties.setMessageListener((AcknowledgingMessageListener<String, TransactionEvent>)
+                        (record, acknowledgment) -> onMessage(index, record, acknowledgment));
+                container.setBeanName("notification-retry-" + lane.tag() + "-" + retryTopics.label(tier));
+                container.start();
+                containers.add(container);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        containers.forEach(ConcurrentMessageListenerContainer::stop);
+        containers.clear();
+    }
+
+    @Override
+    public synchronized boolean isRunning() {
+        return !containers.isEmpty();
+    }
+
+    void onMessage(int tier, ConsumerRecord<String, TransactionEvent> record, Acknowledgment acknowledgment) {
+        long late = clock.millis() - NotificationRetryTopics.dueOf(record);
+        if (late < 0) {
+            // Redelivered once due; never longer than the tier delay in case the clocks disagree
+            acknowledgment.nack(Duration.ofMillis(Math.min(-late, retryTopics.delay(tier).toMillis())));
+            return;
+        }
+        String label = retryTopics.label(tier);
+        String lane = NotificationLane.of(record.topic()).tag();
+        Timer.builder("notification.retry.lag").tag("lane", lane).tag("tier", label).register(meterRegistry)
+                .record(late, TimeUnit.MILLISECONDS);
+        try {
+            if (record.value() == null) {
+                throw new IllegalStateException("Record value could not be deserialized");
+            }
+            String digest = NotificationRetryTopics.digestOf(record);
+            Mono<Boolean> send = digest != null
+                    ? notificationService.sendDigest(record.value(), digest)
+                    : notificationService.sendNotification(record.value());
+            if (Boolean.TRUE.equals(send.block())) {
+                laneMetrics.delivered(record);
+            }
+            meterRegistry.counter("notification.retry.attempts", "lane", lane, "tier", label, "outcome", "delivered").increment();
+            log.info("Notification for {} delivered on {} retry tier {}", record.value().getTransactionId(), lane, label);
+        } catch (Exception e) {
+            meterRegistry.counter("notification.retry.attempts", "lane", lane, "tier", label, "outcome", "failed").increment();
+            // An error here (retry topic or DLT unreachable) goes to the container error handler
+            retryTopics.forward(record, e).block();
+        }
+        acknowledgment.acknowledge();
+    }
+}
@@ -0,0 +1,107 @@
+package com.jchacon.banking.notification.consumer;
+
+import com.jchacon.banking.notification.config.NotificationConsumerProperties;
+import com.jchacon.banking.notification.event.TransactionEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Batch listener (app.notification.consumer.mode=batch). Takes a whole poll and dispatches it concurrently:
+ * events are grouped by record key, keys run in parallel up to the configured concurrency and the events of
+ * one key run one after another in offset order. The listener returns, and the container commits the
+ * batch, once every event has been delivered or handed to the retry topics on its own.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.notification.consumer.mode", havingValue = "batch")
+public class TransactionEventBatchConsumer {
+
+    private final NotificationDelivery delivery;
+    private final NotificationConsumerProperties properties;
+
+    @KafkaListener(topics = "fraud-detection-events", groupId = "notification-group",
+            containerFactory = "batchListenerContainerFactory")
+    public void consume(List<ConsumerRecord<String, TransactionEvent>> records) {
+        settle(records);
+    }
+
+    /**
+     * Alert lane (fraud-detection-alerts) on its own container, so its polls never wait for receipts.
+     */
+    @KafkaListener(topics = "fraud-detection-alerts", groupId = "notification-group",
+            containerFactory = "batchListenerContainerFactory")
+    public void consumeAlerts(List<ConsumerRecord<String, TransactionEvent>> records) {
+        settle(records);
+    }
+
+    private void settle(List<ConsumerRecord<String, TransactionEvent>> records) {
+        // Blocks once per poll instead of once per event
+        Long failed = dispatch(records).block();
+        log.info("Batch of {} events settled, {} handed to the retry topics", records.size(), failed);
+    }
+
+    /**
+     * Every event settles even when another one could not be handed to the retry topics. Only then does it
+     * fail with a BatchListenerFailedException pointing at the first such event: the error handler commits
+     * the records before it, hands that one to the retry topics again and redelivers the rest, instead of
+     * recovering every record of the poll. Redelivered events that were already sent come back as duplicates.
+     *
+     * @return Mono<Long> number of events handed to a retry topic or the DLT
+     */
+    Mono<Long> dispatch(List<ConsumerRecord<String, TransactionEvent>> records) {
+        return Mono.defer(() -> {
+            Map<ConsumerRecord<String, TransactionEvent>, Throwable> unforwarded = new ConcurrentHashMap<>();
+            return Flux.fromIterable(lanes(records))
+                    .flatMap(lane -> Flux.fromIterable(lane).concatMap(record -> delivery.deliver(record)
+                            .onErrorResume(e -> {
+                                unforwarded.put(record, e);
+                                return Mono.just(false);
+                            })), properties.getConcurrency())
+                    .filter(delivered -> !delivered)
+                    .count()
+                    .flatMap(failed -> unforwarded.isEmpty()
+                            ? Mono.just(failed)
+                            : Mono.error(firstUnforwarded(records, unforwarded)));
+        });
+    }
+
+    private static BatchListenerFailedException firstUnforwarded(
+            List<ConsumerRecord<String, TransactionEvent>> records,
+            Map<ConsumerRecord<String, TransactionEvent>, Throwable> unforwarded) {
+        int index = 0;
+        while (!unforwarded.containsKey(records.get(index))) {
+            index++;
+        }
+        Throwable cause = unforwarded.get(records.get(index));
+        return new BatchListenerFailedException("Event could not be handed to the retry topics: " + cause.getMessage(),
+                cause, index);
+    }
+
+    /**
+     * Records grouped by key in poll order. Records without a key keep their partition order.
+     */
+    private static Iterable<List<ConsumerRecord<String, TransactionEvent>>> lanes(
+            List<ConsumerRecord<String, TransactionEvent>> records) {
+        Map<Object, List<ConsumerRecord<String, TransactionEvent>>> lanes = new LinkedHashMap<>();
+        for (ConsumerRecord<String, TransactionEvent> record : records) {
+            Object lane = record.key() != null ? record.key() : new TopicPartition(record.topic(), record.partition());
+            lanes.computeIfAbsent(lane, key -> new ArrayList<>()).add(record);
+        }
+        return lanes.values();
+    }
+}
@@ -4,24 +4,44 @@ import com.jchacon.banking.notification.event.TransactionEvent;
 import com.jchacon.banking.notification.service.NotificationService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.slf4j.MDC;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Component;
 
 @Slf4j
 @Component
 @RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.notification.consumer.mode", havingValue = "record", matchIfMissing = true)
 public class TransactionEventConsumer {
 
     private final NotificationService notificationService;
+    private final LaneMetrics laneMetrics;
     private static final String CORRELATION_ID_KEY = "correlationId";
 
     /**
-     * Main Kafka listener. Consumes messages from the fraud-detection-events topic.
-     * It manually manages the MDC to ensure the Correlation ID is logged.
+     * Main Kafka listener. Consumes messages from the fraud-detection-events topic (approval receipts).
      */
     @KafkaListener(topics = "fraud-detection-events", groupId = "notification-group")
-    public void consume(TransactionEvent event) {
+    public void consume(ConsumerRecord<String, TransactionEvent> record) {
+        handle(record);
+    }
+
+    /**
+     * Alert lane: rejections and errors from fraud-detection-alerts, on a container of their own
+     * so they are never polled behind a backlog of receipts.
+     */
+    @KafkaListener(topics = "fraud-detection-alerts", groupId = "notification-group")
+    public void consumeAlert(ConsumerRecord<String, TransactionEvent> record) {
+        handle(record);
+    }
+
+    /**
+     * It manually manages the MDC to ensure the Correlation ID is logged.
+     */
+    private void handle(ConsumerRecord<String, TransactionEvent> record) {
+        TransactionEvent event = record.value();
         try {
             // Manual propagation of correlationId for logging purposes in the consumer thread
             MDC.put(CORRELATION_ID_KEY, event.getCorrelationId());
@@ -31,11 +51,13 @@ public class TransactionEventConsumer {
 
             // USE .block() to ensure the Kafka thread waits for the result.
             // If the Mono throws an error, it will be caught by the catch block below.
-            notificationService.sendNotification(event).block();
+            if (Boolean.TRUE.equals(notificationService.sendNotification(event).block())) {
+                laneMetrics.delivered(record);
+            }
 
         } catch (Exception e) {
             log.error("Error processing notification event: {}", e.getMessage());
-            // Re-throw to trigger the DefaultErrorHandler (DLQ)
+            // Re-throw so the DefaultErrorHandler hands the record to the retry topics (the DLT after the last tier)
             throw e;
         } finally {
             MDC.remove(CORRELATION_ID_KEY);
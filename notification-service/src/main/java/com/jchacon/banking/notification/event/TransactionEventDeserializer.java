@@ -0,0 +1,33 @@
+package com.jchacon.banking.notification.event;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.springframework.kafka.support.JacksonUtils;
+
+import java.io.IOException;
+
+/**
+ * Kafka value deserializer for the binary {@link TransactionEventCodec} format. Records still written by the
+ * JSON serializer (they start with '{', never a valid version byte) are read as JSON, so the topic can be
+ * consumed across the switch-over.
+ */
+public class TransactionEventDeserializer implements Deserializer<TransactionEvent> {
+
+    private static final ObjectMapper LEGACY_JSON = JacksonUtils.enhancedObjectMapper();
+
+    @Override
+    public TransactionEvent deserialize(String topic, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        try {
+            if (data.length > 0 && data[0] == '{') {
+                return LEGACY_JSON.readValue(data, TransactionEvent.class);
+            }
+            return TransactionEventCodec.decode(data);
+        } catch (IOException | IllegalArgumentException e) {
+            throw new SerializationException("Cannot deserialize TransactionEvent from " + topic, e);
+        }
+    }
+}
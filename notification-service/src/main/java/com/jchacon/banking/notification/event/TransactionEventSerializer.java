@@ -0,0 +1,14 @@
+package com.jchacon.banking.notification.event;
+
+import org.apache.kafka.common.serialization.Serializer;
+
+/**
+ * Kafka value serializer writing the binary {@link TransactionEventCodec} format.
+ */
+public class TransactionEventSerializer implements Serializer<TransactionEvent> {
+
+    @Override
+    public byte[] serialize(String topic, TransactionEvent event) {
+        return event == null ? null : TransactionEventCodec.encode(event);
+    }
+}
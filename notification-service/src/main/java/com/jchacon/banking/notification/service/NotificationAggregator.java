@@ -0,0 +1,218 @@
+package com.jchacon.banking.notification.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.jchacon.banking.notification.config.NotificationAggregationProperties;
+import com.jchacon.banking.notification.event.TransactionEvent;
+import com.jchacon.banking.notification.model.enums.TransactionStatus;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+
+/**
+ * Collapses bursts per customer and drops redelivered events.
+ *
+ * Windows are leading-edge: the first event of a customer opens a window and is notified right away, later
+ * events of the same customer are only counted, and when the window closes they go out as one digest.
+ * A window lasts app.notification.aggregation.window from its first event, however many events follow.
+ * Only alerts (rejections, errors) are windowed; every approval receipt is sent on its own.
+ *
+ * Both the windows and the notified transactionIds live in size-bounded Caffeine caches that expire on
+ * their own; closing windows are flushed by Caffeine's scheduler, so no sweeper is needed. Windows only
+ * live in memory: {@link #flush} hands the open ones over on shutdown.
+ */
+@Component
+public class NotificationAggregator {
+
+    public enum Decision { SEND, SUPPRESS, DUPLICATE }
+
+    /**
+     * What a customer did after the first event of a window.
+     * @param byStatus number of events per status, e.g. REJECTED=120
+     * @param last most recent event, used as the digest's transaction reference
+     * @param transactionIds the counted events, marked as notified once the digest went out
+     */
+    public record Digest(String customerId, int count, Map<String, Integer> byStatus, BigDecimal total,
+                         Duration window, TransactionEvent last, Set<String> transactionIds) {
+    }
+
+    private final boolean enabled;
+    private final Duration window;
+    private final Cache<String, CustomerWindow> windows;
+    private final Cache<String, Boolean> notified;
+    private final MeterRegistry meterRegistry;
+    private volatile Consumer<Digest> digestListener = digest -> { };
+
+    @Autowired
+    public NotificationAggregator(NotificationAggregationProperties properties, MeterRegistry meterRegistry) {
+        this(properties, meterRegistry, Ticker.systemTicker(), Scheduler.systemScheduler(), ForkJoinPool.commonPool());
+    }
+
+    NotificationAggregator(NotificationAggregationProperties properties, MeterRegistry meterRegistry,
+                           Ticker ticker, Scheduler scheduler, Executor executor) {
+        this.enabled = properties.isEnabled();
+        this.window = properties.getWindow();
+        this.meterRegistry = meterRegistry;
+        this.windows = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxCustomers())
+                .expireAfter(Expiry.<String, CustomerWindow>creating((customerId, window) -> this.window))
+                .ticker(ticker)
+                .scheduler(scheduler)
+                .executor(executor)
+                .removalListener((String customerId, CustomerWindow window, RemovalCause cause) -> close(window, cause))
+                .recordStats()
+                .build();
+        this.notified = Caffeine.newBuilder()
+                .maximumSize(properties.getDedupMaxSize())
+                .expireAfterWrite(properties.getDedupTtl())
+                .ticker(ticker)
+                .executor(executor)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, windows, "notification-windows");
+        CaffeineCacheMetrics.monitor(meterRegistry, notified, "notification-dedup");
+    }
+
+    /**
+     * Receives the digests of closing windows that counted at least one event.
+     */
+    public void onDigest(Consumer<Digest> listener) {
+        this.digestListener = listener;
+    }
+
+    /**
+     * @return Decision SEND for a customer's first alert in the window and for every approval, SUPPRESS when
+     * it was added to the open window, DUPLICATE when this transactionId was already notified or is already
+     * counted in the open window
+     */
+    public Decision admit(TransactionEvent event) {
+        if (!enabled) {
+            return Decision.SEND;
+        }
+        if (event.getTransactionId() != null && notified.getIfPresent(event.getTransactionId()) != null) {
+            return count(Decision.DUPLICATE);
+        }
+        if (event.getCustomerId() == null || TransactionStatus.APPROVED.getDescription().equals(event.getStatus())) {
+            return count(Decision.SEND);
+        }
+        Decision[] decision = {Decision.SEND};
+        windows.asMap().compute(event.getCustomerId(), (customerId, open) -> {
+            if (open == null) {
+                return new CustomerWindow();
+            }
+            decision[0] = open.add(event) ? Decision.SUPPRESS : Decision.DUPLICATE;
+            return open;
+        });
+        return count(decision[0]);
+    }
+
+    /**
+     * Remembers a transaction that was notified on its own, so a redelivery is dropped.
+     * Only called once it went out: a failed event must still get through when it is retried.
+     */
+    public void markNotified(TransactionEvent event) {
+        if (enabled && event.getTransactionId() != null) {
+            notified.put(event.getTransactionId(), Boolean.TRUE);
+        }
+    }
+
+    /**
+     * Remembers the events counted in a digest once it was delivered or handed to the retry topics. Until
+     * then they are only known to their window, so a digest that is lost does not make their redeliveries
+     * look like duplicates.
+     */
+    public void markNotified(Digest digest) {
+        if (enabled) {
+            digest.transactionIds().forEach(transactionId -> notified.put(transactionId, Boolean.TRUE));
+        }
+    }
+
+    /**
+     * Closes every open window now and passes the digests that counted an event to the given consumer
+     * instead of the digest listener; called on shutdown so counted events are not dropped with the cache.
+     */
+    public void flush(Consumer<Digest> consumer) {
+        for (String customerId : windows.asMap().keySet()) {
+            // An explicit removal does not reach the removal listener
+            CustomerWindow closing = windows.asMap().remove(customerId);
+            Digest digest = closing != null ? closing.toDigest(window) : null;
+            if (digest != null) {
+                meterRegistry.counter("notification.aggregation.digests").increment();
+                consumer.accept(digest);
+            }
+        }
+    }
+
+    /**
+     * Runs pending expirations; Caffeine does this on its own, tests call it to flush deterministically.
+     */
+    void cleanUp() {
+        windows.cleanUp();
+        notified.cleanUp();
+    }
+
+    private void close(CustomerWindow closing, RemovalCause cause) {
+        if (closing == null || cause == RemovalCause.EXPLICIT || cause == RemovalCause.REPLACED) {
+            return;
+        }
+        Digest digest = closing.toDigest(window);
+        if (digest != null) {
+            meterRegistry.counter("notification.aggregation.digests").increment();
+            digestListener.accept(digest);
+        }
+    }
+
+    private Decision count(Decision decision) {
+        meterRegistry.counter("notification.aggregation.events", "result", decision.name().toLowerCase()).increment();
+        return decision;
+    }
+
+    /**
+     * Events of one customer after the first one of its window. Only touched inside compute, i.e. under the
+     * cache's lock for that customer, and read once the entry has been removed.
+     */
+    private static final class CustomerWindow {
+
+        private final Map<String, Integer> byStatus = new TreeMap<>();
+        private final Set<String> transactionIds = new HashSet<>();
+        private int count;
+        private BigDecimal total = BigDecimal.ZERO;
+        private TransactionEvent last;
+
+        /**
+         * @return false when the event is a redelivery of one already counted
+         */
+        boolean add(TransactionEvent event) {
+            if (event.getTransactionId() != null && !transactionIds.add(event.getTransactionId())) {
+                return false;
+            }
+            count++;
+            byStatus.merge(String.valueOf(event.getStatus()), 1, Integer::sum);
+            if (event.getAmount() != null) {
+                total = total.add(event.getAmount());
+            }
+            last = event;
+            return true;
+        }
+
+        Digest toDigest(Duration window) {
+            return count == 0 ? null : new Digest(last.getCustomerId(), count, Map.copyOf(byStatus), total, window, last,
+                    Set.copyOf(transactionIds));
+        }
+    }
+}
@@ -5,6 +5,17 @@ import reactor.core.publisher.Mono;
 
 public interface NotificationService {
 
-    Mono<Void> sendNotification(TransactionEvent event);
+    /**
+     * @return Mono<Boolean> true when the notification went out, false when nothing was sent
+     * (a redelivery already notified, or an event left for its customer's digest)
+     */
+    Mono<Boolean> sendNotification(TransactionEvent event);
+
+    /**
+     * Sends a customer digest as is, without aggregation; used when a failed digest is retried.
+     * @param last most recent event of the digest, the transaction reference of the message
+     * @return Mono<Boolean> true once a channel delivered it
+     */
+    Mono<Boolean> sendDigest(TransactionEvent last, String message);
 
 }
@@ -1,36 +1,144 @@
 package com.jchacon.banking.notification.service;
 
+import com.jchacon.banking.notification.channel.CircuitBreaker;
+import com.jchacon.banking.notification.channel.GuardedChannel;
+import com.jchacon.banking.notification.channel.NotificationChannel;
+import com.jchacon.banking.notification.config.NotificationChannelProperties;
+import com.jchacon.banking.notification.consumer.NotificationRetryTopics;
 import com.jchacon.banking.notification.event.TransactionEvent;
 import com.jchacon.banking.notification.model.enums.TransactionStatus;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Clock;
+import java.util.List;
+
 @Slf4j
 @Service
 public class NotificationServiceImpl implements NotificationService {
 
+    private final List<GuardedChannel> channels;
+    private final NotificationAggregator aggregator;
+    private final NotificationRetryTopics retryTopics;
+
+    public NotificationServiceImpl(List<NotificationChannel> channels,
+                                   NotificationChannelProperties properties,
+                                   NotificationAggregator aggregator,
+                                   NotificationRetryTopics retryTopics,
+                                   MeterRegistry meterRegistry) {
+        this.aggregator = aggregator;
+        this.retryTopics = retryTopics;
+        // Each channel gets its own limits and breaker, so a slow gateway only affects itself
+        this.channels = channels.stream()
+                .map(channel -> {
+                    NotificationChannelProperties.Channel settings = properties.settings(channel.name());
+                    int receiptConcurrency = Math.max(1, (int) (settings.getMaxConcurrency() * settings.getReceiptShare()));
+                    return new GuardedChannel(channel, settings.getMaxConcurrency(), receiptConcurrency, settings.getTimeout(),
+                            new CircuitBreaker(settings.getFailureThreshold(), settings.getOpenDuration(), Clock.systemUTC()),
+                            meterRegistry);
+                })
+                .toList();
+        // A digest no channel delivered goes to the retry topics, like any failed notification;
+        // its events only count as notified once one of the two succeeded
+        aggregator.onDigest(digest -> {
+            String message = digestMessage(digest);
+            fanOut(digest.last(), message)
+                    .onErrorResume(e -> retryTopics.forwardDigest(digest.last(), message, e))
+                    .doOnSuccess(done -> aggregator.markNotified(digest))
+                    .subscribe(null, e -> log.error("Digest for customer {} could not be delivered nor retried: {}",
+                            digest.customerId(), e.getMessage()));
+        });
+    }
+
+    /**
+     * Open windows only live in memory: their digests are handed to the retry topics before shutdown.
+     */
+    @PreDestroy
+    public void flushDigests() {
+        aggregator.flush(digest -> {
+            try {
+                retryTopics.forwardDigest(digest.last(), digestMessage(digest), null).block();
+            } catch (Exception e) {
+                log.error("Digest for customer {} lost on shutdown: {}", digest.customerId(), e.getMessage());
+            }
+        });
+    }
+
     /**
-     * Simulates sending a notification to the customer based on the transaction status.
+     * Sends the notification to the customer on every channel at once, based on the transaction status.
+     * Completes as soon as the first channel delivered, the slower ones finish on their own; fails (and goes
+     * to the retry topics) only when no channel could deliver it. Redeliveries of a notified transaction are
+     * dropped, and alerts that follow a customer's first one within the aggregation window are left
+     * for that window's digest.
      * @param event The transaction event received from Kafka
-     * @return Mono<Void>
+     * @return Mono<Boolean> true when sent, false when dropped or left for the digest
      */
-    public Mono<Void> sendNotification(TransactionEvent event) {
-        return Mono.fromRunnable(() -> {
+    public Mono<Boolean> sendNotification(TransactionEvent event) {
+        return Mono.defer(() -> {
             log.info("Sending notification for Transaction: {} | Status: {}",
                     event.getTransactionId(), event.getStatus());
 
             // Simulate an unexpected error (e.g., Mail server down)
             if (event.getAmount().doubleValue() > 500) {
-                throw new RuntimeException("Simulated failure for high value transaction!");
+                return Mono.error(new RuntimeException("Simulated failure for high value transaction!"));
             }
 
-            // Business Logic: If the amount is too high, we might simulate a delay or specific alert
-            if (event.getStatus().equals(TransactionStatus.APPROVED.getDescription())) {
-                log.info("Message: 'Dear customer, your transaction of {} was successful.'", event.getAmount());
-            } else {
-                log.warn("Alert: 'Security notice: A transaction for {} was rejected.'", event.getAmount());
+            switch (aggregator.admit(event)) {
+                case DUPLICATE -> {
+                    log.info("Transaction {} was already notified, skipping redelivery", event.getTransactionId());
+                    return Mono.just(false);
+                }
+                case SUPPRESS -> {
+                    log.debug("Transaction {} added to the digest of customer {}", event.getTransactionId(), event.getCustomerId());
+                    return Mono.just(false);
+                }
+                default -> {
+                    return fanOut(event, message(event))
+                            .doOnSuccess(done -> aggregator.markNotified(event))
+                            .thenReturn(true);
+                }
             }
-        }).then();
+        });
+    }
+
+    public Mono<Boolean> sendDigest(TransactionEvent last, String message) {
+        return fanOut(last, message).thenReturn(true);
+    }
+
+    private Mono<Void> fanOut(TransactionEvent event, String message) {
+        Flux<Boolean> outcomes = Flux.fromIterable(channels)
+                .flatMap(channel -> channel.send(event, message)
+                        .thenReturn(true)
+                        .onErrorResume(e -> {
+                            log.warn("Channel {} failed for {}: {}", channel.name(), event.getTransactionId(), e.getMessage());
+                            return Mono.just(false);
+                        }))
+                .cache();
+        // Detached subscription keeps the slower channels sending once the first delivery completed the caller
+        outcomes.subscribe();
+        return outcomes.filter(Boolean::booleanValue)
+                .next()
+                .switchIfEmpty(Mono.error(() -> new IllegalStateException(
+                        "No channel delivered the notification for " + event.getTransactionId())))
+                .then();
+    }
+
+    private static String message(TransactionEvent event) {
+        // Business Logic: If the amount is too high, we might simulate a delay or specific alert
+        if (event.getStatus().equals(TransactionStatus.APPROVED.getDescription())) {
+            log.info("Message: 'Dear customer, your transaction of {} was successful.'", event.getAmount());
+            return "Dear customer, your transaction of " + event.getAmount() + " was successful.";
+        }
+        log.warn("Alert: 'Security notice: A transaction for {} was rejected.'", event.getAmount());
+        return "Security notice: A transaction for " + event.getAmount() + " was rejected.";
+    }
+
+    private static String digestMessage(NotificationAggregator.Digest digest) {
+        return "Security notice: " + digest.count() + " more transactions " + digest.byStatus()
+                + " totalling " + digest.total() + " in the last " + digest.window().toSeconds() + "s.";
     }
 }
@@ -3,7 +3,8 @@ package com.jchacon.banking.notification;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+// No broker here: skip creating the lane topics at startup
+@SpringBootTest(properties = "spring.kafka.admin.auto-create=false")
 class NotificationServiceApplicationTests {
 
 	@Test
@@ -0,0 +1,120 @@
+package com.jchacon.banking.notification.channel;
+
+import com.jchacon.banking.notification.event.TransactionEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class GuardedChannelTest {
+
+    private static final TransactionEvent EVENT = TransactionEvent.builder().transactionId("TXN-1").customerId("CUST-1").build();
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    @DisplayName("Should reject sends beyond the concurrency limit without calling the gateway")
+    void shouldRejectWhenBulkheadIsFull() {
+        Sinks.Empty<Void> gateway = Sinks.empty();
+        GuardedChannel channel = guarded(new FixedChannel(gateway.asMono()), 1, Duration.ofSeconds(5), 5);
+
+        StepVerifier.create(channel.send(EVENT, "first"))
+                .then(() -> StepVerifier.create(channel.send(EVENT, "second"))
+                        .verifyError(ChannelUnavailableException.class))
+                .then(gateway::tryEmitEmpty)
+                .verifyComplete();
+
+        assertEquals(1.0, count("rejected"));
+        assertEquals(1.0, count("delivered"));
+        // The permit is back once the first send finished
+        StepVerifier.create(channel.send(EVENT, "third")).verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Should keep part of the bulkhead free for alerts while receipts are saturating it")
+    void shouldReservePermitsForAlerts() {
+        Sinks.Empty<Void> gateway = Sinks.empty();
+        GuardedChannel channel = new GuardedChannel(new FixedChannel(gateway.asMono()), 2, 1, Duration.ofSeconds(5),
+                new CircuitBreaker(5, Duration.ofMinutes(1), Clock.systemUTC()), meterRegistry);
+        TransactionEvent receipt = TransactionEvent.builder().transactionId("TXN-2").status("APPROVED").build();
+        TransactionEvent alert = TransactionEvent.builder().transactionId("TXN-3").status("REJECTED").build();
+
+        channel.send(receipt, "receipt 1").subscribe();
+
+        StepVerifier.create(channel.send(receipt, "receipt 2"))
+                .verifyError(ChannelUnavailableException.class);
+        StepVerifier.create(channel.send(alert, "alert"))
+                .then(gateway::tryEmitEmpty)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Should fail a send that exceeds the timeout")
+    void shouldTimeOutSlowGateway() {
+        GuardedChannel channel = guarded(new FixedChannel(Mono.never()), 4, Duration.ofMillis(20), 5);
+
+        StepVerifier.create(channel.send(EVENT, "slow"))
+                .verifyError(TimeoutException.class);
+
+        assertEquals(1.0, count("timeout"));
+    }
+
+    @Test
+    @DisplayName("Should stop calling a failing gateway once its circuit opens")
+    void shouldShortCircuitFailingGateway() {
+        FixedChannel gateway = new FixedChannel(Mono.error(new RuntimeException("Gateway down")));
+        GuardedChannel channel = guarded(gateway, 4, Duration.ofSeconds(5), 2);
+
+        StepVerifier.create(channel.send(EVENT, "1")).verifyErrorMessage("Gateway down");
+        StepVerifier.create(channel.send(EVENT, "2")).verifyErrorMessage("Gateway down");
+        StepVerifier.create(channel.send(EVENT, "3")).verifyError(ChannelUnavailableException.class);
+
+        assertEquals(2, gateway.calls);
+        assertEquals(CircuitBreaker.State.OPEN, channel.state());
+        assertEquals(1.0, count("open"));
+    }
+
+    private GuardedChannel guarded(NotificationChannel channel, int maxConcurrency, Duration timeout, int failureThreshold) {
+        return new GuardedChannel(channel, maxConcurrency, maxConcurrency, timeout,
+                new CircuitBreaker(failureThreshold, Duration.ofMinutes(1), Clock.systemUTC()), meterRegistry);
+    }
+
+    private double count(String outcome) {
+        return meterRegistry.counter("notification.channel.sends", "channel", "test", "outcome", outcome).count();
+    }
+
+    private static class FixedChannel implements NotificationChannel {
+
+        private final Mono<Void> result;
+        private int calls;
+
+        FixedChannel(Mono<Void> result) {
+            this.result = result;
+        }
+
+        @Override
+        public String name() {
+            return "test";
+        }
+
+        @Override
+        public Mono<Void> send(TransactionEvent event, String message) {
+            calls++;
+            return result;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.jchacon.banking.notification.consumer;
+
+import com.jchacon.banking.notification.config.NotificationConsumerProperties;
+import com.jchacon.banking.notification.event.TransactionEvent;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.CountAtBucket;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.record.TimestampType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LaneMetricsTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final LaneMetrics laneMetrics = new LaneMetrics(new NotificationConsumerProperties(), meterRegistry,
+            Clock.fixed(Instant.ofEpochMilli(NOW), ZoneOffset.UTC));
+
+    @Test
+    @DisplayName("Should time each lane from the record timestamp and count budget misses")
+    void shouldMeasureLatencyPerLane() {
+        laneMetrics.delivered(record("fraud-detection-alerts", NOW - 300));
+        laneMetrics.delivered(record("fraud-detection-alerts", NOW - 2_500));
+        laneMetrics.delivered(record("fraud-detection-events", NOW - 2_500));
+
+        Timer alerts = meterRegistry.get("notification.lane.latency").tag("lane", "alert").timer();
+        assertEquals(2, alerts.count());
+        assertEquals(2_500, alerts.max(TimeUnit.MILLISECONDS));
+        // One of the two alerts was within the default 2s budget
+        Optional<CountAtBucket> withinBudget = Arrays.stream(alerts.takeSnapshot().histogramCounts())
+                .filter(bucket -> bucket.bucket(TimeUnit.MILLISECONDS) == Duration.ofSeconds(2).toMillis())
+                .findFirst();
+        assertEquals(1.0, withinBudget.orElseThrow().count());
+        assertEquals(1.0, meterRegistry.counter("notification.lane.budget.exceeded", "lane", "alert").count());
+        // 2.5s is well within the receipt budget
+        assertEquals(0.0, meterRegistry.counter("notification.lane.budget.exceeded", "lane", "receipt").count());
+        assertEquals(1, meterRegistry.get("notification.lane.latency").tag("lane", "receipt").timer().count());
+    }
+
+    private static ConsumerRecord<String, TransactionEvent> record(String topic, long timestamp) {
+        return new ConsumerRecord<>(topic, 0, 0L, timestamp, TimestampType.CREATE_TIME, 0, 0, "TXN-1",
+                TransactionEvent.builder().transactionId("TXN-1").build(), new RecordHeaders(),
+                Optional.empty());
+    }
+}
@@ -0,0 +1,195 @@
+package com.jchacon.banking.notification.consumer;
+
+import com.jchacon.banking.notification.config.KafkaTopicConfig;
+import com.jchacon.banking.notification.config.NotificationConsumerProperties;
+import com.jchacon.banking.notification.event.TransactionEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.record.TimestampType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.ListenerExecutionFailedException;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class NotificationRetryTopicsTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+
+    @Mock
+    private KafkaTemplate<String, Object> kafkaTemplate;
+
+    @Mock
+    private DeadLetterPublishingRecoverer deadLetterRecoverer;
+
+    private SimpleMeterRegistry meterRegistry;
+    private NotificationRetryTopics retryTopics;
+
+    @BeforeEach
+    void setUp() {
+        NotificationConsumerProperties properties = new NotificationConsumerProperties();
+        properties.setRetryTiers(List.of(Duration.ofSeconds(5), Duration.ofSeconds(30), Duration.ofMinutes(5)));
+        meterRegistry = new SimpleMeterRegistry();
+        retryTopics = new NotificationRetryTopics(kafkaTemplate, deadLetterRecoverer, properties, meterRegistry,
+                Clock.fixed(Instant.ofEpochMilli(NOW), ZoneOffset.UTC));
+        lenient().when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(CompletableFuture.completedFuture(null));
+    }
+
+    @Test
+    @DisplayName("Should name retry topics after their lane and delay")
+    void shouldNameTiers() {
+        assertEquals("fraud-detection-events-retry-5s", retryTopics.topic(NotificationLane.RECEIPT, 0));
+        assertEquals("fraud-detection-events-retry-30s", retryTopics.topic(NotificationLane.RECEIPT, 1));
+        assertEquals("fraud-detection-events-retry-5m", retryTopics.topic(NotificationLane.RECEIPT, 2));
+        assertEquals("fraud-detection-alerts-retry-5s", retryTopics.topic(NotificationLane.ALERT, 0));
+    }
+
+    @Test
+    @DisplayName("Should keep dead alerts on the alert lane's own DLT")
+    void shouldNameDeadLetterTopicPerLane() {
+        assertEquals("fraud-detection-events-dlt", NotificationLane.of("fraud-detection-events-retry-5m").dltTopic());
+        assertEquals("fraud-detection-alerts-dlt", NotificationLane.of("fraud-detection-alerts-retry-5m").dltTopic());
+        assertEquals("fraud-detection-alerts-dlt", NotificationLane.of("fraud-detection-alerts").dltTopic());
+        assertEquals(NotificationLane.ALERT, NotificationLane.of("fraud-detection-alerts-dlt"));
+    }
+
+    @Test
+    @DisplayName("Should provision the main, retry and DLT topics of both lanes")
+    void shouldProvisionLaneTopics() {
+        NotificationConsumerProperties properties = new NotificationConsumerProperties();
+        properties.setTopicPartitions(3);
+
+        List<NewTopic> topics = KafkaTopicConfig.laneTopics(retryTopics, properties);
+
+        assertEquals(List.of("fraud-detection-alerts", "fraud-detection-alerts-retry-5s", "fraud-detection-alerts-retry-30s",
+                        "fraud-detection-alerts-retry-5m", "fraud-detection-alerts-dlt",
+                        "fraud-detection-events", "fraud-detection-events-retry-5s", "fraud-detection-events-retry-30s",
+                        "fraud-detection-events-retry-5m", "fraud-detection-events-dlt"),
+                topics.stream().map(NewTopic::name).toList());
+        assertEquals(3, topics.get(0).numPartitions());
+    }
+
+    @Test
+    @DisplayName("Should send a failure from the main topic to the first tier with its due time")
+    void shouldForwardToFirstTier() {
+        ConsumerRecord<String, TransactionEvent> record = record("fraud-detection-events");
+
+        StepVerifier.create(retryTopics.forward(record,
+                        new ListenerExecutionFailedException("Listener failed", new RuntimeException("Mail server down"))))
+                .verifyComplete();
+
+        ProducerRecord<String, Object> sent = sent();
+        assertEquals("fraud-detection-events-retry-5s", sent.topic());
+        assertEquals("TXN-1", sent.key());
+        assertEquals(record.value(), sent.value());
+        assertEquals(0, NotificationRetryTopics.tierOf(asConsumed(sent)));
+        assertEquals(NOW + 5_000, NotificationRetryTopics.dueOf(asConsumed(sent)));
+        assertEquals(1.0, meterRegistry.counter("notification.retry.forwarded", "lane", "receipt", "tier", "5s").count());
+        verifyNoInteractions(deadLetterRecoverer);
+    }
+
+    @Test
+    @DisplayName("Should keep a failed alert on the alert retry topics with its original timestamp")
+    void shouldForwardAlertWithinItsLane() {
+        ConsumerRecord<String, TransactionEvent> record = new ConsumerRecord<>("fraud-detection-alerts", 0, 5L,
+                NOW - 700, TimestampType.CREATE_TIME, 0, 0, "TXN-1",
+                TransactionEvent.builder().transactionId("TXN-1").build(), new RecordHeaders(), Optional.empty());
+
+        StepVerifier.create(retryTopics.forward(record, new RuntimeException("boom"))).verifyComplete();
+
+        ProducerRecord<String, Object> sent = sent();
+        assertEquals("fraud-detection-alerts-retry-5s", sent.topic());
+        assertEquals(NOW - 700, NotificationRetryTopics.originTimestampOf(asConsumed(sent)));
+        assertEquals(1.0, meterRegistry.counter("notification.retry.forwarded", "lane", "alert", "tier", "5s").count());
+    }
+
+    @Test
+    @DisplayName("Should send an undelivered digest to the first alert tier with its text")
+    void shouldForwardDigest() {
+        TransactionEvent last = TransactionEvent.builder().transactionId("TXN-9").customerId("CUST-1").build();
+
+        StepVerifier.create(retryTopics.forwardDigest(last, "Security notice: 8 more transactions", new RuntimeException("boom")))
+                .verifyComplete();
+
+        ProducerRecord<String, Object> sent = sent();
+        assertEquals("fraud-detection-alerts-retry-5s", sent.topic());
+        assertEquals("CUST-1", sent.key());
+        assertEquals(last, sent.value());
+        assertEquals("Security notice: 8 more transactions", NotificationRetryTopics.digestOf(asConsumed(sent)));
+        assertEquals(NOW + 5_000, NotificationRetryTopics.dueOf(asConsumed(sent)));
+    }
+
+    @Test
+    @DisplayName("Should move a failed retry one tier down, replacing its retry headers")
+    void shouldForwardToNextTier() {
+        ConsumerRecord<String, TransactionEvent> record = record("fraud-detection-events-retry-5s");
+        record.headers().add(NotificationRetryTopics.TIER_HEADER, "0".getBytes(StandardCharsets.UTF_8));
+        record.headers().add(NotificationRetryTopics.DUE_HEADER, "1".getBytes(StandardCharsets.UTF_8));
+
+        StepVerifier.create(retryTopics.forward(record, new RuntimeException("boom"))).verifyComplete();
+
+        ProducerRecord<String, Object> sent = sent();
+        assertEquals("fraud-detection-events-retry-30s", sent.topic());
+        // Tier, due and the origin timestamp added on this first hand-off
+        assertEquals(3, sent.headers().toArray().length);
+        assertEquals(1, NotificationRetryTopics.tierOf(asConsumed(sent)));
+        assertEquals(NOW + 30_000, NotificationRetryTopics.dueOf(asConsumed(sent)));
+    }
+
+    @Test
+    @DisplayName("Should dead-letter after the last tier and records without a value right away")
+    void shouldDeadLetterAfterLastTierOrPoison() {
+        ConsumerRecord<String, TransactionEvent> exhausted = record("fraud-detection-events-retry-5m");
+        exhausted.headers().add(NotificationRetryTopics.TIER_HEADER, "2".getBytes(StandardCharsets.UTF_8));
+        ConsumerRecord<String, TransactionEvent> poison = new ConsumerRecord<>("fraud-detection-events", 0, 3L, "X", null);
+
+        StepVerifier.create(retryTopics.forward(exhausted, new RuntimeException("boom"))).verifyComplete();
+        StepVerifier.create(retryTopics.forward(poison, new RuntimeException("bad bytes"))).verifyComplete();
+
+        verify(deadLetterRecoverer).accept(eq(exhausted), any());
+        verify(deadLetterRecoverer).accept(eq(poison), any());
+        verify(kafkaTemplate, never()).send(any(ProducerRecord.class));
+        assertEquals(2.0, meterRegistry.counter("notification.retry.forwarded", "lane", "receipt", "tier", "dlt").count());
+    }
+
+    @SuppressWarnings("unchecked")
+    private ProducerRecord<String, Object> sent() {
+        ArgumentCaptor<ProducerRecord<String, Object>> captor = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate).send(captor.capture());
+        return captor.getValue();
+    }
+
+    private static ConsumerRecord<String, Object> asConsumed(ProducerRecord<String, Object> sent) {
+        ConsumerRecord<String, Object> consumed = new ConsumerRecord<>(sent.topic(), 0, 0L, sent.key(), sent.value());
+        sent.headers().forEach(header -> consumed.headers().add(header));
+        return consumed;
+    }
+
+    private static ConsumerRecord<String, TransactionEvent> record(String topic) {
+        return new ConsumerRecord<>(topic, 0, 5L, "TXN-1",
+                TransactionEvent.builder().transactionId("TXN-1").customerId("CUST-1").build());
+    }
+}
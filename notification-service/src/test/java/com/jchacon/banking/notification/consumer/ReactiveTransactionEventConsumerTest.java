@@ -0,0 +1,133 @@
+package com.jchacon.banking.notification.consumer;
+
+import com.jchacon.banking.notification.config.NotificationConsumerProperties;
+import com.jchacon.banking.notification.event.TransactionEvent;
+import com.jchacon.banking.notification.service.NotificationService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.kafka.receiver.KafkaReceiver;
+import reactor.kafka.receiver.ReceiverOffset;
+import reactor.kafka.receiver.ReceiverRecord;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReactiveTransactionEventConsumerTest {
+
+    @Mock
+    private KafkaReceiver<String, TransactionEvent> receiver;
+
+    @Mock
+    private NotificationService notificationService;
+
+    @Mock
+    private NotificationRetryTopics retryTopics;
+
+    private final List<String> acknowledged = new CopyOnWriteArrayList<>();
+    private ReactiveTransactionEventConsumer consumer;
+
+    @BeforeEach
+    void setUp() {
+        NotificationConsumerProperties properties = new NotificationConsumerProperties();
+        properties.setConcurrency(2);
+        consumer = new ReactiveTransactionEventConsumer(receiver, receiver,
+                new NotificationDelivery(notificationService, retryTopics,
+                        new LaneMetrics(properties, new SimpleMeterRegistry())), properties);
+    }
+
+    @Test
+    @DisplayName("Should bound in-flight events per partition and acknowledge them as they complete")
+    void shouldBoundConcurrencyPerPartitionAndAckOutOfOrder() {
+        Map<Integer, AtomicInteger> running = new ConcurrentHashMap<>();
+        Map<Integer, Integer> maxRunning = new ConcurrentHashMap<>();
+        when(notificationService.sendNotification(any())).thenAnswer(invocation -> {
+            TransactionEvent event = invocation.getArgument(0);
+            int partition = Integer.parseInt(event.getTransactionId().substring(1, 2));
+            // The first event of each partition is the slowest
+            long delay = event.getTransactionId().endsWith("-0") ? 60 : 10;
+            AtomicInteger counter = running.computeIfAbsent(partition, p -> new AtomicInteger());
+            return Mono.delay(Duration.ofMillis(delay))
+                    .doOnSubscribe(s -> maxRunning.merge(partition, counter.incrementAndGet(), Math::max))
+                    .doOnNext(tick -> counter.decrementAndGet())
+                    .then();
+        });
+        Flux<ReceiverRecord<String, TransactionEvent>> records = Flux.just(
+                record(0, 0), record(1, 0), record(0, 1), record(1, 1), record(0, 2), record(1, 2));
+        when(receiver.receive()).thenReturn(records);
+
+        StepVerifier.create(consumer.consume(receiver))
+                .expectNextCount(6)
+                .verifyComplete();
+
+        assertEquals(Map.of(0, 2, 1, 2), maxRunning);
+        // Offset 0 of each partition was still running while 1 and 2 were acknowledged
+        List<String> partitionZero = acknowledged.stream().filter(id -> id.startsWith("P0")).toList();
+        assertEquals(List.of("P0-1", "P0-2", "P0-0"), partitionZero);
+        verifyNoInteractions(retryTopics);
+    }
+
+    @Test
+    @DisplayName("Should hand a failing event to the retry topics and still acknowledge its offset")
+    void shouldForwardFailedEventAndAcknowledge() {
+        RuntimeException failure = new RuntimeException("Mail server down");
+        when(notificationService.sendNotification(argThat(e -> e != null && "P0-0".equals(e.getTransactionId()))))
+                .thenReturn(Mono.error(failure));
+        when(notificationService.sendNotification(argThat(e -> e != null && !"P0-0".equals(e.getTransactionId()))))
+                .thenReturn(Mono.empty());
+        when(retryTopics.forward(any(), any())).thenReturn(Mono.empty());
+        ReceiverRecord<String, TransactionEvent> failing = record(0, 0);
+        ReceiverRecord<String, TransactionEvent> next = record(0, 1);
+        when(receiver.receive()).thenReturn(Flux.just(failing, next));
+
+        StepVerifier.create(consumer.consume(receiver))
+                .expectNextCount(2)
+                .verifyComplete();
+
+        verify(retryTopics).forward(failing, failure);
+        assertEquals(2, acknowledged.size());
+    }
+
+    @Test
+    @DisplayName("Should fail without acknowledging when the retry topic cannot be reached")
+    void shouldNotAcknowledgeWhenForwardingFails() {
+        when(notificationService.sendNotification(any())).thenReturn(Mono.error(new RuntimeException("boom")));
+        when(retryTopics.forward(any(), any())).thenReturn(Mono.error(new IllegalStateException("Retry topic unavailable")));
+        ReceiverRecord<String, TransactionEvent> record = record(0, 0);
+        when(receiver.receive()).thenReturn(Flux.just(record));
+
+        StepVerifier.create(consumer.consume(receiver))
+                .verifyErrorMessage("Retry topic unavailable");
+
+        assertEquals(List.of(), acknowledged);
+    }
+
+    private ReceiverRecord<String, TransactionEvent> record(int partition, long offset) {
+        String transactionId = "P" + partition + "-" + offset;
+        ReceiverOffset receiverOffset = mock(ReceiverOffset.class);
+        lenient().when(receiverOffset.topicPartition()).thenReturn(new TopicPartition("fraud-detection-events", partition));
+        lenient().doAnswer(invocation -> acknowledged.add(transactionId)).when(receiverOffset).acknowledge();
+        ConsumerRecord<String, TransactionEvent> consumerRecord = new ConsumerRecord<>("fraud-detection-events",
+                partition, offset, transactionId, TransactionEvent.builder().transactionId(transactionId).build());
+        return new ReceiverRecord<>(consumerRecord, receiverOffset);
+    }
+}
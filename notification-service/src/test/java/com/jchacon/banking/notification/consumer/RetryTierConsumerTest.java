@@ -0,0 +1,139 @@
+package com.jchacon.banking.notification.consumer;
+
+import com.jchacon.banking.notification.config.NotificationConsumerProperties;
+import com.jchacon.banking.notification.event.TransactionEvent;
+import com.jchacon.banking.notification.service.NotificationService;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.support.Acknowledgment;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RetryTierConsumerTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+
+    @Mock
+    private ConcurrentKafkaListenerContainerFactory<String, TransactionEvent> containerFactory;
+
+    @Mock
+    private NotificationService notificationService;
+
+    @Mock
+    private NotificationRetryTopics retryTopics;
+
+    @Mock
+    private Acknowledgment acknowledgment;
+
+    private SimpleMeterRegistry meterRegistry;
+    private RetryTierConsumer consumer;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        Clock clock = Clock.fixed(Instant.ofEpochMilli(NOW), ZoneOffset.UTC);
+        consumer = new RetryTierConsumer(containerFactory, notificationService, retryTopics,
+                new LaneMetrics(new NotificationConsumerProperties(), meterRegistry, clock), meterRegistry, clock);
+        lenient().when(retryTopics.label(1)).thenReturn("30s");
+        lenient().when(retryTopics.delay(1)).thenReturn(Duration.ofSeconds(30));
+    }
+
+    @Test
+    @DisplayName("Should pause the tier until the head record is due")
+    void shouldNackRecordThatIsNotDue() {
+        consumer.onMessage(1, record(NOW + 12_000), acknowledgment);
+
+        verify(acknowledgment).nack(Duration.ofMillis(12_000));
+        verify(acknowledgment, never()).acknowledge();
+        verifyNoInteractions(notificationService);
+    }
+
+    @Test
+    @DisplayName("Should deliver a due record and record how late it ran")
+    void shouldDeliverDueRecord() {
+        when(notificationService.sendNotification(any())).thenReturn(Mono.just(true));
+
+        consumer.onMessage(1, record(NOW - 250), acknowledgment);
+
+        verify(acknowledgment).acknowledge();
+        assertEquals(250.0, meterRegistry.timer("notification.retry.lag", "lane", "receipt", "tier", "30s").max(TimeUnit.MILLISECONDS));
+        assertEquals(1.0, meterRegistry.counter("notification.retry.attempts", "lane", "receipt", "tier", "30s", "outcome", "delivered").count());
+        verify(retryTopics, never()).forward(any(), any());
+    }
+
+    @Test
+    @DisplayName("Should count a retried alert in the alert lane latency from its original timestamp")
+    void shouldRecordLaneLatencyOfRetriedAlert() {
+        when(notificationService.sendNotification(any())).thenReturn(Mono.just(true));
+        ConsumerRecord<String, TransactionEvent> record = new ConsumerRecord<>("fraud-detection-alerts-retry-30s", 0, 0L,
+                "TXN-1", TransactionEvent.builder().transactionId("TXN-1").build());
+        record.headers().add(NotificationRetryTopics.TIER_HEADER, "1".getBytes(StandardCharsets.UTF_8));
+        record.headers().add(NotificationRetryTopics.DUE_HEADER, Long.toString(NOW).getBytes(StandardCharsets.UTF_8));
+        record.headers().add(NotificationRetryTopics.ORIGIN_TIMESTAMP_HEADER,
+                Long.toString(NOW - 35_000).getBytes(StandardCharsets.UTF_8));
+
+        consumer.onMessage(1, record, acknowledgment);
+
+        Timer alerts = meterRegistry.get("notification.lane.latency").tag("lane", "alert").timer();
+        assertEquals(1, alerts.count());
+        assertEquals(35_000, alerts.max(TimeUnit.MILLISECONDS));
+        assertEquals(1.0, meterRegistry.counter("notification.lane.budget.exceeded", "lane", "alert").count());
+    }
+
+    @Test
+    @DisplayName("Should resend a retried digest as a digest, not as its last event")
+    void shouldResendDigest() {
+        when(notificationService.sendDigest(any(), any())).thenReturn(Mono.just(true));
+        ConsumerRecord<String, TransactionEvent> record = record(NOW);
+        record.headers().add(NotificationRetryTopics.DIGEST_HEADER,
+                "Security notice: 3 more transactions".getBytes(StandardCharsets.UTF_8));
+
+        consumer.onMessage(1, record, acknowledgment);
+
+        verify(notificationService).sendDigest(record.value(), "Security notice: 3 more transactions");
+        verify(notificationService, never()).sendNotification(any());
+        verify(acknowledgment).acknowledge();
+    }
+
+    @Test
+    @DisplayName("Should move a record that fails again to the next tier and commit it here")
+    void shouldForwardRecordThatFailsAgain() {
+        RuntimeException failure = new RuntimeException("Mail server down");
+        when(notificationService.sendNotification(any())).thenReturn(Mono.error(failure));
+        when(retryTopics.forward(any(), any())).thenReturn(Mono.empty());
+        ConsumerRecord<String, TransactionEvent> record = record(NOW);
+
+        consumer.onMessage(1, record, acknowledgment);
+
+        verify(retryTopics).forward(record, failure);
+        verify(acknowledgment).acknowledge();
+        assertEquals(1.0, meterRegistry.counter("notification.retry.attempts", "lane", "receipt", "tier", "30s", "outcome", "failed").count());
+    }
+
+    private static ConsumerRecord<String, TransactionEvent> record(long due) {
+        ConsumerRecord<String, TransactionEvent> record = new ConsumerRecord<>("fraud-detection-events-retry-30s", 0, 0L,
+                "TXN-1", TransactionEvent.builder().transactionId("TXN-1").build());
+        record.headers().add(NotificationRetryTopics.TIER_HEADER, "1".getBytes(StandardCharsets.UTF_8));
+        record.headers().add(NotificationRetryTopics.DUE_HEADER, Long.toString(due).getBytes(StandardCharsets.UTF_8));
+        return record;
+    }
+}
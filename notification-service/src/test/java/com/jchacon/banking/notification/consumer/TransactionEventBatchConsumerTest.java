@@ -0,0 +1,157 @@
+package com.jchacon.banking.notification.consumer;
+
+import com.jchacon.banking.notification.config.NotificationConsumerProperties;
+import com.jchacon.banking.notification.event.TransactionEvent;
+import com.jchacon.banking.notification.service.NotificationService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionEventBatchConsumerTest {
+
+    @Mock
+    private NotificationService notificationService;
+
+    @Mock
+    private NotificationRetryTopics retryTopics;
+
+    private NotificationConsumerProperties properties;
+    private TransactionEventBatchConsumer consumer;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        properties = new NotificationConsumerProperties();
+        properties.setConcurrency(2);
+        meterRegistry = new SimpleMeterRegistry();
+        consumer = new TransactionEventBatchConsumer(
+                new NotificationDelivery(notificationService, retryTopics,
+                        new LaneMetrics(properties, meterRegistry)), properties);
+    }
+
+    @Test
+    @DisplayName("Should run keys concurrently up to the limit while keeping each key in offset order")
+    void shouldBoundConcurrencyAndKeepKeyOrder() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<String> delivered = new CopyOnWriteArrayList<>();
+        when(notificationService.sendNotification(any())).thenAnswer(invocation -> {
+            TransactionEvent event = invocation.getArgument(0);
+            return Mono.delay(Duration.ofMillis(20))
+                    .doOnSubscribe(s -> maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max))
+                    .doOnNext(tick -> {
+                        running.decrementAndGet();
+                        delivered.add(event.getTransactionId());
+                    })
+                    .then();
+        });
+
+        StepVerifier.create(consumer.dispatch(List.of(
+                        record(0, "A", "A-1"), record(1, "B", "B-1"), record(2, "A", "A-2"),
+                        record(3, "C", "C-1"), record(4, "A", "A-3"))))
+                .expectNext(0L)
+                .verifyComplete();
+
+        assertEquals(2, maxRunning.get());
+        assertEquals(5, delivered.size());
+        List<String> keyA = delivered.stream().filter(id -> id.startsWith("A")).toList();
+        assertEquals(List.of("A-1", "A-2", "A-3"), keyA);
+        verifyNoInteractions(retryTopics);
+    }
+
+    @Test
+    @DisplayName("Should hand a failing event to the retry topics after one attempt and go on with its key")
+    void shouldForwardFailedRecordIndividually() {
+        AtomicInteger attempts = new AtomicInteger();
+        RuntimeException failure = new RuntimeException("Mail server down");
+        when(notificationService.sendNotification(argThat(e -> e != null && "A-1".equals(e.getTransactionId()))))
+                .thenReturn(Mono.fromRunnable(attempts::incrementAndGet).then(Mono.error(failure)));
+        when(notificationService.sendNotification(argThat(e -> e != null && !"A-1".equals(e.getTransactionId()))))
+                .thenReturn(Mono.empty());
+        when(retryTopics.forward(any(), any())).thenReturn(Mono.empty());
+        ConsumerRecord<String, TransactionEvent> failing = record(0, "A", "A-1");
+
+        consumer.consume(List.of(failing, record(1, "A", "A-2"), record(2, "B", "B-1")));
+
+        // No in-place retries: the partition does not wait for the backoff
+        assertEquals(1, attempts.get());
+        verify(retryTopics, times(1)).forward(failing, failure);
+        // The rest of its key still went out
+        verify(notificationService).sendNotification(argThat(e -> e != null && "A-2".equals(e.getTransactionId())));
+    }
+
+    @Test
+    @DisplayName("Should time only the events that were sent, not redeliveries or digest entries")
+    void shouldRecordLaneLatencyOnlyForSends() {
+        when(notificationService.sendNotification(argThat(e -> e != null && "A-1".equals(e.getTransactionId()))))
+                .thenReturn(Mono.just(true));
+        when(notificationService.sendNotification(argThat(e -> e != null && !"A-1".equals(e.getTransactionId()))))
+                .thenReturn(Mono.just(false));
+
+        StepVerifier.create(consumer.dispatch(List.of(record(0, "A", "A-1"), record(1, "A", "A-2"), record(2, "B", "B-1"))))
+                .expectNext(0L)
+                .verifyComplete();
+
+        assertEquals(1, meterRegistry.get("notification.lane.latency").tag("lane", "receipt").timer().count());
+        verifyNoInteractions(retryTopics);
+    }
+
+    @Test
+    @DisplayName("Should hand records whose value could not be deserialized over without calling the service")
+    void shouldForwardUndeserializableRecord() {
+        ConsumerRecord<String, TransactionEvent> poison = new ConsumerRecord<>("fraud-detection-events", 0, 7L, "X", null);
+        when(retryTopics.forward(any(), any())).thenReturn(Mono.empty());
+
+        StepVerifier.create(consumer.dispatch(List.of(poison)))
+                .expectNext(1L)
+                .verifyComplete();
+
+        verify(retryTopics).forward(eq(poison), any());
+        verifyNoInteractions(notificationService);
+    }
+
+    @Test
+    @DisplayName("Should point the error handler at the event the retry topic could not take, after settling the rest")
+    void shouldFailOnlyUnforwardedRecord() {
+        when(notificationService.sendNotification(argThat(e -> e != null && "B-1".equals(e.getTransactionId()))))
+                .thenReturn(Mono.error(new RuntimeException("boom")));
+        when(notificationService.sendNotification(argThat(e -> e != null && !"B-1".equals(e.getTransactionId()))))
+                .thenReturn(Mono.just(true));
+        when(retryTopics.forward(any(), any())).thenReturn(Mono.error(new IllegalStateException("Retry topic unavailable")));
+
+        BatchListenerFailedException error = assertThrows(BatchListenerFailedException.class, () -> consumer.consume(
+                List.of(record(0, "A", "A-1"), record(1, "B", "B-1"), record(2, "C", "C-1"))));
+
+        // Only B-1 is recovered by the error handler; the other events were still delivered
+        assertEquals(1, error.getIndex());
+        assertTrue(error.getMessage().contains("Retry topic unavailable"));
+        verify(notificationService).sendNotification(argThat(e -> e != null && "C-1".equals(e.getTransactionId())));
+        verify(retryTopics, times(1)).forward(any(), any());
+    }
+
+    private static ConsumerRecord<String, TransactionEvent> record(long offset, String key, String transactionId) {
+        return new ConsumerRecord<>("fraud-detection-events", 0, offset, key,
+                TransactionEvent.builder().transactionId(transactionId).customerId("CUST-" + key).build());
+    }
+}
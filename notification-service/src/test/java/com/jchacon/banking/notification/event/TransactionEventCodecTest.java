@@ -0,0 +1,121 @@
+package com.jchacon.banking.notification.event;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TransactionEventCodecTest {
+
+    // Version 1 encoding of event(), shared with fraud-detection-service's copy of this test so both sides
+    // write and read the same bytes
+    private static final String V1_GOLDEN = readGolden();
+
+    private final TransactionEventSerializer serializer = new TransactionEventSerializer();
+    private final TransactionEventDeserializer deserializer = new TransactionEventDeserializer();
+
+    @Test
+    @DisplayName("Should write the pinned version 1 bytes and read them back unchanged")
+    void shouldMatchVersionOneGoldenBytes() {
+        byte[] bytes = serializer.serialize("fraud-detection-events", event());
+
+        assertEquals(V1_GOLDEN, HexFormat.of().formatHex(bytes));
+        assertEquals(TransactionEventCodec.VERSION, bytes[0]);
+        assertEquals(event(), deserializer.deserialize("fraud-detection-events", bytes));
+    }
+
+    @Test
+    @DisplayName("Should round-trip null fields and negative scales")
+    void shouldRoundTripNullsAndEdgeValues() {
+        TransactionEvent sparse = TransactionEvent.builder().transactionId("TXN-2").build();
+        TransactionEvent edge = TransactionEvent.builder()
+                .transactionId("TXN-Ñ-€")
+                .amount(new BigDecimal("-1E+3"))
+                .timestamp(LocalDateTime.of(1969, 12, 31, 23, 59, 59))
+                .build();
+
+        assertEquals(sparse, TransactionEventCodec.decode(TransactionEventCodec.encode(sparse)));
+        assertEquals(edge, TransactionEventCodec.decode(TransactionEventCodec.encode(edge)));
+    }
+
+    @Test
+    @DisplayName("Should ignore fields appended by a newer version")
+    void shouldReadNewerVersionPrefix() {
+        byte[] golden = HexFormat.of().parseHex(V1_GOLDEN);
+        byte[] newer = Arrays.copyOf(golden, golden.length + 4);
+        newer[0] = 2;
+        // A hypothetical version 2 string field "abc"
+        newer[golden.length] = 4;
+        newer[golden.length + 1] = 'a';
+        newer[golden.length + 2] = 'b';
+        newer[golden.length + 3] = 'c';
+
+        assertEquals(event(), TransactionEventCodec.decode(newer));
+    }
+
+    @Test
+    @DisplayName("Should leave fields an older writer did not know about null")
+    void shouldReadOlderVersionWithMissingTail() {
+        TransactionEvent withoutTail = event();
+        withoutTail.setTimestamp(null);
+        withoutTail.setCorrelationId(null);
+        byte[] full = TransactionEventCodec.encode(withoutTail);
+        // Drop the two trailing null markers, as a writer without those fields would
+        byte[] older = Arrays.copyOf(full, full.length - 2);
+
+        assertEquals(withoutTail, TransactionEventCodec.decode(older));
+    }
+
+    @Test
+    @DisplayName("Should still read records written by the JSON serializer")
+    void shouldReadLegacyJson() {
+        try (JsonSerializer<TransactionEvent> json = new JsonSerializer<>()) {
+            byte[] legacy = json.serialize("fraud-detection-events", event());
+
+            assertEquals(event(), deserializer.deserialize("fraud-detection-events", legacy));
+        }
+    }
+
+    @Test
+    @DisplayName("Should reject payloads that are neither format")
+    void shouldRejectGarbage() {
+        assertThrows(SerializationException.class, () -> deserializer.deserialize("t", new byte[0]));
+        assertThrows(SerializationException.class, () -> deserializer.deserialize("t", new byte[]{0, 1}));
+        assertThrows(SerializationException.class, () -> deserializer.deserialize("t", new byte[]{1, 0x7F}));
+        assertNull(serializer.serialize("t", null));
+        assertNull(deserializer.deserialize("t", null));
+    }
+
+    private static TransactionEvent event() {
+        return TransactionEvent.builder()
+                .transactionId("TXN-1")
+                .customerId("CUST-9")
+                .amount(new BigDecimal("1250.50"))
+                .status("REJECTED")
+                .responseCode("34")
+                .timestamp(LocalDateTime.of(2026, 1, 15, 10, 30, 0, 123456789))
+                .correlationId("corr-1")
+                .build();
+    }
+
+    private static String readGolden() {
+        try {
+            return Files.readString(Path.of("..", "contracts", "transaction-event-v1.hex")).strip();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.jchacon.banking.notification.service;
+
+import com.github.benmanes.caffeine.cache.Scheduler;
+import com.jchacon.banking.notification.config.NotificationAggregationProperties;
+import com.jchacon.banking.notification.event.TransactionEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class NotificationAggregatorTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final List<NotificationAggregator.Digest> digests = new CopyOnWriteArrayList<>();
+    private NotificationAggregationProperties properties;
+    private NotificationAggregator aggregator;
+
+    @BeforeEach
+    void setUp() {
+        properties = new NotificationAggregationProperties();
+        properties.setWindow(Duration.ofSeconds(60));
+        properties.setDedupTtl(Duration.ofMinutes(10));
+        aggregator = aggregator();
+    }
+
+    @Test
+    @DisplayName("Should send the first event of a burst and collapse the rest into one digest")
+    void shouldCollapseBurstIntoDigest() {
+        assertEquals(NotificationAggregator.Decision.SEND, aggregator.admit(event("TXN-0", "CUST-1", "REJECTED")));
+        for (int i = 1; i <= 120; i++) {
+            assertEquals(NotificationAggregator.Decision.SUPPRESS, aggregator.admit(event("TXN-" + i, "CUST-1", "REJECTED")));
+        }
+        // Approval receipts are never windowed
+        assertEquals(NotificationAggregator.Decision.SEND, aggregator.admit(event("TXN-A", "CUST-1", "APPROVED")));
+        // Other customers have windows of their own
+        assertEquals(NotificationAggregator.Decision.SEND, aggregator.admit(event("TXN-X", "CUST-2", "REJECTED")));
+
+        advance(Duration.ofSeconds(59));
+        assertEquals(List.of(), digests);
+
+        advance(Duration.ofSeconds(1));
+        assertEquals(1, digests.size());
+        NotificationAggregator.Digest digest = digests.get(0);
+        assertEquals("CUST-1", digest.customerId());
+        assertEquals(120, digest.count());
+        assertEquals(Map.of("REJECTED", 120), digest.byStatus());
+        assertEquals(new BigDecimal("1200.00"), digest.total());
+        assertEquals("TXN-120", digest.last().getTransactionId());
+
+        // The next event opens a new window
+        assertEquals(NotificationAggregator.Decision.SEND, aggregator.admit(event("TXN-121", "CUST-1", "REJECTED")));
+    }
+
+    @Test
+    @DisplayName("Should keep the window length fixed while events keep arriving")
+    void shouldNotExtendWindowOnEveryEvent() {
+        aggregator.admit(event("TXN-0", "CUST-1", "REJECTED"));
+        for (int i = 1; i <= 6; i++) {
+            advance(Duration.ofSeconds(9));
+            aggregator.admit(event("TXN-" + i, "CUST-1", "REJECTED"));
+        }
+
+        advance(Duration.ofSeconds(6));
+
+        assertEquals(1, digests.size());
+        assertEquals(6, digests.get(0).count());
+    }
+
+    @Test
+    @DisplayName("Should drop redeliveries of notified transactions until the dedup TTL passes")
+    void shouldDropDuplicatesWithinTtl() {
+        TransactionEvent event = event("TXN-1", "CUST-1", "REJECTED");
+        aggregator.admit(event);
+        aggregator.markNotified(event);
+
+        assertEquals(NotificationAggregator.Decision.DUPLICATE, aggregator.admit(event));
+
+        advance(Duration.ofMinutes(10));
+        assertEquals(NotificationAggregator.Decision.SEND, aggregator.admit(event));
+    }
+
+    @Test
+    @DisplayName("Should let a failed event through again when it is retried")
+    void shouldNotDedupUnnotifiedEvent() {
+        properties.setWindow(Duration.ofMillis(1));
+        aggregator = aggregator();
+        TransactionEvent event = event("TXN-1", "CUST-1", "REJECTED");
+        aggregator.admit(event);
+
+        advance(Duration.ofSeconds(5));
+
+        assertEquals(NotificationAggregator.Decision.SEND, aggregator.admit(event));
+    }
+
+    @Test
+    @DisplayName("Should count a redelivered event once and only dedup it after its digest went out")
+    void shouldMarkDigestEventsOnlyOnceDelivered() {
+        TransactionEvent suppressed = event("TXN-1", "CUST-1", "REJECTED");
+        aggregator.admit(event("TXN-0", "CUST-1", "REJECTED"));
+        assertEquals(NotificationAggregator.Decision.SUPPRESS, aggregator.admit(suppressed));
+        assertEquals(NotificationAggregator.Decision.DUPLICATE, aggregator.admit(suppressed));
+
+        advance(Duration.ofSeconds(60));
+
+        assertEquals(1, digests.size());
+        assertEquals(1, digests.get(0).count());
+        assertEquals(Set.of("TXN-1"), digests.get(0).transactionIds());
+        // The digest is not known to have gone out yet, so the event is not deduped
+        assertEquals(NotificationAggregator.Decision.SEND, aggregator.admit(suppressed));
+
+        aggregator.markNotified(digests.get(0));
+
+        assertEquals(NotificationAggregator.Decision.DUPLICATE, aggregator.admit(suppressed));
+    }
+
+    @Test
+    @DisplayName("Should flush the oldest windows early once the customer bound is reached")
+    void shouldBoundCustomers() {
+        properties.setMaxCustomers(10);
+        aggregator = aggregator();
+        for (int customer = 0; customer < 50; customer++) {
+            aggregator.admit(event("TXN-" + customer + "-0", "CUST-" + customer, "REJECTED"));
+            aggregator.admit(event("TXN-" + customer + "-1", "CUST-" + customer, "REJECTED"));
+        }
+
+        aggregator.cleanUp();
+
+        // Nothing counted is lost: evicted windows still produce their digest
+        assertEquals(40, digests.size(), "digests of evicted customers");
+    }
+
+    @Test
+    @DisplayName("Should hand the open windows to the flush consumer instead of the digest listener")
+    void shouldFlushOpenWindows() {
+        aggregator.admit(event("TXN-0", "CUST-1", "REJECTED"));
+        aggregator.admit(event("TXN-1", "CUST-1", "REJECTED"));
+        aggregator.admit(event("TXN-2", "CUST-2", "REJECTED"));
+        List<NotificationAggregator.Digest> flushed = new CopyOnWriteArrayList<>();
+
+        aggregator.flush(flushed::add);
+        advance(Duration.ofSeconds(60));
+
+        // CUST-2 counted nothing after its first event
+        assertEquals(1, flushed.size());
+        assertEquals("TXN-1", flushed.get(0).last().getTransactionId());
+        assertEquals(List.of(), digests);
+    }
+
+    @Test
+    @DisplayName("Should notify every event when aggregation is disabled")
+    void shouldPassThroughWhenDisabled() {
+        properties.setEnabled(false);
+        aggregator = aggregator();
+        TransactionEvent event = event("TXN-1", "CUST-1", "REJECTED");
+
+        aggregator.markNotified(event);
+
+        assertEquals(NotificationAggregator.Decision.SEND, aggregator.admit(event));
+        assertEquals(NotificationAggregator.Decision.SEND, aggregator.admit(event("TXN-2", "CUST-1", "REJECTED")));
+    }
+
+    private NotificationAggregator aggregator() {
+        NotificationAggregator created = new NotificationAggregator(properties, new SimpleMeterRegistry(),
+                nanos::get, Scheduler.disabledScheduler(), Runnable::run);
+        created.onDigest(digests::add);
+        return created;
+    }
+
+    private void advance(Duration duration) {
+        nanos.addAndGet(duration.toNanos());
+        aggregator.cleanUp();
+    }
+
+    private static TransactionEvent event(String transactionId, String customerId, String status) {
+        return TransactionEvent.builder()
+                .transactionId(transactionId)
+                .customerId(customerId)
+                .amount(new BigDecimal("10.00"))
+                .status(status)
+                .build();
+    }
+}
@@ -0,0 +1,220 @@
+package com.jchacon.banking.notification.service;
+
+import com.github.benmanes.caffeine.cache.Scheduler;
+import com.jchacon.banking.notification.channel.NotificationChannel;
+import com.jchacon.banking.notification.channel.StubNotificationChannel;
+import com.jchacon.banking.notification.config.NotificationAggregationProperties;
+import com.jchacon.banking.notification.config.NotificationChannelProperties;
+import com.jchacon.banking.notification.consumer.NotificationRetryTopics;
+import com.jchacon.banking.notification.event.TransactionEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class NotificationServiceImplTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final NotificationRetryTopics retryTopics = mock(NotificationRetryTopics.class);
+
+    @Test
+    @DisplayName("Should deliver on the fast channel even while another one times out")
+    void shouldIsolateSlowChannel() {
+        NotificationChannelProperties properties = new NotificationChannelProperties();
+        NotificationChannelProperties.Channel email = new NotificationChannelProperties.Channel();
+        email.setTimeout(Duration.ofMillis(50));
+        properties.getChannels().put("email", email);
+        NotificationServiceImpl service = new NotificationServiceImpl(List.of(
+                new StubNotificationChannel("sms", Duration.ofMillis(5)),
+                new StubNotificationChannel("email", Duration.ofSeconds(10))), properties, aggregator(), retryTopics, meterRegistry);
+
+        StepVerifier.create(service.sendNotification(event("REJECTED")))
+                .expectNext(true)
+                .expectComplete()
+                .verify(Duration.ofSeconds(2));
+
+        assertEquals(1.0, meterRegistry.counter("notification.channel.sends", "channel", "sms", "outcome", "delivered").count());
+        // The email send keeps running after the caller completed and times out on its own
+        StepVerifier.create(Mono.fromSupplier(() -> meterRegistry.counter("notification.channel.sends",
+                                "channel", "email", "outcome", "timeout").count())
+                        .filter(count -> count == 1.0)
+                        .repeatWhenEmpty(ticks -> ticks.delayElements(Duration.ofMillis(10))))
+                .expectNext(1.0)
+                .expectComplete()
+                .verify(Duration.ofSeconds(2));
+    }
+
+    @Test
+    @DisplayName("Should complete on the first delivery without waiting for a slow channel")
+    void shouldCompleteOnFirstDelivery() throws InterruptedException {
+        CountDownLatch emailDelivered = new CountDownLatch(1);
+        NotificationChannel slowEmail = new StubNotificationChannel("email", Duration.ofMillis(1500)) {
+            @Override
+            public Mono<Void> send(TransactionEvent event, String message) {
+                return super.send(event, message).doOnSuccess(done -> emailDelivered.countDown());
+            }
+        };
+        NotificationServiceImpl service = new NotificationServiceImpl(List.of(
+                new StubNotificationChannel("sms", Duration.ofMillis(5)), slowEmail),
+                new NotificationChannelProperties(), aggregator(), retryTopics, meterRegistry);
+
+        Duration elapsed = StepVerifier.create(service.sendNotification(event("REJECTED")))
+                .expectNext(true)
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+
+        // SMS latency, not email's; email still delivers afterwards
+        assertTrue(elapsed.compareTo(Duration.ofMillis(1000)) < 0, "completed after " + elapsed);
+        assertEquals(1L, emailDelivered.getCount());
+        assertTrue(emailDelivered.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @DisplayName("Should fail when no channel delivered, so the event is retried")
+    void shouldFailWhenEveryChannelFails() {
+        NotificationServiceImpl service = new NotificationServiceImpl(List.of(down()),
+                new NotificationChannelProperties(), aggregator(), retryTopics, meterRegistry);
+
+        StepVerifier.create(service.sendNotification(event("APPROVED")))
+                .verifyError(IllegalStateException.class);
+    }
+
+    @Test
+    @DisplayName("Should hand a digest no channel delivered to the retry topics")
+    void shouldRetryUndeliveredDigest() {
+        AtomicLong nanos = new AtomicLong();
+        NotificationAggregator aggregator = new NotificationAggregator(new NotificationAggregationProperties(),
+                meterRegistry, nanos::get, Scheduler.disabledScheduler(), Runnable::run);
+        when(retryTopics.forwardDigest(any(), any(), any())).thenReturn(Mono.empty());
+        NotificationServiceImpl service = new NotificationServiceImpl(List.of(down()),
+                new NotificationChannelProperties(), aggregator, retryTopics, meterRegistry);
+        TransactionEvent second = event("TXN-2", "REJECTED");
+        service.sendNotification(event("REJECTED")).onErrorResume(e -> Mono.empty()).block();
+        assertEquals(false, service.sendNotification(second).block());
+
+        nanos.addAndGet(Duration.ofMinutes(1).toNanos());
+        aggregator.cleanUp();
+
+        verify(retryTopics).forwardDigest(eq(second), argThat(message -> message.startsWith("Security notice: 1 more")),
+                any(IllegalStateException.class));
+    }
+
+    @Test
+    @DisplayName("Should not dedup the events of a digest that was neither delivered nor retried")
+    void shouldNotMarkLostDigest() {
+        AtomicLong nanos = new AtomicLong();
+        NotificationAggregator aggregator = new NotificationAggregator(new NotificationAggregationProperties(),
+                meterRegistry, nanos::get, Scheduler.disabledScheduler(), Runnable::run);
+        when(retryTopics.forwardDigest(any(), any(), any())).thenReturn(Mono.error(new RuntimeException("Broker down")));
+        NotificationServiceImpl service = new NotificationServiceImpl(List.of(down()),
+                new NotificationChannelProperties(), aggregator, retryTopics, meterRegistry);
+        TransactionEvent second = event("TXN-2", "REJECTED");
+        service.sendNotification(event("REJECTED")).onErrorResume(e -> Mono.empty()).block();
+        assertEquals(false, service.sendNotification(second).block());
+
+        nanos.addAndGet(Duration.ofMinutes(1).toNanos());
+        aggregator.cleanUp();
+
+        assertEquals(NotificationAggregator.Decision.SEND, aggregator.admit(second));
+    }
+
+    @Test
+    @DisplayName("Should drop redeliveries of an event once its digest was delivered")
+    void shouldMarkDeliveredDigest() {
+        AtomicLong nanos = new AtomicLong();
+        NotificationAggregator aggregator = new NotificationAggregator(new NotificationAggregationProperties(),
+                meterRegistry, nanos::get, Scheduler.disabledScheduler(), Runnable::run);
+        NotificationServiceImpl service = new NotificationServiceImpl(List.of(up()),
+                new NotificationChannelProperties(), aggregator, retryTopics, meterRegistry);
+        TransactionEvent second = event("TXN-2", "REJECTED");
+        service.sendNotification(event("REJECTED")).block();
+        service.sendNotification(second).block();
+
+        nanos.addAndGet(Duration.ofMinutes(1).toNanos());
+        aggregator.cleanUp();
+
+        StepVerifier.create(service.sendNotification(second))
+                .expectNext(false)
+                .expectComplete()
+                .verify(Duration.ofSeconds(1));
+    }
+
+    @Test
+    @DisplayName("Should hand the open windows to the retry topics on shutdown")
+    void shouldFlushDigestsOnShutdown() {
+        when(retryTopics.forwardDigest(any(), any(), isNull())).thenReturn(Mono.empty());
+        NotificationServiceImpl service = new NotificationServiceImpl(List.of(
+                new StubNotificationChannel("sms", Duration.ofMillis(5))),
+                new NotificationChannelProperties(), aggregator(), retryTopics, meterRegistry);
+        TransactionEvent second = event("TXN-2", "REJECTED");
+        service.sendNotification(event("REJECTED")).block();
+        service.sendNotification(second).block();
+
+        service.flushDigests();
+
+        verify(retryTopics).forwardDigest(eq(second), any(), isNull());
+    }
+
+    private static NotificationChannel up() {
+        return new NotificationChannel() {
+            @Override
+            public String name() {
+                return "push";
+            }
+
+            @Override
+            public Mono<Void> send(TransactionEvent event, String message) {
+                return Mono.empty();
+            }
+        };
+    }
+
+    private static NotificationChannel down() {
+        return new NotificationChannel() {
+            @Override
+            public String name() {
+                return "push";
+            }
+
+            @Override
+            public Mono<Void> send(TransactionEvent event, String message) {
+                return Mono.error(new RuntimeException("Gateway down"));
+            }
+        };
+    }
+
+    private NotificationAggregator aggregator() {
+        return new NotificationAggregator(new NotificationAggregationProperties(), meterRegistry);
+    }
+
+    private static TransactionEvent event(String status) {
+        return event("TXN-1", status);
+    }
+
+    private static TransactionEvent event(String transactionId, String status) {
+        return TransactionEvent.builder()
+                .transactionId(transactionId)
+                .customerId("CUST-1")
+                .amount(new BigDecimal("120.00"))
+                .status(status)
+                .build();
+    }
+}
@@ -21,6 +21,8 @@ INSERT INTO customer_limits (customer_id, daily_max_amount, current_daily_spent)
 ('CUST-009', 25000.00, 5000.00),
 ('CUST-010', 100.00, 90.00);
 
+-- Rollover sweeper: finds customers not reset since midnight without a full scan
+CREATE INDEX idx_customer_limits_last_reset ON customer_limits(last_reset);
 
 -- =============================================================================
 -- 2. TABLA DE TRANSACCIONES (Core Ledger)
@@ -81,10 +83,33 @@ CREATE INDEX idx_transaction_created_at ON transactions(created_at);
 CREATE TABLE IF NOT EXISTS outbox_events (
     id SERIAL PRIMARY KEY,
     transaction_id VARCHAR(50) NOT NULL,
-    payload TEXT NOT NULL,
-    status VARCHAR(20) DEFAULT 'FAILED', -- FAILED, RETRYING, PROCESSED
+    payload BYTEA NOT NULL, -- exact Kafka value bytes, published as-is by the relay
+    message_key VARCHAR(50) NOT NULL,
+    topic VARCHAR(100) NOT NULL DEFAULT 'fraud-detection-events', -- alerts go to fraud-detection-alerts
+    headers BYTEA, -- Kafka record headers (OutboxHeaders encoding)
+    status VARCHAR(20) DEFAULT 'FAILED', -- PENDING (fast path), FAILED, PROCESSING (claimed), FATAL_ERROR
     error_message TEXT,
     retry_count INT DEFAULT 0,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
-);
\ No newline at end of file
+);
+
+-- Relay claim: pending rows in id order, and the older-row check that keeps each transaction_id in order
+CREATE INDEX idx_outbox_status_id ON outbox_events(status, id);
+CREATE INDEX idx_outbox_transaction_id ON outbox_events(transaction_id, id);
+
+-- Wakes the outbox relays (LISTEN outbox_events) when rows they have to send are committed.
+-- Notifications are delivered at commit and deduplicated per transaction, so a batch insert wakes them once.
+-- PENDING rows are published by the after-commit fast path and do not wake the relays.
+CREATE OR REPLACE FUNCTION notify_outbox_events() RETURNS trigger AS $$
+BEGIN
+    PERFORM pg_notify('outbox_events', '');
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_outbox_events_notify ON outbox_events;
+CREATE TRIGGER trg_outbox_events_notify
+AFTER INSERT ON outbox_events
+FOR EACH ROW WHEN (NEW.status = 'FAILED')
+EXECUTE FUNCTION notify_outbox_events();